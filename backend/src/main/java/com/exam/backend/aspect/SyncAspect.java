@@ -1,29 +1,42 @@
 package com.exam.backend.aspect;
 
-import com.exam.backend.service.SyncService;
+import com.exam.backend.service.sync.SyncCoalescer;
+import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.Aspect;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+
 @Aspect
 @Component
 public class SyncAspect {
 
     @Autowired
-    private SyncService syncService;
+    private SyncCoalescer coalescer;
+
+    // 业务 Service -> 它写入的表
+    private static final Map<String, String> SERVICE_TABLES = Map.of(
+            "UserService", "sys_user",
+            "QuestionService", "question",
+            "PaperService", "paper",
+            "ExamService", "exam_result");
+
+    private static final List<String> ALL_TABLES = List.of("sys_user", "question", "paper", "exam_result");
 
     // 定义切点：监听 Service 包下所有 save 或 update 开头的方法
     // 注意：你需要确保你的 Service 方法名符合规范，或者直接监听 Repository
-    // 这里示例监听 UserService 和 PaperService 的保存方法
     @AfterReturning(pointcut = "execution(* com.exam.backend.service.*Service.save*(..)) || " +
             "execution(* com.exam.backend.service.*Service.update*(..))")
-    @Async // 异步执行，不阻塞主业务线程
-    public void triggerRealTimeSync() {
-        System.out.println(">>> [实时同步触发] 检测到数据变更，立即执行增量/全量同步...");
-        // 调用 SyncService 中的同步逻辑
-        // 生产环境建议做细粒度同步 (syncSingleUser)，这里演示调用主同步方法
-        syncService.syncData();
+    public void triggerRealTimeSync(JoinPoint joinPoint) {
+        // 只登记触发，由 SyncCoalescer 合并短时间内的多次触发后按表执行同步，不阻塞业务线程
+        String table = SERVICE_TABLES.get(joinPoint.getSignature().getDeclaringType().getSimpleName());
+        if (table != null) {
+            coalescer.trigger(table);
+        } else {
+            ALL_TABLES.forEach(coalescer::trigger);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.exam.backend.common;
+
+/**
+ * 混合逻辑时钟 (HLC)，生成各业务表 sync_version 列的值
+ * 高 48 位是毫秒时间，低 16 位是同一毫秒内的逻辑计数：
+ *   - 本进程生成的版本严格递增，即使系统时钟回拨
+ *   - 同步时看到的其它库版本会通过 observe 推进本地时钟，之后本地写入的版本一定更大
+ * 同步按 sync_version 决出胜者，不再依赖各库精度不同的 update_time。
+ */
+public final class HybridClock {
+
+    private static final int LOGICAL_BITS = 16;
+
+    private static long last;
+
+    private HybridClock() {}
+
+    public static synchronized long next() {
+        last = Math.max(last + 1, System.currentTimeMillis() << LOGICAL_BITS);
+        return last;
+    }
+
+    public static synchronized void observe(Long version) {
+        if (version != null && version > last) last = version;
+    }
+
+    // 某一毫秒时间对应的 (最小) 版本，用于把变更来源记录的删除时间换算成墓碑版本
+    public static long at(long millis) {
+        return millis << LOGICAL_BITS;
+    }
+
+    // 版本对应的毫秒时间 (排查问题用)
+    public static long physicalMillis(long version) {
+        return version >>> LOGICAL_BITS;
+    }
+}
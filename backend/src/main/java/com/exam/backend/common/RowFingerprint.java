@@ -0,0 +1,41 @@
+package com.exam.backend.common;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 行内容指纹
+ * 对参与比较的字段做 MD5 (32 位十六进制)，存入各业务表的 fingerprint 列。
+ * 同步与冲突检测只需比较指纹，不必把 @Lob 等大字段从三个库都读出来。
+ */
+public final class RowFingerprint {
+
+    private RowFingerprint() {}
+
+    public static String of(Object... values) {
+        StringBuilder sb = new StringBuilder();
+        for (Object v : values) {
+            if (v == null) {
+                sb.append("-1:");
+                continue;
+            }
+            // 数值去掉尾随 0，避免各库返回的小数位数不同 (如 90 与 90.00) 导致指纹不同
+            // 时间截到秒，避免各库时间列精度不同 (微秒 / 毫秒 / 秒) 导致指纹不同
+            String s = v instanceof BigDecimal d ? d.stripTrailingZeros().toPlainString()
+                    : v instanceof LocalDateTime t ? t.truncatedTo(ChronoUnit.SECONDS).toString() : v.toString();
+            sb.append(s.length()).append(':').append(s); // 长度前缀，避免字段拼接产生歧义
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(32);
+            for (byte b : digest) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 不可用", e);
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package com.exam.backend.controller;
 
 import com.exam.backend.controller.dto.ConflictDTO;
-import com.exam.backend.entity.User;
-import com.exam.backend.repository.mysql.MysqlUserRepository;
 import com.exam.backend.service.SyncService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -16,7 +14,6 @@ import java.util.Map;
 public class ConflictController {
 
     @Autowired private SyncService syncService;
-    @Autowired private MysqlUserRepository mysqlUserRepo;
 
     // 获取冲突列表 (直接调用 SyncService 中的复用逻辑)
     @GetMapping("/list")
@@ -40,21 +37,8 @@ public class ConflictController {
         try {
             Long id = Long.parseLong(sourceIdStr);
 
-            if ("sys_user".equalsIgnoreCase(tableName)) {
-                User u = mysqlUserRepo.findById(id).orElse(null);
-                if (u != null) {
-                    // 强制覆盖 Oracle 和 SQL Server
-                    syncService.syncToOracleNative(u);
-                    syncService.syncToSqlServerNative(u);
-                } else {
-                    return Map.of("code", 400, "msg", "源数据不存在(MySQL)，无法同步");
-                }
-
-            } else if ("paper".equalsIgnoreCase(tableName)) {
-                // 强制修复试卷
-                syncService.syncSinglePaperToOracle(id);
-                syncService.syncSinglePaperToSqlServer(id);
-            }
+            // 定向同步该行 (连同依赖行)：三库按 id 比对，最新的版本覆盖其它库
+            syncService.sync(tableName, id);
 
             return Map.of("code", 200, "msg", "全平台强制同步成功");
         } catch (Exception e) {
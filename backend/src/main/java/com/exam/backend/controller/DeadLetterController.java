@@ -0,0 +1,43 @@
+package com.exam.backend.controller;
+
+import com.exam.backend.entity.SyncDeadLetter;
+import com.exam.backend.service.sync.DeadLetterStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dead-letter")
+@CrossOrigin(origins = "*")
+public class DeadLetterController {
+
+    @Autowired private DeadLetterStore deadLetters;
+
+    // 死信列表 (最近失败的在前)
+    @GetMapping("/list")
+    public Map<String, Object> getDeadLetters() {
+        List<SyncDeadLetter> list = deadLetters.list();
+        return Map.of("code", 200, "data", list);
+    }
+
+    // 批量重试：{"ids": [1, 2, 3]}，ids 为空表示全部
+    @PostMapping("/retry")
+    public Map<String, Object> retry(@RequestBody(required = false) Map<String, List<Long>> payload) {
+        try {
+            int remaining = deadLetters.retry(payload == null ? null : payload.get("ids"));
+            return Map.of("code", 200, "msg", remaining == 0 ? "重试成功" : "仍有 " + remaining + " 条失败", "data", remaining);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Map.of("code", 500, "msg", "重试失败: " + e.getMessage());
+        }
+    }
+
+    // 批量丢弃：{"ids": [1, 2, 3]}，ids 为空表示全部
+    @PostMapping("/discard")
+    public Map<String, Object> discard(@RequestBody(required = false) Map<String, List<Long>> payload) {
+        int count = deadLetters.discard(payload == null ? null : payload.get("ids"));
+        return Map.of("code", 200, "msg", "已丢弃 " + count + " 条", "data", count);
+    }
+}
@@ -41,12 +41,12 @@ public class DebugController {
             if (q.getUpdateTime() == null) q.setUpdateTime(LocalDateTime.now());
 
             // 2. 强制保存到 Oracle (Repository 自带事务，执行完这行即提交)
-            oracleQuestionRepo.save(q);
+            Question saved = oracleQuestionRepo.save(q);
             System.out.println(">>> [演示] 已向 Oracle 写入题目: " + q.getContent());
 
-            // 3. 【核心】立即触发“题目表”的双向同步
+            // 3. 【核心】立即定向同步这道题
             //    这会把刚才写入 Oracle 的数据瞬间拉回 MySQL
-            syncService.syncQuestionsBidirectional();
+            syncService.sync("question", saved.getId());
 
             map.put("code", 200);
             map.put("msg", "写入 Oracle 并同步成功！请立即刷新列表查看。");
@@ -67,11 +67,11 @@ public class DebugController {
             if (q.getUpdateTime() == null) q.setUpdateTime(LocalDateTime.now());
 
             // 1. 保存到 SQL Server
-            sqlServerQuestionRepo.save(q);
+            Question saved = sqlServerQuestionRepo.save(q);
             System.out.println(">>> [演示] 已向 SQL Server 写入题目: " + q.getContent());
 
-            // 2. 【核心】立即触发同步
-            syncService.syncQuestionsBidirectional();
+            // 2. 【核心】立即定向同步这道题
+            syncService.sync("question", saved.getId());
 
             map.put("code", 200);
             map.put("msg", "写入 SQL Server 并同步成功！请立即刷新列表查看。");
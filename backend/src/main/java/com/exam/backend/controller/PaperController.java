@@ -3,7 +3,10 @@ package com.exam.backend.controller;
 import com.exam.backend.entity.Paper;
 import com.exam.backend.service.PaperService;
 import com.exam.backend.controller.dto.PaperCreateRequest;
+import com.exam.backend.service.view.PaperViewCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -18,6 +21,9 @@ public class PaperController {
     @Autowired
     private PaperService paperService;
 
+    @Autowired
+    private PaperViewCache paperViews;
+
     // 获取试卷列表
     @GetMapping("/list")
     public Map<String, Object> list() {
@@ -28,19 +34,17 @@ public class PaperController {
         return map;
     }
 
-    // 【新增】获取试卷详情
+    // 【新增】获取试卷详情 (与考试页共用试卷视图缓存)
     @GetMapping("/{id}")
-    public Map<String, Object> getDetail(@PathVariable Long id) {
-        Map<String, Object> map = new HashMap<>();
+    public ResponseEntity<?> getDetail(@PathVariable Long id) {
         try {
-            Map<String, Object> detail = paperService.getPaperDetail(id);
-            map.put("code", 200);
-            map.put("data", detail);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(paperViews.get(id));
         } catch (Exception e) {
+            Map<String, Object> map = new HashMap<>();
             map.put("code", 400);
             map.put("msg", e.getMessage());
+            return ResponseEntity.ok(map);
         }
-        return map;
     }
 
     // 智能组卷
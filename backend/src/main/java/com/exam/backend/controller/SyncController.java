@@ -0,0 +1,59 @@
+package com.exam.backend.controller;
+
+import com.exam.backend.service.SyncService;
+import com.exam.backend.service.sync.SyncScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sync")
+@CrossOrigin(origins = "*")
+public class SyncController {
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private SyncScheduler syncScheduler;
+
+    // 手动触发全量对账 (前端 triggerManualSync 调用)；经由调度器执行，与定时对账互斥，执行期间表任务跳过
+    @PostMapping("/trigger")
+    public Map<String, Object> triggerFullSync() {
+        Map<String, Object> map = new HashMap<>();
+        try {
+            syncScheduler.runFullNow();
+            map.put("code", 200);
+            map.put("msg", "全量对账完成");
+        } catch (Exception e) {
+            e.printStackTrace();
+            map.put("code", 500);
+            map.put("msg", "全量对账失败: " + e.getMessage());
+        }
+        return map;
+    }
+
+    // 手动触发一次增量同步
+    @PostMapping("/incremental")
+    public Map<String, Object> triggerIncrementalSync() {
+        Map<String, Object> map = new HashMap<>();
+        try {
+            syncService.syncIncremental();
+            map.put("code", 200);
+            map.put("msg", "增量同步完成");
+        } catch (Exception e) {
+            e.printStackTrace();
+            map.put("code", 500);
+            map.put("msg", "增量同步失败: " + e.getMessage());
+        }
+        return map;
+    }
+
+    // 同步调度任务的当前状态 (间隔、上次耗时、变更数、是否在执行等)
+    @GetMapping("/jobs")
+    public Map<String, Object> getJobs() {
+        return Map.of("code", 200, "data", syncScheduler.jobStates());
+    }
+}
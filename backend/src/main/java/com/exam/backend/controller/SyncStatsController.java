@@ -4,6 +4,14 @@ import com.exam.backend.entity.SyncLog;
 import com.exam.backend.repository.mysql.*;
 import com.exam.backend.repository.oracle.*;
 import com.exam.backend.repository.sqlserver.*;
+import com.exam.backend.service.submit.SubmissionBuffer;
+import com.exam.backend.service.sync.HintedHandoff;
+import com.exam.backend.service.sync.SyncCoalescer;
+import com.exam.backend.service.sync.TargetHealth;
+import com.exam.backend.service.sync.TombstoneStore;
+import com.exam.backend.service.sync.WriteBehindQueue;
+import com.exam.backend.service.view.PaperSnapshotStore;
+import com.exam.backend.service.view.PaperViewCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -42,6 +50,15 @@ public class SyncStatsController {
     @Autowired private SqlServerPaperQuestionRepository sqlServerPaperQuestionRepo;
     @Autowired private SqlServerExamResultRepository sqlServerExamResultRepo;
 
+    @Autowired private WriteBehindQueue writeBehind;
+    @Autowired private SyncCoalescer coalescer;
+    @Autowired private TargetHealth health;
+    @Autowired private HintedHandoff hints;
+    @Autowired private TombstoneStore tombstones;
+    @Autowired private SubmissionBuffer submissions;
+    @Autowired private PaperViewCache paperViews;
+    @Autowired private PaperSnapshotStore paperSnapshots;
+
     // ==========================================
     // 1. 原有功能：三库数据量实时核对 (Table Status)
     // ==========================================
@@ -82,6 +99,54 @@ public class SyncStatsController {
         );
     }
 
+    // ==========================================
+    // 3. 写后复制队列：积压条数与复制延迟 (lagMillis)
+    // ==========================================
+    @GetMapping("/replication")
+    public Map<String, Object> getReplicationStats() {
+        return Map.of("code", 200, "data", writeBehind.stats());
+    }
+
+    // ==========================================
+    // 4. 同步触发合并：各表触发次数 / 被合并次数 / 实际执行次数
+    // ==========================================
+    @GetMapping("/sync-triggers")
+    public Map<String, Object> getSyncTriggerStats() {
+        return Map.of("code", 200, "data", coalescer.stats());
+    }
+
+    // ==========================================
+    // 5. 各库熔断状态与积压的 hint 行数
+    // ==========================================
+    @GetMapping("/targets")
+    public Map<String, Object> getTargetStats() {
+        return Map.of("code", 200, "data", Map.of("breakers", health.stats(), "hints", hints.stats()));
+    }
+
+    // ==========================================
+    // 6. 尚未被所有库确认的删除墓碑 (按表计数)
+    // ==========================================
+    @GetMapping("/tombstones")
+    public Map<String, Object> getTombstoneStats() {
+        return Map.of("code", 200, "data", tombstones.stats());
+    }
+
+    // ==========================================
+    // 7. 交卷缓冲积压 (队列深度、每批写库耗时)
+    // ==========================================
+    @GetMapping("/submissions")
+    public Map<String, Object> getSubmissionStats() {
+        return Map.of("code", 200, "data", submissions.stats());
+    }
+
+    // ==========================================
+    // 8. 试卷视图缓存命中情况 (coalesced = 等待同一次加载的请求数) 与学生端快照
+    // ==========================================
+    @GetMapping("/paper-views")
+    public Map<String, Object> getPaperViewStats() {
+        return Map.of("code", 200, "data", Map.of("views", paperViews.stats(), "snapshots", paperSnapshots.stats()));
+    }
+
     // 辅助方法：构建一行数据并判断状态
     private Map<String, Object> buildRow(String tableName, long mysql, long oracle, long sqlserver) {
         Map<String, Object> row = new HashMap<>();
@@ -0,0 +1,54 @@
+package com.exam.backend.controller.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 成绩列表 / 答卷详情的返回对象 (JPQL 构造器投影，一条 SQL 取出，不加载实体)
+ * 保持原先实体序列化后的嵌套结构 (paper.paperName、student.realName)，但不含密码等字段
+ */
+@Data
+public class ExamResultDTO {
+    private Long id;
+    private BigDecimal score;
+    private LocalDateTime createTime;
+    private PaperRef paper;
+    private StudentRef student;
+
+    @JsonIgnore
+    private String studentAnswers; // 只有答卷详情查询会取出
+
+    @Data
+    public static class PaperRef {
+        private final Long id;
+        private final String paperName;
+        private final Integer totalScore;
+    }
+
+    @Data
+    public static class StudentRef {
+        private final Long id;
+        private final String username;
+        private final String realName;
+    }
+
+    public ExamResultDTO(Long id, BigDecimal score, LocalDateTime createTime,
+                         Long paperId, String paperName, Integer totalScore,
+                         Long studentId, String username, String realName) {
+        this.id = id;
+        this.score = score;
+        this.createTime = createTime;
+        this.paper = paperId == null ? null : new PaperRef(paperId, paperName, totalScore);
+        this.student = studentId == null ? null : new StudentRef(studentId, username, realName);
+    }
+
+    public ExamResultDTO(Long id, BigDecimal score, LocalDateTime createTime,
+                         Long paperId, String paperName, Integer totalScore,
+                         Long studentId, String username, String realName, String studentAnswers) {
+        this(id, score, createTime, paperId, paperName, totalScore, studentId, username, realName);
+        this.studentAnswers = studentAnswers;
+    }
+}
@@ -1,5 +1,7 @@
 package com.exam.backend.entity;
 
+import com.exam.backend.common.HybridClock;
+import com.exam.backend.common.RowFingerprint;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.math.BigDecimal;
@@ -33,11 +35,31 @@ public class ExamResult {
     @Column(name = "update_time")
     private LocalDateTime updateTime;
 
+    // 内容指纹 (覆盖所有同步列，外键取 id)，写入时自动维护，同步时只比较指纹
+    @Column(name = "fingerprint", length = 32)
+    private String fingerprint;
+
+    // 行版本 (HybridClock)，应用每次写入时递增，同步时原样复制到其它库；同步按它决出胜者
+    @Column(name = "sync_version")
+    private Long syncVersion;
+
     public ExamResult() {
         this.createTime = LocalDateTime.now();
         this.updateTime = LocalDateTime.now();
     }
 
+    public String computeFingerprint() {
+        return RowFingerprint.of(student != null ? student.getId() : null, paper != null ? paper.getId() : null,
+                score, createTime, studentAnswers);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void refreshSyncColumns() {
+        this.fingerprint = computeFingerprint();
+        this.syncVersion = HybridClock.next();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -22,6 +22,19 @@ public class PaperQuestion {
 
     private Integer score; // 这道题多少分
 
+    // 只带主键 id 的关联行 (同步写入时只需要 paper_id / question_id / score)
+    public static PaperQuestion link(Long paperId, Long questionId, Integer score) {
+        Paper paper = new Paper();
+        paper.setId(paperId);
+        Question question = new Question();
+        question.setId(questionId);
+        PaperQuestion pq = new PaperQuestion();
+        pq.setPaper(paper);
+        pq.setQuestion(question);
+        pq.setScore(score);
+        return pq;
+    }
+
     // 复合主键类
     @Data
     public static class PaperQuestionId implements Serializable {
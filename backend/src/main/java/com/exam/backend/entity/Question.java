@@ -1,5 +1,7 @@
 package com.exam.backend.entity;
 
+import com.exam.backend.common.HybridClock;
+import com.exam.backend.common.RowFingerprint;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -29,10 +31,29 @@ public class Question {
     @Column(name = "update_time")
     private LocalDateTime updateTime;
 
+    // 内容指纹 (覆盖所有同步列)，写入时自动维护，同步时只比较指纹
+    @Column(name = "fingerprint", length = 32)
+    private String fingerprint;
+
+    // 行版本 (HybridClock)，应用每次写入时递增，同步时原样复制到其它库；同步按它决出胜者
+    @Column(name = "sync_version")
+    private Long syncVersion;
+
     public Question() {
         this.updateTime = LocalDateTime.now();
     }
 
+    public String computeFingerprint() {
+        return RowFingerprint.of(content, type, difficulty, knowledgePoint, answer);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void refreshSyncColumns() {
+        this.fingerprint = computeFingerprint();
+        this.syncVersion = HybridClock.next();
+    }
+
     // 重写 equals: 用于判断内容是否实质变化
     @Override
     public boolean equals(Object o) {
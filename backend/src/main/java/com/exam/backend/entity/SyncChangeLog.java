@@ -0,0 +1,34 @@
+package com.exam.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 变更日志 (outbox)
+ * 三个库各有一张，由触发器在 sys_user / question / paper / paper_question / exam_result
+ * 发生 INSERT / UPDATE / DELETE 时写入 (见 sql/sync_outbox_*.sql)。
+ * 同步按表、按 id 顺序消费，消费位置保存在 sys_sync_watermark (table_name = sync_change_log:表名)。
+ */
+@Data
+@Entity
+@Table(name = "sync_change_log", indexes = @Index(name = "idx_sync_change_log_table", columnList = "table_name, id"))
+public class SyncChangeLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "table_name", length = 64, nullable = false)
+    private String tableName;
+
+    @Column(name = "row_id", nullable = false)
+    private Long rowId; // paper_question 记录的是 paper_id (试卷与题目集合整体同步)
+
+    @Column(name = "op", length = 1, nullable = false)
+    private String op;  // I / U / D
+
+    @Column(name = "change_time", nullable = false)
+    private LocalDateTime changeTime;
+}
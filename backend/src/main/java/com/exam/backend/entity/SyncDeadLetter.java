@@ -0,0 +1,59 @@
+package com.exam.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 同步死信
+ * 某一行写入某个目标库反复失败 (约束冲突、数据超长等) 时记录在这里，不再让整轮同步失败；
+ * 按 next_retry_at 指数退避自动重试，超过最大次数后 next_retry_at 为空，只能手动重试或丢弃。
+ */
+@Data
+@Entity
+@Table(name = "sys_sync_dead_letter",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"table_name", "row_id", "target_db"}),
+        indexes = @Index(name = "idx_sync_dead_letter_retry", columnList = "next_retry_at"))
+public class SyncDeadLetter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "table_name", length = 64, nullable = false)
+    private String tableName; // sys_user / question / paper / exam_result
+
+    @Column(name = "row_id", nullable = false)
+    private Long rowId;
+
+    @Column(name = "target_db", length = 32, nullable = false)
+    private String targetDb;  // MySQL / Oracle / SQLServer
+
+    @Column(name = "error", length = 2000)
+    private String error;     // 最近一次失败的错误信息
+
+    @Column(name = "attempts")
+    private Integer attempts;
+
+    @Column(name = "first_failed_at")
+    private LocalDateTime firstFailedAt;
+
+    @Column(name = "last_failed_at")
+    private LocalDateTime lastFailedAt;
+
+    @Column(name = "next_retry_at")
+    private LocalDateTime nextRetryAt; // 为空表示已停止自动重试
+
+    public SyncDeadLetter() {
+        this.attempts = 0;
+        this.firstFailedAt = LocalDateTime.now();
+    }
+
+    public SyncDeadLetter(String tableName, Long rowId, String targetDb) {
+        this();
+        this.tableName = tableName;
+        this.rowId = rowId;
+        this.targetDb = targetDb;
+    }
+}
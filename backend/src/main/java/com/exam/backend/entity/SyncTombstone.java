@@ -0,0 +1,65 @@
+package com.exam.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 删除墓碑
+ * 删除一行时记录 (表, id, 删除时的行版本)，由同步把删除传播到其它库；
+ * 某个库确认该行已不存在后记入 acked，所有库都确认后墓碑被清理。
+ * 墓碑存在期间，同步不会把其它库残留的这一行 "复活" 回来 (除非那一行的 sync_version 比墓碑更新)。
+ */
+@Data
+@Entity
+@Table(name = "sys_sync_tombstone",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"table_name", "row_id"}))
+public class SyncTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "table_name", length = 64, nullable = false)
+    private String tableName; // sys_user / question / paper / exam_result
+
+    @Column(name = "row_id", nullable = false)
+    private Long rowId;
+
+    @Column(name = "sync_version", nullable = false)
+    private Long syncVersion; // 删除时的 HybridClock 版本
+
+    @Column(name = "acked", length = 64)
+    private String acked;     // 已确认删除的库，逗号分隔：MySQL,Oracle,SQLServer
+
+    @Column(name = "delete_time")
+    private LocalDateTime deleteTime;
+
+    public SyncTombstone() {
+        this.acked = "";
+        this.deleteTime = LocalDateTime.now();
+    }
+
+    public SyncTombstone(String tableName, Long rowId, Long syncVersion) {
+        this();
+        this.tableName = tableName;
+        this.rowId = rowId;
+        this.syncVersion = syncVersion;
+    }
+
+    public void ack(String dbName) {
+        Set<String> dbs = ackedDbs();
+        dbs.add(dbName);
+        this.acked = String.join(",", dbs);
+    }
+
+    public Set<String> ackedDbs() {
+        Set<String> dbs = new LinkedHashSet<>();
+        if (acked != null && !acked.isEmpty()) dbs.addAll(Arrays.asList(acked.split(",")));
+        return dbs;
+    }
+}
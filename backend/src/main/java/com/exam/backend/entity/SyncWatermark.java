@@ -0,0 +1,58 @@
+package com.exam.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 增量同步水位线
+ * 每张业务表在每个库上各有一条记录，保存上次成功同步读到的 (update_time, id) 位置
+ */
+@Data
+@Entity
+@Table(name = "sys_sync_watermark",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"table_name", "db_name"}))
+public class SyncWatermark {
+
+    // 初始水位：从最早的时间开始扫描，第一次增量等价于一次全量
+    public static final LocalDateTime INITIAL_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "table_name", length = 64, nullable = false)
+    private String tableName; // sys_user / question / paper / exam_result
+
+    @Column(name = "db_name", length = 32, nullable = false)
+    private String dbName;    // MySQL / Oracle / SQLServer
+
+    @Column(name = "last_update_time")
+    private LocalDateTime lastUpdateTime;
+
+    @Column(name = "last_id")
+    private Long lastId; // 同一 update_time 下的 id 决胜
+
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+
+    public SyncWatermark() {
+        this.lastUpdateTime = INITIAL_TIME;
+        this.lastId = 0L;
+        this.updateTime = LocalDateTime.now();
+    }
+
+    public SyncWatermark(String tableName, String dbName) {
+        this();
+        this.tableName = tableName;
+        this.dbName = dbName;
+    }
+
+    // 水位只能前进，防止并发的两次同步互相把水位拉回去
+    public boolean isBefore(LocalDateTime time, Long id) {
+        if (time == null) return false;
+        int c = time.compareTo(lastUpdateTime);
+        return c > 0 || (c == 0 && id != null && id > lastId);
+    }
+}
@@ -0,0 +1,32 @@
+package com.exam.backend.repository;
+
+import com.exam.backend.entity.SyncChangeLog;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 三个库的变更日志 (sync_change_log) 仓库的公共接口
+ */
+@NoRepositoryBean
+public interface SyncChangeLogRepository extends JpaRepository<SyncChangeLog, Long> {
+
+    // 按 id 顺序读取某些表在游标之后、且已写入超过 settle 时间的变更
+    @Query("SELECT c FROM SyncChangeLog c WHERE c.tableName IN :tables AND c.id > :afterId AND c.changeTime < :before ORDER BY c.id ASC")
+    List<SyncChangeLog> findPending(@Param("tables") Collection<String> tables, @Param("afterId") Long afterId,
+                                    @Param("before") LocalDateTime before, Pageable pageable);
+
+    // 清理已消费且超过保留期的变更
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SyncChangeLog c WHERE c.tableName IN :tables AND c.id <= :lastId AND c.changeTime < :before")
+    int deleteConsumed(@Param("tables") Collection<String> tables, @Param("lastId") Long lastId, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,27 @@
+package com.exam.backend.repository;
+
+import com.exam.backend.service.sync.RowVersion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 参与三库同步的业务表仓库的公共接口
+ * 三个方法都只返回 RowVersion 投影 (各子接口用 @Query 给出具体 JPQL)，完整行只在指纹不一致时按 id 取
+ */
+@NoRepositoryBean
+public interface SyncSourceRepository<T> extends JpaRepository<T, Long> {
+
+    // 增量同步：按 (update_time, id) 水位线分页拉取变更行
+    List<RowVersion> findChangedSince(LocalDateTime since, Long lastId, Pageable pageable);
+
+    // 全量对账：按 id 游标 (keyset) 分页顺序读取，不用 OFFSET
+    List<RowVersion> findVersionsAfter(Long afterId, Pageable pageable);
+
+    // 按 id 补齐其它库的版本信息
+    List<RowVersion> findVersionsByIdIn(Collection<Long> ids);
+}
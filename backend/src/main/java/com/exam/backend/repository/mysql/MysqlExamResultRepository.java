@@ -1,18 +1,37 @@
 package com.exam.backend.repository.mysql;
 
+import com.exam.backend.controller.dto.ExamResultDTO;
 import com.exam.backend.entity.ExamResult;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.exam.backend.repository.SyncSourceRepository;
+import com.exam.backend.service.sync.RowVersion;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import java.time.LocalDateTime;
 
 @Repository
-public interface MysqlExamResultRepository extends JpaRepository<ExamResult, Long> {
+public interface MysqlExamResultRepository extends SyncSourceRepository<ExamResult> {
     // 查某个学生的所有成绩
     List<ExamResult> findByStudentId(Long studentId);
+
+    // 交卷缓冲重放查重：同一学生、同一试卷、同一交卷时间的成绩是否已写入
+    boolean existsByStudentIdAndPaperIdAndCreateTime(Long studentId, Long paperId, LocalDateTime createTime);
+
+    // === 成绩列表 / 答卷详情投影 (一条 SQL，不加载 User / Paper 实体，见 ExamResultDTO) ===
+    @Query("SELECT new com.exam.backend.controller.dto.ExamResultDTO(r.id, r.score, r.createTime, p.id, p.paperName, p.totalScore, s.id, s.username, s.realName) FROM ExamResult r LEFT JOIN r.paper p LEFT JOIN r.student s WHERE s.id = :studentId ORDER BY r.id ASC")
+    List<ExamResultDTO> findViewsByStudentId(@Param("studentId") Long studentId);
+
+    @Query("SELECT new com.exam.backend.controller.dto.ExamResultDTO(r.id, r.score, r.createTime, p.id, p.paperName, p.totalScore, s.id, s.username, s.realName) FROM ExamResult r LEFT JOIN r.paper p LEFT JOIN r.student s ORDER BY r.id ASC")
+    List<ExamResultDTO> findAllViews();
+
+    @Query("SELECT new com.exam.backend.controller.dto.ExamResultDTO(r.id, r.score, r.createTime, p.id, p.paperName, p.totalScore, s.id, s.username, s.realName, r.studentAnswers) FROM ExamResult r LEFT JOIN r.paper p LEFT JOIN r.student s WHERE r.id = :id")
+    Optional<ExamResultDTO> findDetailById(@Param("id") Long id);
     void deleteByStudentId(Long studentId);
 
     // 复杂 SQL 示例：
@@ -83,4 +102,28 @@ public interface MysqlExamResultRepository extends JpaRepository<ExamResult, Lon
             @Param("studentName") String studentName,
             @Param("paperName") String paperName
     );
+
+    // === 同步投影查询 (只取 id / update_time / fingerprint，见 SyncSourceRepository) ===
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(e.id, e.updateTime, e.fingerprint, e.syncVersion) FROM ExamResult e WHERE e.updateTime > :since OR (e.updateTime = :since AND e.id > :lastId) ORDER BY e.updateTime ASC, e.id ASC")
+    List<RowVersion> findChangedSince(@Param("since") LocalDateTime since, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(e.id, e.updateTime, e.fingerprint, e.syncVersion) FROM ExamResult e WHERE e.id > :afterId ORDER BY e.id ASC")
+    List<RowVersion> findVersionsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(e.id, e.updateTime, e.fingerprint, e.syncVersion) FROM ExamResult e WHERE e.id IN :ids")
+    List<RowVersion> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 定向同步：成绩依赖的学生与试卷 (student_id, paper_id)
+    @Query("SELECT e.student.id, e.paper.id FROM ExamResult e WHERE e.id IN :ids")
+    List<Object[]> findRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 删除学生 / 试卷时被级联删除的成绩 (各记一条墓碑)
+    @Query("SELECT e.id FROM ExamResult e WHERE e.student.id IN :studentIds")
+    List<Long> findIdsByStudentIdIn(@Param("studentIds") Collection<Long> studentIds);
+
+    @Query("SELECT e.id FROM ExamResult e WHERE e.paper.id IN :paperIds")
+    List<Long> findIdsByPaperIdIn(@Param("paperIds") Collection<Long> paperIds);
 }
@@ -2,8 +2,11 @@ package com.exam.backend.repository.mysql;
 
 import com.exam.backend.entity.PaperQuestion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -15,4 +18,20 @@ public interface MysqlPaperQuestionRepository extends JpaRepository<PaperQuestio
 
     // 查某张卷子的所有题目
     List<PaperQuestion> findByPaperId(Long paperId);
+
+    // 试卷视图：题目关联连同试题一次取出 (避免逐题加载 Question)
+    @Query("SELECT pq FROM PaperQuestion pq JOIN FETCH pq.question WHERE pq.paper.id = :paperId")
+    List<PaperQuestion> findWithQuestionByPaperId(@Param("paperId") Long paperId);
+
+    // 同步：一次取出一批试卷的题目关联 (只取 id 与分值，不加载 Paper / Question 实体)
+    @Query("SELECT pq.paper.id, pq.question.id, pq.score FROM PaperQuestion pq WHERE pq.paper.id IN :paperIds")
+    List<Object[]> findLinksByPaperIdIn(@Param("paperIds") Collection<Long> paperIds);
+
+    // 判分方案：试卷每道题的 (question_id, answer, score)，不读取题干等大字段
+    @Query("SELECT pq.question.id, pq.question.answer, pq.score FROM PaperQuestion pq WHERE pq.paper.id = :paperId")
+    List<Object[]> findAnswerKeyByPaperId(@Param("paperId") Long paperId);
+
+    // 答卷详情：每道题的 (question_id, 题干, 题型, 答案, 分值)，一条 SQL 取出
+    @Query("SELECT q.id, q.content, q.type, q.answer, pq.score FROM PaperQuestion pq JOIN pq.question q WHERE pq.paper.id = :paperId")
+    List<Object[]> findReviewByPaperId(@Param("paperId") Long paperId);
 }
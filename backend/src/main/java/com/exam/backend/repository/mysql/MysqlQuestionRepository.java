@@ -1,16 +1,20 @@
 package com.exam.backend.repository.mysql;
 
 import com.exam.backend.entity.Question;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.exam.backend.repository.SyncSourceRepository;
+import com.exam.backend.service.sync.RowVersion;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import org.springframework.data.domain.Pageable;
+import java.time.LocalDateTime;
 
 @Repository
-public interface MysqlQuestionRepository extends JpaRepository<Question, Long> {
+public interface MysqlQuestionRepository extends SyncSourceRepository<Question> {
     // 可以在这里加：根据难度查询、根据类型查询等
     List<Question> findByType(String type);
 
@@ -52,4 +56,17 @@ public interface MysqlQuestionRepository extends JpaRepository<Question, Long> {
             @Param("difficulty") String difficulty,
             @Param("kp") String knowledgePoint
     );
+
+    // === 同步投影查询 (只取 id / update_time / fingerprint，见 SyncSourceRepository) ===
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(q.id, q.updateTime, q.fingerprint, q.syncVersion) FROM Question q WHERE q.updateTime > :since OR (q.updateTime = :since AND q.id > :lastId) ORDER BY q.updateTime ASC, q.id ASC")
+    List<RowVersion> findChangedSince(@Param("since") LocalDateTime since, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(q.id, q.updateTime, q.fingerprint, q.syncVersion) FROM Question q WHERE q.id > :afterId ORDER BY q.id ASC")
+    List<RowVersion> findVersionsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(q.id, q.updateTime, q.fingerprint, q.syncVersion) FROM Question q WHERE q.id IN :ids")
+    List<RowVersion> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
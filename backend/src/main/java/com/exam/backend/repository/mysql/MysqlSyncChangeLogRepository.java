@@ -0,0 +1,8 @@
+package com.exam.backend.repository.mysql;
+
+import com.exam.backend.repository.SyncChangeLogRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MysqlSyncChangeLogRepository extends SyncChangeLogRepository {
+}
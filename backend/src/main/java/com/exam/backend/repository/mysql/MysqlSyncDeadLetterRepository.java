@@ -0,0 +1,23 @@
+package com.exam.backend.repository.mysql;
+
+import com.exam.backend.entity.SyncDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MysqlSyncDeadLetterRepository extends JpaRepository<SyncDeadLetter, Long> {
+    // 同步死信统一存放在 MySQL (与 sys_sync_log 一样)
+    Optional<SyncDeadLetter> findByTableNameAndRowIdAndTargetDb(String tableName, Long rowId, String targetDb);
+
+    List<SyncDeadLetter> findByTableNameAndTargetDbAndRowIdIn(String tableName, String targetDb, Collection<Long> rowIds);
+
+    // 到期需要自动重试的死信
+    List<SyncDeadLetter> findByNextRetryAtLessThanEqual(LocalDateTime time);
+
+    List<SyncDeadLetter> findAllByOrderByLastFailedAtDesc();
+}
@@ -0,0 +1,14 @@
+package com.exam.backend.repository.mysql;
+
+import com.exam.backend.entity.SyncTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MysqlSyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+    // 删除墓碑统一存放在 MySQL (与 sys_sync_log 一样)
+    List<SyncTombstone> findByTableNameAndRowIdIn(String tableName, Collection<Long> rowIds);
+}
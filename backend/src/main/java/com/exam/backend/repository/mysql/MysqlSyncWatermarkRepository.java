@@ -0,0 +1,13 @@
+package com.exam.backend.repository.mysql;
+
+import com.exam.backend.entity.SyncWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MysqlSyncWatermarkRepository extends JpaRepository<SyncWatermark, Long> {
+    // 同步水位线统一存放在 MySQL (与 sys_sync_log 一样)
+    Optional<SyncWatermark> findByTableNameAndDbName(String tableName, String dbName);
+}
@@ -1,11 +1,37 @@
 package com.exam.backend.repository.oracle;
 
 import com.exam.backend.entity.ExamResult;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.exam.backend.repository.SyncSourceRepository;
+import com.exam.backend.service.sync.RowVersion;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
 
 @Repository
-public interface OracleExamResultRepository extends JpaRepository<ExamResult, Long> {
+public interface OracleExamResultRepository extends SyncSourceRepository<ExamResult> {
     List<ExamResult> findByStudentId(Long studentId);
-}
\ No newline at end of file
+
+    // 交卷缓冲重放查重：同一学生、同一试卷、同一交卷时间的成绩是否已写入
+    boolean existsByStudentIdAndPaperIdAndCreateTime(Long studentId, Long paperId, LocalDateTime createTime);
+
+    // === 同步投影查询 (只取 id / update_time / fingerprint，见 SyncSourceRepository) ===
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(e.id, e.updateTime, e.fingerprint, e.syncVersion) FROM ExamResult e WHERE e.updateTime > :since OR (e.updateTime = :since AND e.id > :lastId) ORDER BY e.updateTime ASC, e.id ASC")
+    List<RowVersion> findChangedSince(@Param("since") LocalDateTime since, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(e.id, e.updateTime, e.fingerprint, e.syncVersion) FROM ExamResult e WHERE e.id > :afterId ORDER BY e.id ASC")
+    List<RowVersion> findVersionsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(e.id, e.updateTime, e.fingerprint, e.syncVersion) FROM ExamResult e WHERE e.id IN :ids")
+    List<RowVersion> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 定向同步：成绩依赖的学生与试卷 (student_id, paper_id)
+    @Query("SELECT e.student.id, e.paper.id FROM ExamResult e WHERE e.id IN :ids")
+    List<Object[]> findRefsByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,8 @@
+package com.exam.backend.repository.oracle;
+
+import com.exam.backend.repository.SyncChangeLogRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OracleSyncChangeLogRepository extends SyncChangeLogRepository {
+}
@@ -2,10 +2,17 @@ package com.exam.backend.repository.sqlserver;
 
 import com.exam.backend.entity.PaperQuestion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface SqlServerPaperQuestionRepository extends JpaRepository<PaperQuestion, PaperQuestion.PaperQuestionId> {
     List<PaperQuestion> findByPaperId(Long paperId);
-}
\ No newline at end of file
+
+    // 同步：一次取出一批试卷的题目关联 (只取 id 与分值，不加载 Paper / Question 实体)
+    @Query("SELECT pq.paper.id, pq.question.id, pq.score FROM PaperQuestion pq WHERE pq.paper.id IN :paperIds")
+    List<Object[]> findLinksByPaperIdIn(@Param("paperIds") Collection<Long> paperIds);
+}
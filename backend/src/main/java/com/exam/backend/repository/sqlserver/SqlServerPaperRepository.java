@@ -1,11 +1,37 @@
 package com.exam.backend.repository.sqlserver;
 
 import com.exam.backend.entity.Paper;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.exam.backend.repository.SyncSourceRepository;
+import com.exam.backend.service.sync.RowVersion;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
 
 @Repository
-public interface SqlServerPaperRepository extends JpaRepository<Paper, Long> {
+public interface SqlServerPaperRepository extends SyncSourceRepository<Paper> {
     List<Paper> findByTeacherId(Long teacherId);
-}
\ No newline at end of file
+
+    // === 同步投影查询 (只取 id / update_time / fingerprint，见 SyncSourceRepository) ===
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(p.id, p.updateTime, p.fingerprint, p.syncVersion) FROM Paper p WHERE p.updateTime > :since OR (p.updateTime = :since AND p.id > :lastId) ORDER BY p.updateTime ASC, p.id ASC")
+    List<RowVersion> findChangedSince(@Param("since") LocalDateTime since, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(p.id, p.updateTime, p.fingerprint, p.syncVersion) FROM Paper p WHERE p.id > :afterId ORDER BY p.id ASC")
+    List<RowVersion> findVersionsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(p.id, p.updateTime, p.fingerprint, p.syncVersion) FROM Paper p WHERE p.id IN :ids")
+    List<RowVersion> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 冲突检测：校验和不一致的 id 区间下钻取行
+    List<Paper> findByIdBetween(Long fromId, Long toId);
+
+    // 定向同步：试卷依赖的教师
+    @Query("SELECT p.teacher.id FROM Paper p WHERE p.id IN :ids")
+    List<Long> findTeacherIdsByIdIn(@Param("ids") Collection<Long> ids);
+}
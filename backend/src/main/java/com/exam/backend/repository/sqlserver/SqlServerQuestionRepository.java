@@ -1,9 +1,29 @@
 package com.exam.backend.repository.sqlserver;
 
 import com.exam.backend.entity.Question;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.exam.backend.repository.SyncSourceRepository;
+import com.exam.backend.service.sync.RowVersion;
 import org.springframework.stereotype.Repository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface SqlServerQuestionRepository extends JpaRepository<Question, Long> {
+public interface SqlServerQuestionRepository extends SyncSourceRepository<Question> {
+
+    // === 同步投影查询 (只取 id / update_time / fingerprint，见 SyncSourceRepository) ===
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(q.id, q.updateTime, q.fingerprint, q.syncVersion) FROM Question q WHERE q.updateTime > :since OR (q.updateTime = :since AND q.id > :lastId) ORDER BY q.updateTime ASC, q.id ASC")
+    List<RowVersion> findChangedSince(@Param("since") LocalDateTime since, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(q.id, q.updateTime, q.fingerprint, q.syncVersion) FROM Question q WHERE q.id > :afterId ORDER BY q.id ASC")
+    List<RowVersion> findVersionsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(q.id, q.updateTime, q.fingerprint, q.syncVersion) FROM Question q WHERE q.id IN :ids")
+    List<RowVersion> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.exam.backend.repository.sqlserver;
+
+import com.exam.backend.repository.SyncChangeLogRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SqlServerSyncChangeLogRepository extends SyncChangeLogRepository {
+}
@@ -1,11 +1,34 @@
 package com.exam.backend.repository.sqlserver;
 
 import com.exam.backend.entity.User;
-import org.springframework.data.jpa.repository.JpaRepository;
+import com.exam.backend.repository.SyncSourceRepository;
+import com.exam.backend.service.sync.RowVersion;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface SqlServerUserRepository extends JpaRepository<User, Long> {
+public interface SqlServerUserRepository extends SyncSourceRepository<User> {
     Optional<User> findByUsername(String username);
+
+    // === 同步投影查询 (只取 id / update_time / fingerprint，见 SyncSourceRepository) ===
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(u.id, u.updateTime, u.fingerprint, u.syncVersion) FROM User u WHERE u.updateTime > :since OR (u.updateTime = :since AND u.id > :lastId) ORDER BY u.updateTime ASC, u.id ASC")
+    List<RowVersion> findChangedSince(@Param("since") LocalDateTime since, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(u.id, u.updateTime, u.fingerprint, u.syncVersion) FROM User u WHERE u.id > :afterId ORDER BY u.id ASC")
+    List<RowVersion> findVersionsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Override
+    @Query("SELECT new com.exam.backend.service.sync.RowVersion(u.id, u.updateTime, u.fingerprint, u.syncVersion) FROM User u WHERE u.id IN :ids")
+    List<RowVersion> findVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 冲突检测：校验和不一致的 id 区间下钻取行
+    List<User> findByIdBetween(Long fromId, Long toId);
 }
\ No newline at end of file
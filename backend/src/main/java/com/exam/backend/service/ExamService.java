@@ -1,11 +1,12 @@
 package com.exam.backend.service;
 
-import com.exam.backend.common.DbSwitchContext;
+import com.exam.backend.controller.dto.ExamResultDTO;
 import com.exam.backend.controller.dto.ExamSubmitRequest;
 import com.exam.backend.entity.*;
 import com.exam.backend.repository.mysql.*;
-import com.exam.backend.repository.oracle.*;
-import com.exam.backend.repository.sqlserver.*;
+import com.exam.backend.service.grading.GradingPlan;
+import com.exam.backend.service.grading.GradingPlanCache;
+import com.exam.backend.service.submit.SubmissionBuffer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -13,6 +14,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -26,14 +28,9 @@ public class ExamService {
     @Autowired private MysqlExamResultRepository mysqlExamResultRepo;
     @Autowired private MysqlPaperQuestionRepository mysqlPaperQuestionRepo;
 
-    // === Oracle Repos ===
-    @Autowired private OracleExamResultRepository oracleExamResultRepo;
-
-    // === SQL Server Repos ===
-    @Autowired private SqlServerExamResultRepository sqlServerExamResultRepo;
-
-    @Autowired private PaperService paperService;
     @Autowired private SyncService syncService;
+    @Autowired private SubmissionBuffer submissions;
+    @Autowired private GradingPlanCache gradingPlans;
 
     // 获取试卷详情 (读 MySQL)
     public Paper getPaperDetail(Long paperId) {
@@ -42,29 +39,19 @@ public class ExamService {
     }
 
     // === 核心改造：提交考试 (支持主库切换) ===
-    public ExamResult submitExam(ExamSubmitRequest request) {
-        // 1. 准备数据 (读 MySQL)
-        Paper paper = mysqlPaperRepo.findById(request.getPaperId()).orElseThrow(() -> new RuntimeException("试卷不存在"));
+    public ExamResultDTO submitExam(ExamSubmitRequest request) {
+        // 1. 准备数据：判分方案按试卷缓存 (见 GradingPlanCache)，只有学生需要查库
+        GradingPlan plan = gradingPlans.get(request.getPaperId());
         User student = mysqlUserRepo.findById(request.getStudentId()).orElseThrow(() -> new RuntimeException("学生不存在"));
-        List<PaperQuestion> paperQuestions = mysqlPaperQuestionRepo.findByPaperId(request.getPaperId());
 
         // 2. 判分逻辑
-        BigDecimal totalScore = BigDecimal.ZERO;
         Map<Long, String> studentAnswers = request.getAnswers();
-
-        for (PaperQuestion pq : paperQuestions) {
-            Question q = pq.getQuestion();
-            String myAnswer = studentAnswers.get(q.getId());
-            if (myAnswer != null && myAnswer.equalsIgnoreCase(q.getAnswer())) {
-                BigDecimal scoreToAdd = new BigDecimal(pq.getScore());
-                totalScore = totalScore.add(scoreToAdd);
-            }
-        }
+        BigDecimal totalScore = BigDecimal.valueOf(plan.grade(studentAnswers));
 
         // 3. 构建结果对象
         ExamResult result = new ExamResult();
         result.setStudent(student);
-        result.setPaper(paper);
+        result.setPaper(plan.paperRef());
         result.setScore(totalScore);
         if (result.getCreateTime() == null) result.setCreateTime(LocalDateTime.now());
         result.setUpdateTime(LocalDateTime.now());
@@ -78,49 +65,28 @@ public class ExamService {
             e.printStackTrace();
         }
 
-        // 4. 路由逻辑
-        String currentDb = DbSwitchContext.getCurrentMasterDb();
-        ExamResult savedResult = null;
-        System.out.println(">>> [Exam业务] 正在向主库 [" + currentDb + "] 提交考卷得分: " + totalScore);
-
-        switch (currentDb) {
-            case "Oracle":
-                savedResult = oracleExamResultRepo.save(result);
-                syncService.syncExamResultsBidirectional(); // 立即同步
-                break;
-
-            case "SQLServer":
-                savedResult = sqlServerExamResultRepo.save(result);
-                syncService.syncExamResultsBidirectional(); // 立即同步
-                break;
-
-            case "MySQL":
-            default:
-                savedResult = mysqlExamResultRepo.save(result);
-                syncService.syncExamResultsBidirectional();
-                break;
-        }
-
-        return savedResult;
+        // 4. 交卷缓冲：日志落盘即返回，成绩由后台线程成批写入当前主库并登记复制 (见 SubmissionBuffer)
+        submissions.submit(result);
+        // 返回精简对象 (不含学生密码等字段)；成绩 id 在写入主库后才生成
+        Paper paper = result.getPaper();
+        return new ExamResultDTO(null, totalScore, result.getCreateTime(), paper.getId(), paper.getPaperName(), paper.getTotalScore(),
+                student.getId(), student.getUsername(), student.getRealName());
     }
 
-    // 获取某学生的成绩列表
-    public List<ExamResult> getStudentResults(Long studentId) {
-        return mysqlExamResultRepo.findByStudentId(studentId);
+    // 获取某学生的成绩列表 (投影查询，一条 SQL，不含学生密码等字段)
+    public List<ExamResultDTO> getStudentResults(Long studentId) {
+        return mysqlExamResultRepo.findViewsByStudentId(studentId);
     }
 
-    public List<ExamResult> findAllResults() {
-        return mysqlExamResultRepo.findAll();
+    public List<ExamResultDTO> findAllResults() {
+        return mysqlExamResultRepo.findAllViews();
     }
 
-    // 获取考试结果详情
+    // 获取考试结果详情 (两条 SQL：成绩连同试卷 / 学生，试卷的全部题目)
     public Map<String, Object> getExamResultDetail(Long resultId) {
-        ExamResult result = mysqlExamResultRepo.findById(resultId)
+        ExamResultDTO result = mysqlExamResultRepo.findDetailById(resultId)
                 .orElseThrow(() -> new RuntimeException("考试记录不存在"));
 
-        Map<String, Object> paperDetail = paperService.getPaperDetail(result.getPaper().getId());
-        List<Map<String, Object>> questions = (List<Map<String, Object>>) paperDetail.get("questionList");
-
         Map<Long, String> studentAnswers = new HashMap<>();
         try {
             ObjectMapper mapper = new ObjectMapper();
@@ -131,20 +97,29 @@ public class ExamService {
             e.printStackTrace();
         }
 
-        for (Map<String, Object> qItem : questions) {
-            Question q = (Question) qItem.get("question");
-            String myAns = studentAnswers.get(q.getId());
-            if (myAns == null) {
-                myAns = studentAnswers.getOrDefault(String.valueOf(q.getId()), "");
-            }
+        List<Map<String, Object>> questions = new ArrayList<>();
+        List<Object[]> rows = result.getPaper() == null ? List.of() : mysqlPaperQuestionRepo.findReviewByPaperId(result.getPaper().getId());
+        for (Object[] row : rows) {
+            Long questionId = (Long) row[0];
+            String answer = (String) row[3];
+            Map<String, Object> question = new HashMap<>();
+            question.put("id", questionId);
+            question.put("content", row[1]);
+            question.put("type", row[2]);
+            question.put("answer", answer);
+
+            String myAns = studentAnswers.getOrDefault(questionId, "");
+            Map<String, Object> qItem = new HashMap<>();
+            qItem.put("question", question);
+            qItem.put("score", row[4]);
             qItem.put("studentAnswer", myAns);
-            boolean isCorrect = myAns != null && myAns.equalsIgnoreCase(q.getAnswer());
-            qItem.put("isCorrect", isCorrect);
+            qItem.put("isCorrect", myAns.equalsIgnoreCase(answer));
+            questions.add(qItem);
         }
 
         Map<String, Object> map = new HashMap<>();
         map.put("examResult", result);
-        map.put("paperInfo", paperDetail.get("paperInfo"));
+        map.put("paperInfo", result.getPaper());
         map.put("questions", questions);
         return map;
     }
@@ -6,6 +6,10 @@ import com.exam.backend.entity.*;
 import com.exam.backend.repository.mysql.*;
 import com.exam.backend.repository.oracle.*;
 import com.exam.backend.repository.sqlserver.*;
+import com.exam.backend.service.grading.GradingPlanCache;
+import com.exam.backend.service.sync.WriteBehindQueue;
+import com.exam.backend.service.view.PaperSnapshotStore;
+import com.exam.backend.service.view.PaperViewCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -35,20 +39,26 @@ public class PaperService {
     @Autowired private SqlServerUserRepository sqlServerUserRepo;
 
     @Autowired private SyncService syncService;
+    @Autowired private WriteBehindQueue writeBehind;
+    @Autowired private GradingPlanCache gradingPlans;
+    @Autowired private PaperViewCache paperViews;
+    @Autowired private PaperSnapshotStore paperSnapshots;
 
     public List<Paper> findAll() {
         return mysqlPaperRepo.findAll();
     }
 
+    // 判分方案、试卷视图与快照由 PaperCacheInvalidator 在 MySQL 删除提交后失效
     public void delete(Long id) {
         syncService.deletePaperGlobally(id);
+        writeBehind.enqueue("paper", id);
     }
 
     public Map<String, Object> getPaperDetail(Long paperId) {
         Paper paper = mysqlPaperRepo.findById(paperId)
                 .orElseThrow(() -> new RuntimeException("试卷不存在"));
 
-        List<PaperQuestion> pqs = mysqlPaperQuestionRepo.findByPaperId(paperId);
+        List<PaperQuestion> pqs = mysqlPaperQuestionRepo.findWithQuestionByPaperId(paperId);
 
         List<Map<String, Object>> questionList = pqs.stream().map(pq -> {
             Question q = pq.getQuestion();
@@ -109,6 +119,7 @@ public class PaperService {
         paper.setUpdateTime(LocalDateTime.now());
 
         // 5. 路由写入逻辑
+        List<PaperQuestion> links = new ArrayList<>();
         switch (currentDb) {
             case "Oracle":
                 paper = oraclePaperRepo.save(paper);
@@ -118,8 +129,8 @@ public class PaperService {
                     pq.setQuestion(q);
                     pq.setScore(scorePerQuestion);
                     oraclePaperQuestionRepo.save(pq);
+                    links.add(pq);
                 }
-                syncService.syncPapersBidirectional();
                 break;
 
             case "SQLServer":
@@ -130,8 +141,8 @@ public class PaperService {
                     pq.setQuestion(q);
                     pq.setScore(scorePerQuestion);
                     sqlServerPaperQuestionRepo.save(pq);
+                    links.add(pq);
                 }
-                syncService.syncPapersBidirectional();
                 break;
 
             case "MySQL":
@@ -143,10 +154,18 @@ public class PaperService {
                     pq.setQuestion(q);
                     pq.setScore(scorePerQuestion);
                     mysqlPaperQuestionRepo.save(pq);
+                    links.add(pq);
                 }
-                syncService.syncPapersBidirectional();
                 break;
         }
+
+        // 6. 登记复制任务 (试卷连同题目关联)，由后台线程同步到其它库
+        writeBehind.enqueue("paper", paper.getId());
+        gradingPlans.invalidatePapers(List.of(paper.getId()));
+        paperViews.invalidatePapers(List.of(paper.getId()));
+
+        // 7. 预渲染学生端试卷快照 (不含答案)，考试页直接读取快照
+        paperSnapshots.publish(paper, links);
     }
 
     private User getTeacherFromCurrentDb(String currentDb, Long teacherId) {
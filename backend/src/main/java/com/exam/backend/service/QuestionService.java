@@ -5,6 +5,10 @@ import com.exam.backend.entity.Question;
 import com.exam.backend.repository.mysql.MysqlQuestionRepository;
 import com.exam.backend.repository.oracle.OracleQuestionRepository;
 import com.exam.backend.repository.sqlserver.SqlServerQuestionRepository;
+import com.exam.backend.service.grading.GradingPlanCache;
+import com.exam.backend.service.sync.WriteBehindQueue;
+import com.exam.backend.service.view.PaperSnapshotStore;
+import com.exam.backend.service.view.PaperViewCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -26,6 +30,18 @@ public class QuestionService {
     @Autowired
     private SyncService syncService; // 注入同步服务
 
+    @Autowired
+    private WriteBehindQueue writeBehind; // 写后复制队列
+
+    @Autowired
+    private GradingPlanCache gradingPlans; // 判分方案缓存 (试题修改后失效)
+
+    @Autowired
+    private PaperViewCache paperViews; // 试卷视图缓存 (试题修改后失效)
+
+    @Autowired
+    private PaperSnapshotStore paperSnapshots; // 学生端试卷快照 (试题修改后重新渲染)
+
     // 获取所有试题 (默认走 MySQL 读)
     public List<Question> findAll() {
         return mysqlQuestionRepository.findAll();
@@ -46,26 +62,25 @@ public class QuestionService {
             case "Oracle":
                 // === 模式 A: 写 Oracle -> 同步回 MySQL ===
                 result = oracleQuestionRepository.save(question);
-                // 立即触发同步，把 Oracle 的新数据拉回 MySQL 以便前端显示
-                syncService.syncQuestionsBidirectional();
                 break;
 
             case "SQLServer":
                 // === 模式 B: 写 SQL Server -> 同步回 MySQL ===
                 result = sqlServerQuestionRepository.save(question);
-                // 立即触发同步
-                syncService.syncQuestionsBidirectional();
                 break;
 
             case "MySQL":
             default:
                 // === 模式 C: 写 MySQL (默认) ===
-                // 这种情况下，AOP 切面或定时任务会负责后续同步
                 result = mysqlQuestionRepository.save(question);
-                syncService.syncQuestionsBidirectional();
                 break;
         }
 
+        // 3. 登记复制任务，由后台线程同步到其它库 (其它库稍后可见)
+        writeBehind.enqueue("question", result.getId());
+        gradingPlans.invalidateQuestions(List.of(result.getId()));
+        paperViews.invalidateQuestions(List.of(result.getId()));
+        paperSnapshots.refreshQuestions(List.of(result.getId()));
         return result;
     }
 
@@ -73,7 +88,8 @@ public class QuestionService {
     public void delete(Long id) {
         // 旧代码：mysqlQuestionRepository.deleteById(id);
 
-        // 【修改】调用三库全局删除，防止数据复活
+        // 【修改】调用三库全局删除，防止数据复活 (MySQL 立即删除并记录墓碑，其它库由后台同步删除)
         syncService.deleteQuestionGlobally(id);
+        writeBehind.enqueue("question", id); // 包含该题的试卷缓存由 PaperCacheInvalidator 在删除提交后失效
     }
 }
\ No newline at end of file
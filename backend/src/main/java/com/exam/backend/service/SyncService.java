@@ -1,35 +1,61 @@
 package com.exam.backend.service;
 
+import com.exam.backend.common.HybridClock;
 import com.exam.backend.controller.dto.ConflictDTO;
 import com.exam.backend.entity.*;
 import com.exam.backend.repository.mysql.*;
 import com.exam.backend.repository.oracle.*;
 import com.exam.backend.repository.sqlserver.*;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
+import com.exam.backend.repository.SyncSourceRepository;
+import com.exam.backend.service.grading.GradingPlanCache;
+import com.exam.backend.service.sync.ApplyResult;
+import com.exam.backend.service.sync.ChangeSet;
+import com.exam.backend.service.sync.ChangeSource;
+import com.exam.backend.service.sync.ChecksumTree;
+import com.exam.backend.service.sync.MergedRow;
+import com.exam.backend.service.sync.RowVersion;
+import com.exam.backend.service.sync.SyncApplier;
+import com.exam.backend.service.sync.SyncDialect;
+import com.exam.backend.service.sync.SyncFanOut;
+import com.exam.backend.service.sync.SyncPipeline;
+import com.exam.backend.service.sync.SyncTableSpec;
+import com.exam.backend.service.sync.TargetHealth;
+import com.exam.backend.service.sync.TombstoneStore;
+import com.exam.backend.service.view.PaperSnapshotStore;
+import com.exam.backend.service.view.PaperViewCache;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
-@EnableScheduling
 public class SyncService {
 
     @Autowired @Lazy private SyncService self; // 解决事务自调用失效问题
 
     @Autowired private MysqlSyncLogRepository syncLogRepo;
+    @Autowired private MysqlSyncWatermarkRepository watermarkRepo;
+
+    // 增量同步每页拉取的行数 (同时也是按 id 补齐时 IN 列表的大小)
+    @Value("${sync.incremental.page-size:500}") private int incrementalPageSize;
+
+    // === 变更来源 (每个库按配置选择一种，见 ChangeSource) ===
+    @Autowired private List<ChangeSource> changeSources;
+    @Value("${sync.change-source.mysql:update-time}") private String mysqlChangeSource;
+    @Value("${sync.change-source.oracle:update-time}") private String oracleChangeSource;
+    @Value("${sync.change-source.sqlserver:update-time}") private String sqlServerChangeSource;
+    @Value("${sync.change-source.require-delete-capture:false}") private boolean requireDeleteCapture;
+    private final Map<SyncDialect, ChangeSource> sourceByDb = new EnumMap<>(SyncDialect.class);
 
     // === 邮件组件 ===
     @Autowired(required = false) private JavaMailSender mailSender;
@@ -56,10 +82,16 @@ public class SyncService {
     @Autowired private SqlServerPaperQuestionRepository sqlServerPaperQuestionRepo;
     @Autowired private SqlServerExamResultRepository sqlServerExamResultRepo;
 
-    // === Entity Managers (用于原生 SQL) ===
-    @PersistenceContext(unitName = "oraclePersistenceUnit") private EntityManager oracleEm;
-    @PersistenceContext(unitName = "sqlServerPersistenceUnit") private EntityManager sqlServerEm;
-    @PersistenceContext private EntityManager mysqlEm;
+    // === 原生 upsert 写入器 ===
+    @Autowired private SyncApplier applier;
+    @Autowired private SyncFanOut fanOut;
+    @Autowired private SyncPipeline pipeline;
+    @Autowired private ChecksumTree checksumTree;
+    @Autowired private TargetHealth health;
+    @Autowired private TombstoneStore tombstones;
+    @Autowired private GradingPlanCache gradingPlans;
+    @Autowired private PaperViewCache paperViews;
+    @Autowired private PaperSnapshotStore paperSnapshots;
 
 
     // 【新增】记录上次报警邮件发送的时间戳
@@ -67,11 +99,38 @@ public class SyncService {
     // 【新增】设置最小报警间隔 (毫秒)，例如 60秒。防止邮件轰炸。
     private static final long ALERT_INTERVAL = 60 * 1000;
 
+    // 启动时解析各库的变更来源，配置错误直接启动失败
+    @PostConstruct
+    public void initChangeSources() {
+        sourceByDb.put(SyncDialect.MYSQL, resolveChangeSource(SyncDialect.MYSQL, mysqlChangeSource));
+        sourceByDb.put(SyncDialect.ORACLE, resolveChangeSource(SyncDialect.ORACLE, oracleChangeSource));
+        sourceByDb.put(SyncDialect.SQLSERVER, resolveChangeSource(SyncDialect.SQLSERVER, sqlServerChangeSource));
+        System.out.println(">>> [同步] 变更来源: " + sourceByDb.entrySet().stream()
+                .map(e -> e.getKey() + "=" + e.getValue().name()).collect(Collectors.joining(", ")));
+
+        // update-time / rowscn 只能看到仍然存在的行：直接在该库执行的 DELETE 不会产生墓碑，被删的行会从其它库同步回来
+        // (经由应用的业务删除不受影响，删除时已记录墓碑)
+        List<String> blind = sourceByDb.entrySet().stream()
+                .filter(e -> !e.getValue().capturesDeletes()).map(e -> e.getKey() + "=" + e.getValue().name()).toList();
+        if (!blind.isEmpty()) {
+            String message = String.join(", ", blind) + " 的变更来源捕获不到直接在库上执行的删除，这些行会被同步回来；"
+                    + "需要传播直接删除时改用 outbox (SQL Server 也可用 change-tracking)";
+            if (requireDeleteCapture) throw new IllegalStateException(message + " (sync.change-source.require-delete-capture=true)");
+            System.err.println(">>> [同步] 警告: " + message);
+        }
+    }
+
+    private ChangeSource resolveChangeSource(SyncDialect db, String name) {
+        for (ChangeSource source : changeSources) {
+            if (source.name().equals(name.trim()) && source.supports(db)) return source;
+        }
+        throw new IllegalStateException("sync.change-source." + db.name().toLowerCase() + " 不支持: " + name);
+    }
+
 
     // =========================================================
-    // 1. [高频] 冲突监控看门狗 (只报警，不修复) - 每 5 秒执行
+    // 1. [高频] 冲突监控看门狗 (只报警，不修复) - 默认每 5 秒执行 (SyncScheduler 独立线程)
     // =========================================================
-    @Scheduled(cron = "0/5 * * * * ?")
     public void monitorConflicts() {
         try {
             // 1. 快速检测冲突 (数据库查询很快，可以高频做)
@@ -100,79 +159,138 @@ public class SyncService {
     }
 
     // =========================================================
-    // 2. [低频] 全量数据同步兜底 (负责修复) - 每 1 分钟执行
+    // 2. 按表增量同步 - 由 SyncScheduler 按表调度，间隔随变更量自适应
     // =========================================================
-    // 【修正】Cron: 0 * * * * ? 代表每分钟的第0秒执行 (即每分钟一次)
-    @Scheduled(cron = "0 * * * * ?")
-    public void scheduledSync() {
+    // 只在有变更或失败时写 sys_sync_log，避免高频空跑刷屏；返回变更行数
+    public int scheduledTableSync(String table) {
+        LocalDateTime start = LocalDateTime.now();
+        try {
+            int changed = self.syncIncremental(table);
+            if (changed > 0) saveSyncLog(start, "SUCCESS", "增量同步 " + table + " 完成，变更 " + changed + " 行");
+            return changed;
+        } catch (RuntimeException e) {
+            saveSyncLog(start, "FAILED", "增量同步 " + table + " 失败: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private void saveSyncLog(LocalDateTime start, String status, String message) {
+        SyncLog log = new SyncLog();
+        log.setStartTime(start);
+        log.setEndTime(LocalDateTime.now());
+        log.setStatus(status);
+        log.setMessage(message.length() > 3900 ? message.substring(0, 3900) : message);
+        syncLogRepo.save(log);
+    }
+
+    // =========================================================
+    // 2.1 [慢周期] 全量对账兜底 (负责修复增量漏掉的数据) - 默认每小时一次 (SyncScheduler 按 cron 调度)
+    // =========================================================
+    public void scheduledFullSync() {
+        runWithSyncLog("全量对账", () -> self.syncFull());
+    }
+
+    // 执行一次同步任务并写入 sys_sync_log；失败记录后继续抛出，调度器 / 手动触发据此报告失败
+    private void runWithSyncLog(String label, Runnable task) {
         SyncLog log = new SyncLog();
         log.setStartTime(LocalDateTime.now());
         log.setStatus("RUNNING");
-        log.setMessage("全量自动修复开始...");
+        log.setMessage(label + "开始...");
         log = syncLogRepo.save(log);
 
         try {
-            System.out.println(">>>  开始全量数据同步...");
+            System.out.println(">>>  开始" + label + "...");
 
-            // 执行所有业务表的双向同步 (这是真正修复数据的地方)
-            self.syncUsersBidirectional();
-            self.syncQuestionsBidirectional();
-            self.syncPapersBidirectional();
-            self.syncExamResultsBidirectional();
+            task.run();
 
             log.setEndTime(LocalDateTime.now());
             log.setStatus("SUCCESS");
-            log.setMessage("自动修复完成");
+            log.setMessage(label + "完成");
             syncLogRepo.save(log);
-            System.out.println(">>>  数据同步完成");
+            System.out.println(">>>  " + label + "完成");
 
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             e.printStackTrace();
             log.setEndTime(LocalDateTime.now());
             log.setStatus("FAILED");
             String error = e.getMessage() != null ? e.getMessage() : "Unknown Error";
             log.setMessage(error.length() > 3900 ? error.substring(0, 3900) : error);
             syncLogRepo.save(log);
+            throw e;
         }
     }
 
     // =========================================================
     // 3. [核心] 冲突检测逻辑
     // =========================================================
+    // 参与校验和的列：只用整行内容指纹 (已覆盖 username / paper_name 等全部同步列)。
+    // 指纹是 ASCII 十六进制，三库算出的行哈希一致；中文列在 SQL Server 上会按排序规则的代码页取字节，与另外两库永远对不上
+    private static final ChecksumTree.Spec USER_CHECK = new ChecksumTree.Spec("sys_user", List.of("fingerprint"));
+    private static final ChecksumTree.Spec PAPER_CHECK = new ChecksumTree.Spec("paper", List.of("fingerprint"));
+
     public List<ConflictDTO> detectConflicts() {
         List<ConflictDTO> conflicts = new ArrayList<>();
         long tempIdCounter = 1;
 
-        // --- 用户表检测 ---
-        List<User> mysqlUsers = mysqlUserRepo.findAll();
-        Map<Long, User> oracleUserMap = oracleUserRepo.findAll().stream().collect(Collectors.toMap(User::getId, Function.identity()));
-        Map<Long, User> sqlServerUserMap = sqlServerUserRepo.findAll().stream().collect(Collectors.toMap(User::getId, Function.identity()));
-
-        for (User mUser : mysqlUsers) {
-            checkUserConflict(conflicts, tempIdCounter++, "Oracle", mUser, oracleUserMap.get(mUser.getId()));
-            checkUserConflict(conflicts, tempIdCounter++, "SQL Server", mUser, sqlServerUserMap.get(mUser.getId()));
+        // --- 用户表检测 (各库先比分桶校验和，只取校验和不同的 id 区间逐行比较) ---
+        for (Map.Entry<SyncDialect, List<long[]>> e : conflictRanges(USER_CHECK).entrySet()) {
+            String targetDbName = conflictDbName(e.getKey());
+            for (long[] range : e.getValue()) {
+                List<User> mysqlUsers = mysqlUserRepo.findByIdBetween(range[0], range[1]);
+                List<User> targetUsers = e.getKey() == SyncDialect.ORACLE
+                        ? oracleUserRepo.findByIdBetween(range[0], range[1])
+                        : sqlServerUserRepo.findByIdBetween(range[0], range[1]);
+                Map<Long, User> targetUserMap = targetUsers.stream().collect(Collectors.toMap(User::getId, Function.identity()));
+                for (User mUser : mysqlUsers) {
+                    checkUserConflict(conflicts, tempIdCounter++, targetDbName, mUser, targetUserMap.get(mUser.getId()));
+                }
+            }
         }
 
         // --- 试卷表检测 ---
-        List<Paper> mysqlPapers = mysqlPaperRepo.findAll();
-        Map<Long, Paper> oraclePaperMap = oraclePaperRepo.findAll().stream().collect(Collectors.toMap(Paper::getId, Function.identity()));
-        Map<Long, Paper> sqlServerPaperMap = sqlServerPaperRepo.findAll().stream().collect(Collectors.toMap(Paper::getId, Function.identity()));
-
-        for (Paper mPaper : mysqlPapers) {
-            checkPaperConflict(conflicts, tempIdCounter++, "Oracle", mPaper, oraclePaperMap.get(mPaper.getId()));
-            checkPaperConflict(conflicts, tempIdCounter++, "SQL Server", mPaper, sqlServerPaperMap.get(mPaper.getId()));
+        for (Map.Entry<SyncDialect, List<long[]>> e : conflictRanges(PAPER_CHECK).entrySet()) {
+            String targetDbName = conflictDbName(e.getKey());
+            for (long[] range : e.getValue()) {
+                List<Paper> mysqlPapers = mysqlPaperRepo.findByIdBetween(range[0], range[1]);
+                List<Paper> targetPapers = e.getKey() == SyncDialect.ORACLE
+                        ? oraclePaperRepo.findByIdBetween(range[0], range[1])
+                        : sqlServerPaperRepo.findByIdBetween(range[0], range[1]);
+                Map<Long, Paper> targetPaperMap = targetPapers.stream().collect(Collectors.toMap(Paper::getId, Function.identity()));
+                for (Paper mPaper : mysqlPapers) {
+                    checkPaperConflict(conflicts, tempIdCounter++, targetDbName, mPaper, targetPaperMap.get(mPaper.getId()));
+                }
+            }
         }
 
         return conflicts;
     }
 
+    // 校验和 SQL 执行失败 (如库版本不支持哈希函数) 时退化为整表逐行比较
+    private Map<SyncDialect, List<long[]>> conflictRanges(ChecksumTree.Spec spec) {
+        List<SyncDialect> targets = List.of(SyncDialect.ORACLE, SyncDialect.SQLSERVER);
+        try {
+            return checksumTree.diffRanges(spec, targets);
+        } catch (Exception e) {
+            System.err.println(">>> [冲突检测] " + spec.getTable() + " 校验和比较失败，改为整表比较: " + e.getMessage());
+            Map<SyncDialect, List<long[]>> all = new EnumMap<>(SyncDialect.class);
+            targets.forEach(t -> all.put(t, List.<long[]>of(new long[]{Long.MIN_VALUE, Long.MAX_VALUE})));
+            return all;
+        }
+    }
+
+    private static String conflictDbName(SyncDialect target) {
+        return target == SyncDialect.SQLSERVER ? "SQL Server" : target.getDbName();
+    }
+
     private void checkUserConflict(List<ConflictDTO> list, long tempId, String targetDbName, User source, User target) {
         if (target == null) {
             list.add(new ConflictDTO(tempId, "sys_user", "MISSING_IN_TARGET",
                     targetDbName + " 备库缺少用户 ID: " + source.getId(), String.valueOf(source.getId())));
         } else {
+            // 校验和只比指纹，这里也要比指纹，否则只有指纹不同的桶下钻后报不出冲突
             boolean isDiff = !Objects.equals(source.getUsername(), target.getUsername()) ||
-                    !Objects.equals(source.getRole(), target.getRole());
+                    !Objects.equals(source.getRole(), target.getRole()) ||
+                    !Objects.equals(source.getFingerprint(), target.getFingerprint());
             if (isDiff) {
                 list.add(new ConflictDTO(tempId, "sys_user", "DATA_MISMATCH",
                         "数据不一致 [" + targetDbName + "]。主库: " + source.getUsername() + "(" + source.getRole() + "), 备库: " + target.getUsername() + "(" + target.getRole() + ")",
@@ -187,7 +305,8 @@ public class SyncService {
                     targetDbName + " 备库缺少试卷 ID: " + source.getId(), String.valueOf(source.getId())));
         } else {
             boolean isDiff = !Objects.equals(source.getPaperName(), target.getPaperName()) ||
-                    !Objects.equals(source.getTotalScore(), target.getTotalScore());
+                    !Objects.equals(source.getTotalScore(), target.getTotalScore()) ||
+                    !Objects.equals(source.getFingerprint(), target.getFingerprint());
             if (isDiff) {
                 list.add(new ConflictDTO(tempId, "paper", "DATA_MISMATCH",
                         "试卷信息不一致 [" + targetDbName + "]。主库: " + source.getPaperName(),
@@ -233,10 +352,7 @@ public class SyncService {
     public void executeImmediateSync() {
         System.out.println(">>> [实时同步] 响应业务操作，立即执行增量同步...");
         try {
-            self.syncUsersBidirectional();
-            self.syncQuestionsBidirectional();
-            self.syncPapersBidirectional();
-            self.syncExamResultsBidirectional();
+            self.syncIncremental();
         } catch (Exception e) {
             System.err.println("实时同步执行异常: " + e.getMessage());
         }
@@ -246,25 +362,162 @@ public class SyncService {
         this.executeImmediateSync();
     }
 
+    // 增量同步：各库按配置的变更来源 (ChangeSource) 读出变更的 id，只比对这些行
+    // sys_user 与 question 互不依赖，并行同步；paper 依赖 sys_user (teacher_id)，exam_result 依赖前两者，按外键顺序执行
+    public void syncIncremental() {
+        syncChanges(sourceByDb::get, List.of(userTable(), questionTable(), paperTable(), examResultTable()), this::syncChangedTables);
+    }
+
+    /**
+     * 单表增量同步：按该表配置的变更来源读出变更的 id，连同依赖行定向同步 (见 sync)；返回变更行数。
+     * 各表可以独立调度，依赖行按外键顺序先写，不要求其它表先同步。
+     */
+    public int syncIncremental(String table) {
+        String name = syncTableName(table);
+        SyncTable<?> t = switch (name) {
+            case "sys_user" -> userTable();
+            case "question" -> questionTable();
+            case "paper" -> paperTable();
+            default -> examResultTable();
+        };
+        int[] changed = {0};
+        syncChanges(sourceByDb::get, List.of(t), changes -> {
+            if (changes.values().stream().anyMatch(c -> c.requiresFullResync(name))) {
+                System.out.println(">>> [增量同步] " + name + " 变更游标未初始化或已失效，改为全量对账");
+                boolean done = switch (name) {
+                    case "sys_user" -> syncUsersBidirectional();
+                    case "question" -> syncQuestionsBidirectional();
+                    case "paper" -> syncPapersBidirectional();
+                    default -> syncExamResultsBidirectional();
+                };
+                // 对账完成后才保存游标 (被跳过或抛出异常时游标不动，下一轮继续要求全量对账)
+                if (done) changes.values().forEach(c -> c.resynced(name));
+                return;
+            }
+            Set<Long> ids = new HashSet<>();
+            changes.values().forEach(c -> ids.addAll(c.rows(name).keySet()));
+            changed[0] = ids.size();
+            if (!ids.isEmpty()) sync(Map.of(name, ids), changes);
+        });
+        return changed[0];
+    }
+
+    /**
+     * 定向同步：只同步给定的行 (业务写入、写后复制队列、冲突修复使用)
+     * 三库只按 id 读取版本，谁新谁赢，写入缺失或不一致的库，比对逻辑与增量同步相同。
+     * 依赖行一并同步，并按外键顺序先写：试卷 → 教师、题目关联及题目；成绩 → 学生、试卷 (及试卷的依赖)
+     * entityType 为表名 sys_user / question / paper / exam_result
+     */
+    public void sync(String entityType, Long... ids) {
+        sync(Map.of(entityType, Arrays.asList(ids)));
+    }
+
+    public void sync(Map<String, ? extends Collection<Long>> rows) {
+        sync(rows, Map.of());
+    }
+
+    // reported: 各库变更来源报告的行 (单表增量同步)，仍记在报告它的库名下，比对时按内容核对指纹 (见 restampEdited)
+    private void sync(Map<String, ? extends Collection<Long>> rows, Map<SyncDialect, ChangeSet> reported) {
+        Map<String, Set<Long>> targets = new HashMap<>();
+        rows.forEach((type, ids) -> ids.stream().filter(Objects::nonNull)
+                .forEach(id -> targets.computeIfAbsent(syncTableName(type), k -> new HashSet<>()).add(id)));
+        expandDependencies(targets);
+
+        Map<SyncDialect, ChangeSet> changes = new EnumMap<>(SyncDialect.class);
+        for (SyncDialect d : SyncDialect.values()) {
+            ChangeSet set = new ChangeSet();
+            ChangeSet source = reported.get(d);
+            if (source != null) {
+                targets.keySet().forEach(table -> source.rows(table).forEach((id, v) -> {
+                    if (v != null) set.add(table, v);
+                    else set.add(table, id);
+                }));
+            }
+            changes.put(d, set);
+        }
+        targets.forEach((table, ids) -> ids.forEach(id -> changes.get(SyncDialect.MYSQL).request(table, id)));
+        syncChangedTables(changes);
+    }
+
+    private static String syncTableName(String entityType) {
+        return switch (entityType.trim().toLowerCase()) {
+            case "sys_user", "user" -> "sys_user";
+            case "question" -> "question";
+            case "paper", "paper_question" -> "paper";
+            case "exam_result", "result" -> "exam_result";
+            default -> throw new RuntimeException("不支持的同步类型: " + entityType);
+        };
+    }
+
+    // 依赖行的 id 取三个库的并集 (胜者可能在任意一个库)；先展开成绩，展开出的试卷再继续展开
+    private void expandDependencies(Map<String, Set<Long>> targets) {
+        Set<Long> results = targets.getOrDefault("exam_result", Set.of());
+        if (!results.isEmpty()) {
+            for (Object[] ref : queryAll(results, mysqlExamResultRepo::findRefsByIdIn,
+                    oracleExamResultRepo::findRefsByIdIn, sqlServerExamResultRepo::findRefsByIdIn)) {
+                // student_id / paper_id 可能为空 (依赖行已被删除或置空)
+                if (ref[0] != null) targets.computeIfAbsent("sys_user", k -> new HashSet<>()).add((Long) ref[0]);
+                if (ref[1] != null) targets.computeIfAbsent("paper", k -> new HashSet<>()).add((Long) ref[1]);
+            }
+        }
+        Set<Long> papers = targets.getOrDefault("paper", Set.of());
+        if (!papers.isEmpty()) {
+            // 教师被删除的试卷 teacher_id 为空
+            queryAll(papers, mysqlPaperRepo::findTeacherIdsByIdIn, oraclePaperRepo::findTeacherIdsByIdIn, sqlServerPaperRepo::findTeacherIdsByIdIn)
+                    .stream().filter(Objects::nonNull)
+                    .forEach(id -> targets.computeIfAbsent("sys_user", k -> new HashSet<>()).add(id));
+            for (Object[] link : queryAll(papers, mysqlPaperQuestionRepo::findLinksByPaperIdIn,
+                    oraclePaperQuestionRepo::findLinksByPaperIdIn, sqlServerPaperQuestionRepo::findLinksByPaperIdIn)) {
+                if (link[1] != null) targets.computeIfAbsent("question", k -> new HashSet<>()).add((Long) link[1]);
+            }
+        }
+    }
+
+    // 三库并行按 id 分批查询，合并结果
+    private <R> List<R> queryAll(Collection<Long> ids, Function<Collection<Long>, List<R>> mysql,
+                                 Function<Collection<Long>, List<R>> oracle, Function<Collection<Long>, List<R>> sqlServer) {
+        List<Long> list = new ArrayList<>(ids);
+        List<Function<Collection<Long>, List<R>>> finders = List.of(mysql, oracle, sqlServer);
+        List<Callable<List<R>>> reads = new ArrayList<>();
+        for (SyncDialect d : SyncDialect.values()) {
+            Function<Collection<Long>, List<R>> finder = finders.get(d.ordinal());
+            reads.add(() -> readFrom(d, () -> {
+                List<R> rows = new ArrayList<>();
+                for (int i = 0; i < list.size(); i += incrementalPageSize) {
+                    rows.addAll(finder.apply(list.subList(i, Math.min(list.size(), i + incrementalPageSize))));
+                }
+                return rows;
+            }, List.of()));
+        }
+        List<R> all = new ArrayList<>();
+        fanOut.forkJoin(reads).forEach(all::addAll);
+        return all;
+    }
+
+    private void syncChangedTables(Map<SyncDialect, ChangeSet> changes) {
+        fanOut.forkJoinTables(() -> syncUserChanges(changes), () -> syncQuestionChanges(changes));
+        syncPaperChanges(changes);
+        syncExamResultChanges(changes);
+    }
+
+    // 全量对账：三库全表比对 (按需或慢周期执行)；有表因库不可用被跳过时抛出异常，同步日志 / 调度状态记为失败
+    public void syncFull() {
+        List<String> skipped = Collections.synchronizedList(new ArrayList<>());
+        fanOut.forkJoinTables(() -> { if (!self.syncUsersBidirectional()) skipped.add("sys_user"); },
+                () -> { if (!self.syncQuestionsBidirectional()) skipped.add("question"); });
+        if (!self.syncPapersBidirectional()) skipped.add("paper");
+        if (!self.syncExamResultsBidirectional()) skipped.add("exam_result");
+        if (!skipped.isEmpty()) throw new RuntimeException("全量对账未完成：有库不可用，已跳过 " + String.join(", ", skipped));
+    }
+
     // =========================================================
-    // 6. 辅助: 决定胜者 (谁新谁赢)
+    // 6. 辅助: 决定胜者 (谁新谁赢，完全相同时按 MySQL > Oracle > SQL Server 取，保证每轮结果一致)
     // =========================================================
-    private <T> T determineWinner(T m, T o, T s, Function<T, LocalDateTime> timeExtractor) {
+    private <T> T determineWinner(T m, T o, T s, Comparator<T> newest) {
         T winner = null;
-        LocalDateTime maxTime = null;
-        List<T> items = Arrays.asList(m, o, s);
-        for (T item : items) {
+        for (T item : Arrays.asList(m, o, s)) {
             if (item == null) continue;
-            LocalDateTime t = timeExtractor.apply(item);
-            if (winner == null) {
-                winner = item;
-                maxTime = t;
-            } else {
-                if (t != null && (maxTime == null || t.isAfter(maxTime))) {
-                    winner = item;
-                    maxTime = t;
-                }
-            }
+            if (winner == null || newest.compare(item, winner) > 0) winner = item;
         }
         return winner;
     }
@@ -272,466 +525,408 @@ public class SyncService {
     // =========================================================
     // 7. 核心业务同步
     // =========================================================
+    // *Bidirectional  : 全量对账，三库按 id 游标流式读取，三路归并后逐 id 比对 (见 SyncPipeline)
+    // syncIncremental : 增量同步 (整轮或单表)，各库按配置的变更来源 (ChangeSource) 拉取变更的 id，再到三库按 id 取数比对
+    // 两者都只读取 RowVersion 投影 (id / update_time / fingerprint) 比较指纹，
+    // 只有需要写入的 id 才到胜者所在库取完整行 (含 @Lob 字段)。
+    // 三个库的读取、三个目标库的写入都通过 SyncFanOut 并行执行
+
+    // 一张同步表在三个库中的仓库 (fingerprintOf: 按行内容重算指纹，用来发现绕过应用的改动)
+    private record SyncTable<T>(String name, Function<T, Long> idOf, Function<T, String> fingerprintOf, SyncSourceRepository<T> mysql,
+                                SyncSourceRepository<T> oracle, SyncSourceRepository<T> sqlServer) {
+        SyncSourceRepository<T> repo(SyncDialect d) {
+            return switch (d) {
+                case MYSQL -> mysql;
+                case ORACLE -> oracle;
+                case SQLSERVER -> sqlServer;
+            };
+        }
+    }
+
+    private SyncTable<User> userTable() {
+        return new SyncTable<>("sys_user", User::getId, User::computeFingerprint, mysqlUserRepo, oracleUserRepo, sqlServerUserRepo);
+    }
+    private SyncTable<Question> questionTable() {
+        return new SyncTable<>("question", Question::getId, Question::computeFingerprint, mysqlQuestionRepo, oracleQuestionRepo, sqlServerQuestionRepo);
+    }
+    private SyncTable<Paper> paperTable() {
+        return new SyncTable<>("paper", Paper::getId, Paper::computeFingerprint, mysqlPaperRepo, oraclePaperRepo, sqlServerPaperRepo);
+    }
+    private SyncTable<ExamResult> examResultTable() {
+        return new SyncTable<>("exam_result", ExamResult::getId, ExamResult::computeFingerprint, mysqlExamResultRepo, oracleExamResultRepo, sqlServerExamResultRepo);
+    }
 
     // User
-    @Transactional
-    public void syncUsersBidirectional() {
-        List<User> mList = mysqlUserRepo.findAll();
-        List<User> oList = oracleUserRepo.findAll();
-        List<User> sList = sqlServerUserRepo.findAll();
-        Set<Long> ids = new HashSet<>();
-        mList.forEach(u -> ids.add(u.getId()));
-        oList.forEach(u -> ids.add(u.getId()));
-        sList.forEach(u -> ids.add(u.getId()));
-        Map<Long, User> mM = mList.stream().collect(Collectors.toMap(User::getId, Function.identity()));
-        Map<Long, User> oM = oList.stream().collect(Collectors.toMap(User::getId, Function.identity()));
-        Map<Long, User> sM = sList.stream().collect(Collectors.toMap(User::getId, Function.identity()));
-
-        for (Long id : ids) {
-            User m = mM.get(id); User o = oM.get(id); User s = sM.get(id);
-            User winner = determineWinner(m, o, s, User::getUpdateTime);
-            if (winner == null) continue;
-            if (m == null || !m.equals(winner)) try { self.syncToMysqlNative(winner); } catch (Exception e) {}
-            if (o == null || !o.equals(winner)) try { self.syncToOracleNative(copyUser(winner)); } catch (Exception e) {}
-            if (s == null || !s.equals(winner)) try { self.syncToSqlServerNative(copyUser(winner)); } catch (Exception e) {}
-        }
+    public boolean syncUsersBidirectional() {
+        return syncTableFull(userTable(), rows -> planWrites(userTable(), rows),
+                (target, rows) -> applier.apply(target, SyncTableSpec.USER, rows));
     }
-    private User copyUser(User source) {
-        User target = new User();
-        target.setId(source.getId()); target.setUsername(source.getUsername()); target.setPassword(source.getPassword());
-        target.setRole(source.getRole()); target.setRealName(source.getRealName());
-        target.setCreateTime(source.getCreateTime()); target.setUpdateTime(source.getUpdateTime());
-        return target;
+    private void syncUserChanges(Map<SyncDialect, ChangeSet> changes) {
+        syncTableChanges(userTable(), changes, rows -> planWrites(userTable(), rows),
+                (target, rows) -> applier.apply(target, SyncTableSpec.USER, rows));
     }
 
     // Question
-    @Transactional
-    public void syncQuestionsBidirectional() {
-        List<Question> mList = mysqlQuestionRepo.findAll();
-        List<Question> oList = oracleQuestionRepo.findAll();
-        List<Question> sList = sqlServerQuestionRepo.findAll();
-        Set<Long> ids = new HashSet<>();
-        mList.forEach(x -> ids.add(x.getId()));
-        oList.forEach(x -> ids.add(x.getId()));
-        sList.forEach(x -> ids.add(x.getId()));
-        Map<Long, Question> mM = mList.stream().collect(Collectors.toMap(Question::getId, Function.identity()));
-        Map<Long, Question> oM = oList.stream().collect(Collectors.toMap(Question::getId, Function.identity()));
-        Map<Long, Question> sM = sList.stream().collect(Collectors.toMap(Question::getId, Function.identity()));
-
-        for (Long id : ids) {
-            Question m = mM.get(id); Question o = oM.get(id); Question s = sM.get(id);
-            Question winner = determineWinner(m, o, s, Question::getUpdateTime);
-            if (winner == null) continue;
-            if (m == null || !m.equals(winner)) self.syncToMysqlQuestion(winner);
-            if (o == null || !o.equals(winner)) self.syncToOracleQuestion(winner);
-            if (s == null || !s.equals(winner)) self.syncToSqlServerQuestion(winner);
+    public boolean syncQuestionsBidirectional() {
+        return syncTableFull(questionTable(), rows -> planWrites(questionTable(), rows),
+                this::applyQuestions);
+    }
+    private void syncQuestionChanges(Map<SyncDialect, ChangeSet> changes) {
+        syncTableChanges(questionTable(), changes, rows -> planWrites(questionTable(), rows),
+                this::applyQuestions);
+    }
+
+    // 写入 MySQL 的试题会改变判分方案、试卷视图与学生端快照 (都只读 MySQL)，包含它们的试卷缓存失效 / 重新渲染
+    private ApplyResult applyQuestions(SyncDialect target, List<Question> rows) {
+        ApplyResult result = applier.apply(target, SyncTableSpec.QUESTION, rows);
+        if (target == SyncDialect.MYSQL) {
+            List<Long> ids = rows.stream().map(Question::getId).toList();
+            gradingPlans.invalidateQuestions(ids);
+            paperViews.invalidateQuestions(ids);
+            paperSnapshots.refreshQuestions(ids);
         }
+        return result;
     }
 
     // Paper
-    @Transactional
-    public void syncPapersBidirectional() {
-        List<Paper> mList = mysqlPaperRepo.findAll();
-        List<Paper> oList = oraclePaperRepo.findAll();
-        List<Paper> sList = sqlServerPaperRepo.findAll();
-        Set<Long> ids = new HashSet<>();
-        mList.forEach(x -> ids.add(x.getId()));
-        oList.forEach(x -> ids.add(x.getId()));
-        sList.forEach(x -> ids.add(x.getId()));
-        Map<Long, Paper> mM = mList.stream().collect(Collectors.toMap(Paper::getId, Function.identity()));
-        Map<Long, Paper> oM = oList.stream().collect(Collectors.toMap(Paper::getId, Function.identity()));
-        Map<Long, Paper> sM = sList.stream().collect(Collectors.toMap(Paper::getId, Function.identity()));
-
-        for (Long id : ids) {
-            Paper m = mM.get(id); Paper o = oM.get(id); Paper s = sM.get(id);
-            Paper winner = determineWinner(m, o, s, Paper::getUpdateTime);
-            if (winner == null) continue;
-            List<PaperQuestion> winnerPQs = fetchPaperQuestions(winner, m, o, s);
-            if (m == null || !m.equals(winner)) { self.syncToMysqlPaper(winner); self.syncToMysqlPaperQuestions(winner, winnerPQs); }
-            if (o == null || !o.equals(winner)) { self.syncToOraclePaper(winner); self.syncToOraclePaperQuestions(winner, winnerPQs); }
-            if (s == null || !s.equals(winner)) { self.syncToSqlServerPaper(winner); self.syncToSqlServerPaperQuestions(winner, winnerPQs); }
+    public boolean syncPapersBidirectional() {
+        return syncTableFull(paperTable(), this::planPaperBatches,
+                this::applyPaperBatch);
+    }
+    private void syncPaperChanges(Map<SyncDialect, ChangeSet> changes) {
+        syncTableChanges(paperTable(), changes, this::planPaperBatches,
+                this::applyPaperBatch);
+    }
+    private ApplyResult applyPaperBatch(SyncDialect target, PaperBatch batch) {
+        ApplyResult result = applier.applyPapers(target, batch.papers(), batch.questions());
+        if (target == SyncDialect.MYSQL) {
+            List<Long> ids = batch.papers().stream().map(Paper::getId).toList();
+            gradingPlans.invalidatePapers(ids);
+            paperViews.invalidatePapers(ids);
+            paperSnapshots.refresh(ids);
         }
-    }
-    private List<PaperQuestion> fetchPaperQuestions(Paper winner, Paper m, Paper o, Paper s) {
-        if (winner == m) return mysqlPaperQuestionRepo.findAll().stream().filter(pq -> pq.getPaper() != null && pq.getPaper().getId().equals(winner.getId())).collect(Collectors.toList());
-        if (winner == o) return oraclePaperQuestionRepo.findAll().stream().filter(pq -> pq.getPaper() != null && pq.getPaper().getId().equals(winner.getId())).collect(Collectors.toList());
-        if (winner == s) return sqlServerPaperQuestionRepo.findAll().stream().filter(pq -> pq.getPaper() != null && pq.getPaper().getId().equals(winner.getId())).collect(Collectors.toList());
-        return new ArrayList<>();
+        return result;
+    }
+    // 每张需要写入的试卷只取一次题目关联 (取自胜者所在库)，各目标库共用
+    private Map<SyncDialect, PaperBatch> planPaperBatches(List<MergedRow<RowVersion>> rows) {
+        Map<Long, SyncDialect> winnerSources = new HashMap<>();
+        Map<SyncDialect, List<Paper>> plan = planWrites(paperTable(), rows, winnerSources);
+        Map<Long, List<PaperQuestion>> pqByPaper = fetchPaperQuestions(winnerSources);
+        Map<SyncDialect, PaperBatch> batches = new EnumMap<>(SyncDialect.class);
+        plan.forEach((target, papers) -> batches.put(target, new PaperBatch(papers, pqByPaper)));
+        return batches;
+    }
+    private record PaperBatch(List<Paper> papers, Map<Long, List<PaperQuestion>> questions) {}
+    // 按胜者所在库分组，每个库一次 (分批) IN 查询取出这些试卷的题目关联，按 paper_id 建索引
+    private Map<Long, List<PaperQuestion>> fetchPaperQuestions(Map<Long, SyncDialect> winnerSources) {
+        Map<SyncDialect, List<Long>> idsBySource = new EnumMap<>(SyncDialect.class);
+        winnerSources.forEach((id, source) -> idsBySource.computeIfAbsent(source, k -> new ArrayList<>()).add(id));
+        List<Callable<List<Object[]>>> reads = new ArrayList<>();
+        idsBySource.forEach((source, ids) -> reads.add(() -> {
+            List<Object[]> links = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i += incrementalPageSize) {
+                List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + incrementalPageSize));
+                links.addAll(switch (source) {
+                    case MYSQL -> mysqlPaperQuestionRepo.findLinksByPaperIdIn(chunk);
+                    case ORACLE -> oraclePaperQuestionRepo.findLinksByPaperIdIn(chunk);
+                    case SQLSERVER -> sqlServerPaperQuestionRepo.findLinksByPaperIdIn(chunk);
+                });
+            }
+            return links;
+        }));
+        Map<Long, List<PaperQuestion>> pqByPaper = new HashMap<>();
+        winnerSources.keySet().forEach(id -> pqByPaper.put(id, new ArrayList<>())); // 没有题目的试卷也要对齐 (清空目标库)
+        for (List<Object[]> links : fanOut.forkJoin(reads)) {
+            for (Object[] l : links) {
+                Long paperId = (Long) l[0];
+                pqByPaper.get(paperId).add(PaperQuestion.link(paperId, (Long) l[1], (Integer) l[2]));
+            }
+        }
+        return pqByPaper;
     }
 
     // Result
-    @Transactional
-    public void syncExamResultsBidirectional() {
-        List<ExamResult> mList = mysqlExamResultRepo.findAll();
-        List<ExamResult> oList = oracleExamResultRepo.findAll();
-        List<ExamResult> sList = sqlServerExamResultRepo.findAll();
-        Set<Long> ids = new HashSet<>();
-        mList.forEach(x -> ids.add(x.getId()));
-        oList.forEach(x -> ids.add(x.getId()));
-        sList.forEach(x -> ids.add(x.getId()));
-        Map<Long, ExamResult> mM = mList.stream().collect(Collectors.toMap(ExamResult::getId, Function.identity()));
-        Map<Long, ExamResult> oM = oList.stream().collect(Collectors.toMap(ExamResult::getId, Function.identity()));
-        Map<Long, ExamResult> sM = sList.stream().collect(Collectors.toMap(ExamResult::getId, Function.identity()));
-
-        for (Long id : ids) {
-            ExamResult m = mM.get(id); ExamResult o = oM.get(id); ExamResult s = sM.get(id);
-            ExamResult winner = determineWinner(m, o, s, ExamResult::getUpdateTime);
-            if (winner == null) continue;
-            if (m == null || !m.equals(winner)) self.syncToMysqlResult(winner);
-            if (o == null || !o.equals(winner)) self.syncToOracleResult(winner);
-            if (s == null || !s.equals(winner)) self.syncToSqlServerResult(winner);
+    public boolean syncExamResultsBidirectional() {
+        return syncTableFull(examResultTable(), rows -> planWrites(examResultTable(), rows),
+                (target, rows) -> applier.apply(target, SyncTableSpec.EXAM_RESULT, rows));
+    }
+    private void syncExamResultChanges(Map<SyncDialect, ChangeSet> changes) {
+        syncTableChanges(examResultTable(), changes, rows -> planWrites(examResultTable(), rows),
+                (target, rows) -> applier.apply(target, SyncTableSpec.EXAM_RESULT, rows));
+    }
+
+    // 全量对账需要三库完整的行序列，有库熔断时跳过并返回 false (调用方据此保留游标 / 报告未完成)
+    private <T, B> boolean syncTableFull(SyncTable<T> table, SyncPipeline.RowPlanner<RowVersion, B> planner,
+                                         SyncPipeline.BatchWriter<B> writer) {
+        List<String> down = Arrays.stream(SyncDialect.values()).filter(d -> !health.isClosed(d)).map(SyncDialect::getDbName).toList();
+        if (!down.isEmpty()) {
+            System.out.println(">>> [全量同步] " + table.name() + " 跳过: " + String.join(", ", down) + " 不可用");
+            return false;
         }
-    }
-
-    // =========================================================
-    // 8. Native Writes
-    // =========================================================
-    // Oracle
-    @Transactional(transactionManager = "transactionManagerOracle")
-    public void syncToOracleNative(User u) {
-        String updateSql = "UPDATE sys_user SET username=?1, password=?2, role=?3, real_name=?4, create_time=?5, update_time=?6 WHERE id=?7";
-        int rows = oracleEm.createNativeQuery(updateSql).setParameter(1, u.getUsername()).setParameter(2, u.getPassword()).setParameter(3, u.getRole()).setParameter(4, u.getRealName()).setParameter(5, u.getCreateTime()).setParameter(6, u.getUpdateTime()).setParameter(7, u.getId()).executeUpdate();
-        if (rows == 0) {
-            String insertSql = "INSERT INTO sys_user (id, username, password, role, real_name, create_time, update_time) VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7)";
-            oracleEm.createNativeQuery(insertSql).setParameter(1, u.getId()).setParameter(2, u.getUsername()).setParameter(3, u.getPassword()).setParameter(4, u.getRole()).setParameter(5, u.getRealName()).setParameter(6, u.getCreateTime()).setParameter(7, u.getUpdateTime()).executeUpdate();
+        checkApplyResults(pipeline.run(table.name(), RowVersion::id,
+                readers(table.mysql()::findVersionsAfter, table.oracle()::findVersionsAfter, table.sqlServer()::findVersionsAfter),
+                planner, writer));
+        return true;
+    }
+
+    // 只比对各库变更来源报告的行；某个库的游标失效时该表改为全量对账
+    private <T, B> void syncTableChanges(SyncTable<T> table, Map<SyncDialect, ChangeSet> changes,
+                                         SyncPipeline.RowPlanner<RowVersion, B> planner, SyncPipeline.BatchWriter<B> writer) {
+        if (changes.values().stream().anyMatch(c -> c.requiresFullResync(table.name()))) {
+            System.out.println(">>> [增量同步] " + table.name() + " 变更游标未初始化或已失效，改为全量对账");
+            if (syncTableFull(table, planner, writer)) changes.values().forEach(c -> c.resynced(table.name()));
+            return;
         }
-    }
-    @Transactional(transactionManager = "transactionManagerOracle")
-    public void syncToOracleQuestion(Question q) {
-        String update = "UPDATE question SET content=?1, type=?2, difficulty=?3, knowledge_point=?4, answer=?5, update_time=?6 WHERE id=?7";
-        int rows = oracleEm.createNativeQuery(update).setParameter(1, q.getContent()).setParameter(2, q.getType()).setParameter(3, q.getDifficulty()).setParameter(4, q.getKnowledgePoint()).setParameter(5, q.getAnswer()).setParameter(6, q.getUpdateTime()).setParameter(7, q.getId()).executeUpdate();
-        if (rows == 0) {
-            String insert = "INSERT INTO question (id, content, type, difficulty, knowledge_point, answer, update_time) VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7)";
-            oracleEm.createNativeQuery(insert).setParameter(1, q.getId()).setParameter(2, q.getContent()).setParameter(3, q.getType()).setParameter(4, q.getDifficulty()).setParameter(5, q.getKnowledgePoint()).setParameter(6, q.getAnswer()).setParameter(7, q.getUpdateTime()).executeUpdate();
+        Map<Long, RowVersion> mM = new HashMap<>(changes.get(SyncDialect.MYSQL).rows(table.name()));
+        Map<Long, RowVersion> oM = new HashMap<>(changes.get(SyncDialect.ORACLE).rows(table.name()));
+        Map<Long, RowVersion> sM = new HashMap<>(changes.get(SyncDialect.SQLSERVER).rows(table.name()));
+        Map<SyncDialect, Set<Long>> reported = new EnumMap<>(SyncDialect.class);
+        changes.forEach((d, c) -> reported.put(d, c.reported(table.name())));
+        syncTableRows(table, unionIds(mM, oM, sM), reported, mM, oM, sM, planner, writer);
+    }
+
+    // 只比对给定 id：三库按 id 补齐版本后决出胜者并写入 (已取到的版本放在 mM / oM / sM 中，不再重复查；
+    // reported: 各库变更来源报告的 id)
+    private <T, B> void syncTableRows(SyncTable<T> table, Set<Long> ids, Map<SyncDialect, Set<Long>> reported,
+                                      Map<Long, RowVersion> mM, Map<Long, RowVersion> oM, Map<Long, RowVersion> sM,
+                                      SyncPipeline.RowPlanner<RowVersion, B> planner, SyncPipeline.BatchWriter<B> writer) {
+        if (ids.isEmpty()) return;
+        fanOut.forkJoin(List.of(
+                () -> readFrom(SyncDialect.MYSQL, () -> fillMissing(ids, mM, table.mysql()::findVersionsByIdIn), mM),
+                () -> readFrom(SyncDialect.ORACLE, () -> fillMissing(ids, oM, table.oracle()::findVersionsByIdIn), oM),
+                () -> readFrom(SyncDialect.SQLSERVER, () -> fillMissing(ids, sM, table.sqlServer()::findVersionsByIdIn), sM)));
+        Map<SyncDialect, Map<Long, RowVersion>> versions = new EnumMap<>(SyncDialect.class);
+        versions.put(SyncDialect.MYSQL, mM);
+        versions.put(SyncDialect.ORACLE, oM);
+        versions.put(SyncDialect.SQLSERVER, sM);
+        List<Callable<Integer>> checks = new ArrayList<>();
+        tiedReports(reported, versions).forEach((d, tied) -> checks.add(() -> readFrom(d, () -> restampEdited(table, d, tied, versions.get(d)), 0)));
+        fanOut.forkJoin(checks);
+        tombstones.reapAbsent(table.name(), ids.stream().filter(id -> mM.get(id) == null && oM.get(id) == null && sM.get(id) == null).toList());
+        applyBatches(planner.plan(mergeMaps(mM, oM, sM)), writer);
+    }
+
+    // 各库报告了变更、版本却与其它库相同 (或其它库没有该行) 的 id，需要按内容核对指纹
+    private static Map<SyncDialect, List<Long>> tiedReports(Map<SyncDialect, Set<Long>> reported,
+                                                            Map<SyncDialect, Map<Long, RowVersion>> versions) {
+        Map<SyncDialect, List<Long>> tied = new EnumMap<>(SyncDialect.class);
+        reported.forEach((d, ids) -> {
+            List<Long> list = ids.stream()
+                    .filter(id -> versions.get(d).get(id) != null)
+                    .filter(id -> versions.values().stream().map(m -> m.get(id))
+                            .allMatch(v -> v == null || Objects.equals(v.syncVersion(), versions.get(d).get(id).syncVersion())))
+                    .toList();
+            if (!list.isEmpty()) tied.put(d, list);
+        });
+        return tied;
+    }
+
+    /**
+     * 变更来源报告了、版本却与其它库相同的行，可能是绕过应用直接改的库 (JPA 钩子没有运行，指纹和版本都没变)：
+     * 到报告它的库取完整行按内容重算指纹，与存的指纹不同就重新生成版本，本轮即以该库为胜者写到其它库。
+     * 同步写入会按内容重算指纹，它在目标库产生的变更记录指纹与内容一致，不会被当作改库来回传播。
+     * 只改本库的 rows，各库可以并行执行；返回重新生成版本的行数
+     */
+    private <T> int restampEdited(SyncTable<T> table, SyncDialect source, List<Long> tied, Map<Long, RowVersion> rows) {
+        List<RowVersion> stale = new ArrayList<>();
+        Map<Long, String> fingerprints = new HashMap<>();
+        for (int i = 0; i < tied.size(); i += incrementalPageSize) {
+            for (T entity : table.repo(source).findAllById(tied.subList(i, Math.min(tied.size(), i + incrementalPageSize)))) {
+                RowVersion stored = rows.get(table.idOf().apply(entity));
+                String actual = table.fingerprintOf().apply(entity);
+                if (stored == null || actual.equals(stored.fingerprint())) continue;
+                stale.add(stored);
+                fingerprints.put(stored.id(), actual);
+            }
         }
-    }
-    @Transactional(transactionManager = "transactionManagerOracle")
-    public void syncToOraclePaper(Paper p) {
-        String update = "UPDATE paper SET paper_name=?1, total_score=?2, teacher_id=?3, create_time=?4, update_time=?5 WHERE id=?6";
-        int rows = oracleEm.createNativeQuery(update).setParameter(1, p.getPaperName()).setParameter(2, p.getTotalScore()).setParameter(3, p.getTeacher() != null ? p.getTeacher().getId() : null).setParameter(4, p.getCreateTime()).setParameter(5, p.getUpdateTime()).setParameter(6, p.getId()).executeUpdate();
-        if (rows == 0) {
-            String insert = "INSERT INTO paper (id, paper_name, total_score, teacher_id, create_time, update_time) VALUES (?1, ?2, ?3, ?4, ?5, ?6)";
-            oracleEm.createNativeQuery(insert).setParameter(1, p.getId()).setParameter(2, p.getPaperName()).setParameter(3, p.getTotalScore()).setParameter(4, p.getTeacher() != null ? p.getTeacher().getId() : null).setParameter(5, p.getCreateTime()).setParameter(6, p.getUpdateTime()).executeUpdate();
+        if (stale.isEmpty()) return 0;
+        long version = HybridClock.next();
+        List<Long> updated = applier.restamp(source, table.name(), stale, fingerprints, version);
+        for (RowVersion row : stale) {
+            if (updated.contains(row.id())) rows.put(row.id(), new RowVersion(row.id(), row.updateTime(), fingerprints.get(row.id()), version));
         }
+        System.out.println(">>> [增量同步] " + source.getDbName() + " " + table.name() + " 发现 " + updated.size() + " 行绕过应用的修改，已重新生成版本");
+        return updated.size();
     }
-    @Transactional(transactionManager = "transactionManagerOracle")
-    public void syncToOraclePaperQuestions(Paper p, List<PaperQuestion> pqs) {
-        oracleEm.createNativeQuery("DELETE FROM paper_question WHERE paper_id = ?1").setParameter(1, p.getId()).executeUpdate();
-        for (PaperQuestion pq : pqs) {
-            oracleEm.createNativeQuery("INSERT INTO paper_question (paper_id, question_id, score) VALUES (?1, ?2, ?3)").setParameter(1, p.getId()).setParameter(2, pq.getQuestion().getId()).setParameter(3, pq.getScore()).executeUpdate();
-        }
+
+    /**
+     * 逐个 id 决出胜者 (sync_version 最大，版本相同再看 update_time)，目标库缺失或落后于胜者 (RowVersion.isBehind) 才需要写入；
+     * 只为这些 id 到胜者所在库取完整行，按目标库分组返回 (不需要写入的目标库不出现)
+     */
+    private <T> Map<SyncDialect, List<T>> planWrites(SyncTable<T> table, List<MergedRow<RowVersion>> rows) {
+        return planWrites(table, rows, new HashMap<>());
     }
-    @Transactional(transactionManager = "transactionManagerOracle")
-    public void syncToOracleResult(ExamResult r) {
-        Long sid = r.getStudent() != null ? r.getStudent().getId() : null;
-        Long pid = r.getPaper() != null ? r.getPaper().getId() : null;
-
-        // 【修复】增加了 student_answers=?6
-        String update = "UPDATE exam_result SET student_id=?1, paper_id=?2, score=?3, exam_time=?4, update_time=?5, student_answers=?6 WHERE id=?7";
-        int rows = oracleEm.createNativeQuery(update)
-                .setParameter(1, sid).setParameter(2, pid).setParameter(3, r.getScore())
-                .setParameter(4, r.getCreateTime()).setParameter(5, r.getUpdateTime())
-                .setParameter(6, r.getStudentAnswers()) // 设置答题JSON
-                .setParameter(7, r.getId()).executeUpdate();
-
-        if (rows == 0) {
-            // 【修复】增加了 student_answers 字段
-            String insert = "INSERT INTO exam_result (id, student_id, paper_id, score, exam_time, update_time, student_answers) VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7)";
-            oracleEm.createNativeQuery(insert)
-                    .setParameter(1, r.getId()).setParameter(2, sid).setParameter(3, pid)
-                    .setParameter(4, r.getScore()).setParameter(5, r.getCreateTime())
-                    .setParameter(6, r.getUpdateTime())
-                    .setParameter(7, r.getStudentAnswers()) // 设置答题JSON
-                    .executeUpdate();
+
+    // winnerSources: 需要写入的 id -> 胜者所在库
+    private <T> Map<SyncDialect, List<T>> planWrites(SyncTable<T> table, List<MergedRow<RowVersion>> rows,
+                                                     Map<Long, SyncDialect> winnerSources) {
+        Map<SyncDialect, List<Long>> idsByTarget = new EnumMap<>(SyncDialect.class);
+        for (MergedRow<RowVersion> row : tombstones.reap(table.name(), rows)) {
+            RowVersion winner = determineWinner(row.mysql(), row.oracle(), row.sqlServer(), RowVersion.NEWEST);
+            if (winner == null) continue;
+            HybridClock.observe(winner.syncVersion());
+            SyncDialect source = null;
+            boolean written = false;
+            for (SyncDialect d : SyncDialect.values()) {
+                RowVersion current = row.get(d);
+                if (current == winner) source = d;
+                if (current != null && !current.isBehind(winner)) continue;
+                idsByTarget.computeIfAbsent(d, k -> new ArrayList<>()).add(row.id());
+                written = true;
+            }
+            if (written) winnerSources.put(row.id(), source);
         }
-    }
 
-    // SQL Server
-    @Transactional(transactionManager = "transactionManagerSqlServer")
-    public void syncToSqlServerNative(User u) {
-        org.hibernate.Session session = sqlServerEm.unwrap(org.hibernate.Session.class);
-        session.doWork(connection -> {
-            try {
-                String updateSql = "UPDATE dbo.sys_user SET username=?, password=?, role=?, real_name=?, create_time=?, update_time=? WHERE id=?";
-                try (java.sql.PreparedStatement ps = connection.prepareStatement(updateSql)) {
-                    ps.setString(1, u.getUsername()); ps.setString(2, u.getPassword()); ps.setString(3, u.getRole()); ps.setString(4, u.getRealName());
-                    ps.setTimestamp(5, u.getCreateTime() != null ? Timestamp.valueOf(u.getCreateTime()) : null);
-                    ps.setTimestamp(6, u.getUpdateTime() != null ? Timestamp.valueOf(u.getUpdateTime()) : null);
-                    ps.setLong(7, u.getId());
-                    if (ps.executeUpdate() > 0) return;
-                }
-                try (java.sql.Statement stmt = connection.createStatement()) {
-                    stmt.execute("SET IDENTITY_INSERT dbo.sys_user ON");
-                    String insertSql = "INSERT INTO dbo.sys_user (id, username, password, role, real_name, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?)";
-                    try (java.sql.PreparedStatement ps = connection.prepareStatement(insertSql)) {
-                        ps.setLong(1, u.getId()); ps.setString(2, u.getUsername()); ps.setString(3, u.getPassword()); ps.setString(4, u.getRole()); ps.setString(5, u.getRealName());
-                        ps.setTimestamp(6, u.getCreateTime() != null ? Timestamp.valueOf(u.getCreateTime()) : null);
-                        ps.setTimestamp(7, u.getUpdateTime() != null ? Timestamp.valueOf(u.getUpdateTime()) : null);
-                        ps.executeUpdate();
-                    }
-                    stmt.execute("SET IDENTITY_INSERT dbo.sys_user OFF");
-                }
-            } catch (Exception e) { throw new RuntimeException(e.getMessage()); }
-        });
-    }
-    @Transactional(transactionManager = "transactionManagerSqlServer")
-    public void syncToSqlServerQuestion(Question q) {
-        org.hibernate.Session session = sqlServerEm.unwrap(org.hibernate.Session.class);
-        session.doWork(connection -> {
-            try {
-                String update = "UPDATE dbo.question SET content=?, type=?, difficulty=?, knowledge_point=?, answer=?, update_time=? WHERE id=?";
-                try (java.sql.PreparedStatement ps = connection.prepareStatement(update)) {
-                    ps.setString(1, q.getContent()); ps.setString(2, q.getType()); ps.setString(3, q.getDifficulty()); ps.setString(4, q.getKnowledgePoint()); ps.setString(5, q.getAnswer());
-                    ps.setTimestamp(6, q.getUpdateTime() != null ? Timestamp.valueOf(q.getUpdateTime()) : null); ps.setLong(7, q.getId());
-                    if (ps.executeUpdate() > 0) return;
-                }
-                try (java.sql.Statement stmt = connection.createStatement()) {
-                    stmt.execute("SET IDENTITY_INSERT dbo.question ON");
-                    String insert = "INSERT INTO dbo.question (id, content, type, difficulty, knowledge_point, answer, update_time) VALUES (?, ?, ?, ?, ?, ?, ?)";
-                    try (java.sql.PreparedStatement ps = connection.prepareStatement(insert)) {
-                        ps.setLong(1, q.getId()); ps.setString(2, q.getContent()); ps.setString(3, q.getType()); ps.setString(4, q.getDifficulty()); ps.setString(5, q.getKnowledgePoint()); ps.setString(6, q.getAnswer());
-                        ps.setTimestamp(7, q.getUpdateTime() != null ? Timestamp.valueOf(q.getUpdateTime()) : null);
-                        ps.executeUpdate();
-                    }
-                    stmt.execute("SET IDENTITY_INSERT dbo.question OFF");
-                }
-            } catch (Exception e) { throw new RuntimeException(e.getMessage()); }
-        });
-    }
-    @Transactional(transactionManager = "transactionManagerSqlServer")
-    public void syncToSqlServerPaper(Paper p) {
-        org.hibernate.Session session = sqlServerEm.unwrap(org.hibernate.Session.class);
-        session.doWork(connection -> {
-            try {
-                String update = "UPDATE dbo.paper SET paper_name=?, total_score=?, teacher_id=?, create_time=?, update_time=? WHERE id=?";
-                try (java.sql.PreparedStatement ps = connection.prepareStatement(update)) {
-                    ps.setString(1, p.getPaperName()); ps.setObject(2, p.getTotalScore(), java.sql.Types.INTEGER); ps.setObject(3, p.getTeacher() != null ? p.getTeacher().getId() : null, java.sql.Types.BIGINT);
-                    ps.setTimestamp(4, p.getCreateTime() != null ? Timestamp.valueOf(p.getCreateTime()) : null); ps.setTimestamp(5, p.getUpdateTime() != null ? Timestamp.valueOf(p.getUpdateTime()) : null); ps.setLong(6, p.getId());
-                    if (ps.executeUpdate() > 0) return;
-                }
-                try (java.sql.Statement stmt = connection.createStatement()) {
-                    stmt.execute("SET IDENTITY_INSERT dbo.paper ON");
-                    String insert = "INSERT INTO dbo.paper (id, paper_name, total_score, teacher_id, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?)";
-                    try (java.sql.PreparedStatement ps = connection.prepareStatement(insert)) {
-                        ps.setLong(1, p.getId()); ps.setString(2, p.getPaperName()); ps.setObject(3, p.getTotalScore(), java.sql.Types.INTEGER); ps.setObject(4, p.getTeacher() != null ? p.getTeacher().getId() : null, java.sql.Types.BIGINT);
-                        ps.setTimestamp(5, p.getCreateTime() != null ? Timestamp.valueOf(p.getCreateTime()) : null); ps.setTimestamp(6, p.getUpdateTime() != null ? Timestamp.valueOf(p.getUpdateTime()) : null);
-                        ps.executeUpdate();
-                    }
-                    stmt.execute("SET IDENTITY_INSERT dbo.paper OFF");
-                }
-            } catch (Exception e) { throw new RuntimeException(e.getMessage()); }
+        Map<Long, T> winners = fetchWinners(table, winnerSources);
+        Map<SyncDialect, List<T>> plan = new EnumMap<>(SyncDialect.class);
+        idsByTarget.forEach((target, ids) -> {
+            // 比对之后被删除的行取不到，跳过
+            List<T> list = ids.stream().map(winners::get).filter(Objects::nonNull).collect(Collectors.toList());
+            if (!list.isEmpty()) plan.put(target, list);
         });
+        return plan;
+    }
+
+    // 按胜者所在库分组，各库并行按 id 分批取完整行
+    private <T> Map<Long, T> fetchWinners(SyncTable<T> table, Map<Long, SyncDialect> winnerSources) {
+        Map<SyncDialect, List<Long>> idsBySource = new EnumMap<>(SyncDialect.class);
+        winnerSources.forEach((id, source) -> idsBySource.computeIfAbsent(source, k -> new ArrayList<>()).add(id));
+        List<Callable<List<T>>> reads = new ArrayList<>();
+        idsBySource.forEach((source, ids) -> reads.add(() -> {
+            List<T> rows = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i += incrementalPageSize) {
+                rows.addAll(table.repo(source).findAllById(ids.subList(i, Math.min(ids.size(), i + incrementalPageSize))));
+            }
+            return rows;
+        }));
+        Map<Long, T> winners = new HashMap<>();
+        fanOut.forkJoin(reads).forEach(rows -> rows.forEach(r -> winners.put(table.idOf().apply(r), r)));
+        return winners;
     }
-    @Transactional(transactionManager = "transactionManagerSqlServer")
-    public void syncToSqlServerPaperQuestions(Paper p, List<PaperQuestion> pqs) {
-        org.hibernate.Session session = sqlServerEm.unwrap(org.hibernate.Session.class);
-        session.doWork(connection -> {
-            try {
-                try (java.sql.PreparedStatement psDel = connection.prepareStatement("DELETE FROM dbo.paper_question WHERE paper_id = ?")) {
-                    psDel.setLong(1, p.getId()); psDel.executeUpdate();
-                }
-                String insert = "INSERT INTO dbo.paper_question (paper_id, question_id, score) VALUES (?, ?, ?)";
-                try (java.sql.PreparedStatement ps = connection.prepareStatement(insert)) {
-                    for (PaperQuestion pq : pqs) {
-                        ps.setObject(1, p.getId(), java.sql.Types.BIGINT); ps.setObject(2, pq.getQuestion().getId(), java.sql.Types.BIGINT); ps.setObject(3, pq.getScore(), java.sql.Types.INTEGER); ps.addBatch();
-                    }
-                    ps.executeBatch();
-                }
-            } catch (Exception e) { throw new RuntimeException(e.getMessage()); }
-        });
+
+    // 各目标库并行写入，库内按 chunk 提交；坏行被隔离，其余行照常提交
+    private <B> void applyBatches(Map<SyncDialect, B> batches, SyncPipeline.BatchWriter<B> writer) {
+        List<Callable<ApplyResult>> writes = new ArrayList<>();
+        batches.forEach((target, batch) -> writes.add(() -> writer.write(target, batch)));
+        checkApplyResults(fanOut.forkJoinSettled(writes));
     }
-    @Transactional(transactionManager = "transactionManagerSqlServer")
-    public void syncToSqlServerResult(ExamResult r) {
-        org.hibernate.Session session = sqlServerEm.unwrap(org.hibernate.Session.class);
-        session.doWork(connection -> {
-            try {
-                // 【修复】增加了 student_answers=?
-                String update = "UPDATE dbo.exam_result SET student_id=?, paper_id=?, score=?, exam_time=?, update_time=?, student_answers=? WHERE id=?";
-                try (java.sql.PreparedStatement ps = connection.prepareStatement(update)) {
-                    ps.setObject(1, r.getStudent() != null ? r.getStudent().getId() : null, java.sql.Types.BIGINT);
-                    ps.setObject(2, r.getPaper() != null ? r.getPaper().getId() : null, java.sql.Types.BIGINT);
-                    ps.setBigDecimal(3, r.getScore());
-                    ps.setTimestamp(4, r.getCreateTime() != null ? Timestamp.valueOf(r.getCreateTime()) : null);
-                    ps.setTimestamp(5, r.getUpdateTime() != null ? Timestamp.valueOf(r.getUpdateTime()) : null);
-                    ps.setString(6, r.getStudentAnswers()); // 设置答题JSON
-                    ps.setLong(7, r.getId());
-                    if (ps.executeUpdate() > 0) return;
-                }
 
-                try (java.sql.Statement stmt = connection.createStatement()) {
-                    stmt.execute("SET IDENTITY_INSERT dbo.exam_result ON");
-                    // 【修复】增加了 student_answers
-                    String insert = "INSERT INTO dbo.exam_result (id, student_id, paper_id, score, exam_time, update_time, student_answers) VALUES (?, ?, ?, ?, ?, ?, ?)";
-                    try (java.sql.PreparedStatement ps = connection.prepareStatement(insert)) {
-                        ps.setLong(1, r.getId());
-                        ps.setObject(2, r.getStudent() != null ? r.getStudent().getId() : null, java.sql.Types.BIGINT);
-                        ps.setObject(3, r.getPaper() != null ? r.getPaper().getId() : null, java.sql.Types.BIGINT);
-                        ps.setBigDecimal(4, r.getScore());
-                        ps.setTimestamp(5, r.getCreateTime() != null ? Timestamp.valueOf(r.getCreateTime()) : null);
-                        ps.setTimestamp(6, r.getUpdateTime() != null ? Timestamp.valueOf(r.getUpdateTime()) : null);
-                        ps.setString(7, r.getStudentAnswers()); // 设置答题JSON
-                        ps.executeUpdate();
-                    }
-                    stmt.execute("SET IDENTITY_INSERT dbo.exam_result OFF");
-                }
-            } catch (Exception e) {
-                throw new RuntimeException("SQL Server ExamResult同步失败: " + e.getMessage());
+    // 坏行已由 SyncApplier 记入死信 (sys_sync_dead_letter) 并按退避重试，这里只打印结果，本轮同步照常成功
+    private void checkApplyResults(List<ApplyResult> results) {
+        for (ApplyResult r : results) {
+            if (r.getApplied() > 0 || r.hasFailures() || r.getDeferred() > 0 || r.getQuarantined() > 0) {
+                System.out.println(">>> [同步] " + r.summary());
             }
-        });
+        }
     }
 
-    // MySQL
-    @Transactional
-    public void syncToMysqlNative(User u) {
-        String updateSql = "UPDATE sys_user SET username=?1, password=?2, role=?3, real_name=?4, create_time=?5, update_time=?6 WHERE id=?7";
-        int rows = mysqlEm.createNativeQuery(updateSql).setParameter(1, u.getUsername()).setParameter(2, u.getPassword()).setParameter(3, u.getRole()).setParameter(4, u.getRealName()).setParameter(5, u.getCreateTime()).setParameter(6, u.getUpdateTime()).setParameter(7, u.getId()).executeUpdate();
-        if (rows == 0) {
-            String insertSql = "INSERT INTO sys_user (id, username, password, role, real_name, create_time, update_time) VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7)";
-            mysqlEm.createNativeQuery(insertSql).setParameter(1, u.getId()).setParameter(2, u.getUsername()).setParameter(3, u.getPassword()).setParameter(4, u.getRole()).setParameter(5, u.getRealName()).setParameter(6, u.getCreateTime()).setParameter(7, u.getUpdateTime()).executeUpdate();
+    // =========================================================
+    // 7.1 增量同步辅助: 读取变更 / 按 id 补齐 / 保存游标
+    // =========================================================
+    /**
+     * 各库并行读取变更 → 按表同步 → 全部成功后保存游标 (失败则下轮从旧游标重读)
+     */
+    private void syncChanges(Function<SyncDialect, ChangeSource> sourceOf, List<SyncTable<?>> tables,
+                             Consumer<Map<SyncDialect, ChangeSet>> sync) {
+        List<Callable<ChangeSet>> polls = new ArrayList<>();
+        for (SyncDialect d : SyncDialect.values()) {
+            Map<String, SyncSourceRepository<?>> repos = new LinkedHashMap<>();
+            tables.forEach(t -> repos.put(t.name(), t.repo(d)));
+            // 熔断的库本轮不读变更，游标不推进，恢复后从旧游标继续
+            polls.add(() -> readFrom(d, () -> sourceOf.apply(d).poll(d, repos), new ChangeSet()));
         }
+        List<ChangeSet> sets = fanOut.forkJoin(polls);
+        Map<SyncDialect, ChangeSet> changes = new EnumMap<>(SyncDialect.class);
+        for (SyncDialect d : SyncDialect.values()) changes.put(d, sets.get(d.ordinal()));
+        // 直接在某个库上删除的行先记墓碑，本轮同步即可把删除传播出去 (而不是把行复活)
+        changes.forEach((d, set) -> set.getDeleted().forEach((t, versions) -> tombstones.recordDeleted(d, t, versions)));
+
+        sync.accept(changes);
+
+        changes.forEach((d, set) -> {
+            saveWatermarks(set.getCursors());
+            sourceOf.apply(d).committed(d, set);
+        });
     }
-    @Transactional
-    public void syncToMysqlQuestion(Question q) {
-        String update = "UPDATE question SET content=?1, type=?2, difficulty=?3, knowledge_point=?4, answer=?5, update_time=?6 WHERE id=?7";
-        int rows = mysqlEm.createNativeQuery(update).setParameter(1, q.getContent()).setParameter(2, q.getType()).setParameter(3, q.getDifficulty()).setParameter(4, q.getKnowledgePoint()).setParameter(5, q.getAnswer()).setParameter(6, q.getUpdateTime()).setParameter(7, q.getId()).executeUpdate();
-        if (rows == 0) {
-            String insert = "INSERT INTO question (id, content, type, difficulty, knowledge_point, answer, update_time) VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7)";
-            mysqlEm.createNativeQuery(insert).setParameter(1, q.getId()).setParameter(2, q.getContent()).setParameter(3, q.getType()).setParameter(4, q.getDifficulty()).setParameter(5, q.getKnowledgePoint()).setParameter(6, q.getAnswer()).setParameter(7, q.getUpdateTime()).executeUpdate();
+
+    /**
+     * 经熔断器读取某个库：熔断中直接返回 skipped；读取成功 / 失败计入该库的健康状态，失败仍然抛出
+     * (跳过的库当作没有数据参与比对，它缺的行由 SyncApplier 转入 hint 日志，恢复后重放)
+     */
+    private <R> R readFrom(SyncDialect d, Callable<R> read, R skipped) throws Exception {
+        if (!health.allow(d)) return skipped;
+        try {
+            R result = read.call();
+            health.recordSuccess(d);
+            return result;
+        } catch (Exception e) {
+            health.recordFailure(d, e);
+            throw e;
         }
     }
-    @Transactional
-    public void syncToMysqlPaper(Paper p) {
-        String update = "UPDATE paper SET paper_name=?1, total_score=?2, teacher_id=?3, create_time=?4, update_time=?5 WHERE id=?6";
-        int rows = mysqlEm.createNativeQuery(update).setParameter(1, p.getPaperName()).setParameter(2, p.getTotalScore()).setParameter(3, p.getTeacher() != null ? p.getTeacher().getId() : null).setParameter(4, p.getCreateTime()).setParameter(5, p.getUpdateTime()).setParameter(6, p.getId()).executeUpdate();
-        if (rows == 0) {
-            String insert = "INSERT INTO paper (id, paper_name, total_score, teacher_id, create_time, update_time) VALUES (?1, ?2, ?3, ?4, ?5, ?6)";
-            mysqlEm.createNativeQuery(insert).setParameter(1, p.getId()).setParameter(2, p.getPaperName()).setParameter(3, p.getTotalScore()).setParameter(4, p.getTeacher() != null ? p.getTeacher().getId() : null).setParameter(5, p.getCreateTime()).setParameter(6, p.getUpdateTime()).executeUpdate();
+
+    // 只为本库还没取到的 id 查库 (分批 IN 查询，避免 Oracle IN 列表超过 1000)
+    private Map<Long, RowVersion> fillMissing(Set<Long> ids, Map<Long, RowVersion> rows, Function<Collection<Long>, List<RowVersion>> finder) {
+        List<Long> missing = ids.stream().filter(id -> rows.get(id) == null).collect(Collectors.toList());
+        for (int i = 0; i < missing.size(); i += incrementalPageSize) {
+            List<Long> chunk = missing.subList(i, Math.min(missing.size(), i + incrementalPageSize));
+            finder.apply(chunk).forEach(row -> rows.put(row.id(), row));
         }
-    }
-    @Transactional
-    public void syncToMysqlPaperQuestions(Paper p, List<PaperQuestion> pqs) {
-        mysqlEm.createNativeQuery("DELETE FROM paper_question WHERE paper_id = ?1").setParameter(1, p.getId()).executeUpdate();
-        for (PaperQuestion pq : pqs) {
-            mysqlEm.createNativeQuery("INSERT INTO paper_question (paper_id, question_id, score) VALUES (?1, ?2, ?3)").setParameter(1, p.getId()).setParameter(2, pq.getQuestion().getId()).setParameter(3, pq.getScore()).executeUpdate();
+        return rows;
+    }
+
+    // 同步成功后才落库，失败则下次从旧水位重新扫描
+    private void saveWatermarks(List<SyncWatermark> marks) {
+        for (SyncWatermark mark : marks) {
+            SyncWatermark current = watermarkRepo.findByTableNameAndDbName(mark.getTableName(), mark.getDbName()).orElse(null);
+            if (current == null) {
+                watermarkRepo.save(mark);
+            } else if (current.isBefore(mark.getLastUpdateTime(), mark.getLastId())) {
+                current.setLastUpdateTime(mark.getLastUpdateTime());
+                current.setLastId(mark.getLastId());
+                current.setUpdateTime(LocalDateTime.now());
+                watermarkRepo.save(current);
+            }
         }
     }
-    @Transactional
-    public void syncToMysqlResult(ExamResult r) {
-        Long sid = r.getStudent() != null ? r.getStudent().getId() : null;
-        Long pid = r.getPaper() != null ? r.getPaper().getId() : null;
-
-        // 【修复】增加了 student_answers=?6
-        String update = "UPDATE exam_result SET student_id=?1, paper_id=?2, score=?3, exam_time=?4, update_time=?5, student_answers=?6 WHERE id=?7";
-        int rows = mysqlEm.createNativeQuery(update)
-                .setParameter(1, sid).setParameter(2, pid).setParameter(3, r.getScore())
-                .setParameter(4, r.getCreateTime()).setParameter(5, r.getUpdateTime())
-                .setParameter(6, r.getStudentAnswers()) // 设置答题JSON
-                .setParameter(7, r.getId()).executeUpdate();
-
-        if (rows == 0) {
-            // 【修复】增加了 student_answers 字段
-            String insert = "INSERT INTO exam_result (id, student_id, paper_id, score, exam_time, update_time, student_answers) VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7)";
-            mysqlEm.createNativeQuery(insert)
-                    .setParameter(1, r.getId()).setParameter(2, sid).setParameter(3, pid)
-                    .setParameter(4, r.getScore()).setParameter(5, r.getCreateTime())
-                    .setParameter(6, r.getUpdateTime())
-                    .setParameter(7, r.getStudentAnswers()) // 设置答题JSON
-                    .executeUpdate();
-        }
+
+    // 增量同步的变更集 (已按 id 取齐) 转成按 id 升序对齐的三路行，与全量对账走同一套比对逻辑
+    private <T> List<MergedRow<T>> mergeMaps(Map<Long, T> mM, Map<Long, T> oM, Map<Long, T> sM) {
+        List<Long> ids = new ArrayList<>(unionIds(mM, oM, sM));
+        Collections.sort(ids);
+        List<MergedRow<T>> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) rows.add(new MergedRow<>(id, mM.get(id), oM.get(id), sM.get(id)));
+        return rows;
     }
 
-    // Manual Fix
-    @Transactional(transactionManager = "transactionManagerOracle")
-    public void syncSinglePaperToOracle(Long paperId) {
-        Paper p = mysqlPaperRepo.findById(paperId).orElse(null);
-        if (p != null) {
-            self.syncToOraclePaper(p);
-            List<PaperQuestion> pqs = mysqlPaperQuestionRepo.findAll().stream().filter(pq -> pq.getPaper().getId().equals(paperId)).collect(Collectors.toList());
-            self.syncToOraclePaperQuestions(p, pqs);
-        }
+    private <T> Map<SyncDialect, SyncPipeline.PageReader<T>> readers(SyncPipeline.PageReader<T> mysql,
+                                                                       SyncPipeline.PageReader<T> oracle,
+                                                                       SyncPipeline.PageReader<T> sqlServer) {
+        Map<SyncDialect, SyncPipeline.PageReader<T>> readers = new EnumMap<>(SyncDialect.class);
+        readers.put(SyncDialect.MYSQL, mysql);
+        readers.put(SyncDialect.ORACLE, oracle);
+        readers.put(SyncDialect.SQLSERVER, sqlServer);
+        return readers;
     }
-    @Transactional(transactionManager = "transactionManagerSqlServer")
-    public void syncSinglePaperToSqlServer(Long paperId) {
-        Paper p = mysqlPaperRepo.findById(paperId).orElse(null);
-        if (p != null) {
-            self.syncToSqlServerPaper(p);
-            List<PaperQuestion> pqs = mysqlPaperQuestionRepo.findAll().stream().filter(pq -> pq.getPaper().getId().equals(paperId)).collect(Collectors.toList());
-            self.syncToSqlServerPaperQuestions(p, pqs);
-        }
+
+    @SafeVarargs
+    private static Set<Long> unionIds(Map<Long, ?>... maps) {
+        Set<Long> ids = new HashSet<>();
+        for (Map<Long, ?> map : maps) ids.addAll(map.keySet());
+        return ids;
     }
 
-    // Delete Globally
-    @Transactional
+    // =========================================================
+    // 8. Delete Globally
+    // =========================================================
+    // Delete Globally: MySQL 立即删除并记录墓碑，其它库由同步按墓碑批量删除 (见 TombstoneStore)
     public void deletePaperGlobally(Long paperId) {
-        List<ExamResult> results = mysqlExamResultRepo.findAll().stream().filter(r -> r.getPaper() != null && r.getPaper().getId().equals(paperId)).collect(Collectors.toList());
-        if (!results.isEmpty()) mysqlExamResultRepo.deleteAll(results);
-        mysqlPaperQuestionRepo.deleteByPaperId(paperId);
-        mysqlPaperRepo.deleteById(paperId);
-        self.deletePaperOracle(paperId);
-        self.deletePaperSqlServer(paperId);
-    }
-    @Transactional(transactionManager = "transactionManagerOracle")
-    public void deletePaperOracle(Long paperId) {
-        oracleEm.createNativeQuery("DELETE FROM exam_result WHERE paper_id = ?1").setParameter(1, paperId).executeUpdate();
-        oracleEm.createNativeQuery("DELETE FROM paper_question WHERE paper_id = ?1").setParameter(1, paperId).executeUpdate();
-        oracleEm.createNativeQuery("DELETE FROM paper WHERE id = ?1").setParameter(1, paperId).executeUpdate();
-    }
-    @Transactional(transactionManager = "transactionManagerSqlServer")
-    public void deletePaperSqlServer(Long paperId) {
-        org.hibernate.Session session = sqlServerEm.unwrap(org.hibernate.Session.class);
-        session.doWork(connection -> {
-            try (java.sql.Statement stmt = connection.createStatement()) {
-                try (java.sql.PreparedStatement ps = connection.prepareStatement("DELETE FROM dbo.exam_result WHERE paper_id = ?")) { ps.setLong(1, paperId); ps.executeUpdate(); }
-                try (java.sql.PreparedStatement ps = connection.prepareStatement("DELETE FROM dbo.paper_question WHERE paper_id = ?")) { ps.setLong(1, paperId); ps.executeUpdate(); }
-                try (java.sql.PreparedStatement ps = connection.prepareStatement("DELETE FROM dbo.paper WHERE id = ?")) { ps.setLong(1, paperId); ps.executeUpdate(); }
-            } catch (Exception e) { throw new RuntimeException(e.getMessage()); }
-        });
+        tombstones.delete("paper", List.of(paperId));
     }
-    @Transactional
     public void deleteUserGlobally(Long userId) {
-        mysqlExamResultRepo.deleteByStudentId(userId);
-        if (mysqlUserRepo.existsById(userId)) mysqlUserRepo.deleteById(userId);
-        self.deleteUserOracle(userId);
-        self.deleteUserSqlServer(userId);
-    }
-    @Transactional(transactionManager = "transactionManagerOracle")
-    public void deleteUserOracle(Long userId) {
-        oracleEm.createNativeQuery("DELETE FROM exam_result WHERE student_id = ?1").setParameter(1, userId).executeUpdate();
-        oracleEm.createNativeQuery("UPDATE paper SET teacher_id = NULL WHERE teacher_id = ?1").setParameter(1, userId).executeUpdate();
-        oracleEm.createNativeQuery("DELETE FROM sys_user WHERE id = ?1").setParameter(1, userId).executeUpdate();
-    }
-    @Transactional(transactionManager = "transactionManagerSqlServer")
-    public void deleteUserSqlServer(Long userId) {
-        org.hibernate.Session session = sqlServerEm.unwrap(org.hibernate.Session.class);
-        session.doWork(connection -> {
-            try (java.sql.Statement stmt = connection.createStatement()) {
-                try (java.sql.PreparedStatement ps = connection.prepareStatement("DELETE FROM dbo.exam_result WHERE student_id = ?")) { ps.setLong(1, userId); ps.executeUpdate(); }
-                try (java.sql.PreparedStatement ps = connection.prepareStatement("UPDATE dbo.paper SET teacher_id = NULL WHERE teacher_id = ?")) { ps.setLong(1, userId); ps.executeUpdate(); }
-                try (java.sql.PreparedStatement ps = connection.prepareStatement("DELETE FROM dbo.sys_user WHERE id = ?")) { ps.setLong(1, userId); ps.executeUpdate(); }
-            } catch (Exception e) { throw new RuntimeException(e.getMessage()); }
-        });
+        tombstones.delete("sys_user", List.of(userId));
     }
-    @Transactional
     public void deleteQuestionGlobally(Long questionId) {
-        List<PaperQuestion> pqs = mysqlPaperQuestionRepo.findAll().stream().filter(pq -> pq.getQuestion().getId().equals(questionId)).collect(Collectors.toList());
-        if (!pqs.isEmpty()) mysqlPaperQuestionRepo.deleteAll(pqs);
-        if (mysqlQuestionRepo.existsById(questionId)) mysqlQuestionRepo.deleteById(questionId);
-        self.deleteQuestionOracle(questionId);
-        self.deleteQuestionSqlServer(questionId);
-    }
-    @Transactional(transactionManager = "transactionManagerOracle")
-    public void deleteQuestionOracle(Long questionId) {
-        oracleEm.createNativeQuery("DELETE FROM paper_question WHERE question_id = ?1").setParameter(1, questionId).executeUpdate();
-        oracleEm.createNativeQuery("DELETE FROM question WHERE id = ?1").setParameter(1, questionId).executeUpdate();
-    }
-    @Transactional(transactionManager = "transactionManagerSqlServer")
-    public void deleteQuestionSqlServer(Long questionId) {
-        org.hibernate.Session session = sqlServerEm.unwrap(org.hibernate.Session.class);
-        session.doWork(connection -> {
-            try (java.sql.Statement stmt = connection.createStatement()) {
-                try (java.sql.PreparedStatement ps = connection.prepareStatement("DELETE FROM dbo.paper_question WHERE question_id = ?")) { ps.setLong(1, questionId); ps.executeUpdate(); }
-                try (java.sql.PreparedStatement ps = connection.prepareStatement("DELETE FROM dbo.question WHERE id = ?")) { ps.setLong(1, questionId); ps.executeUpdate(); }
-            } catch (Exception e) { throw new RuntimeException(e.getMessage()); }
-        });
+        tombstones.delete("question", List.of(questionId));
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.exam.backend.entity.User;
 import com.exam.backend.repository.mysql.MysqlUserRepository;
 import com.exam.backend.repository.oracle.OracleUserRepository;
 import com.exam.backend.repository.sqlserver.SqlServerUserRepository;
+import com.exam.backend.service.sync.WriteBehindQueue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -21,6 +22,7 @@ public class UserService {
 
 
     @Autowired private SyncService syncService;
+    @Autowired private WriteBehindQueue writeBehind;
 
 
 
@@ -89,6 +91,7 @@ public class UserService {
     // === 删除用户 ===
     public void deleteUser(Long id) {
         syncService.deleteUserGlobally(id);
+        writeBehind.enqueue("sys_user", id);
     }
 
     // ==========================================
@@ -131,18 +134,17 @@ public class UserService {
         switch (currentDb) {
             case "Oracle":
                 result = oracleUserRepository.save(user);
-                syncService.syncUsersBidirectional();
                 break;
             case "SQLServer":
                 result = sqlServerUserRepository.save(user);
-                syncService.syncUsersBidirectional();
                 break;
             case "MySQL":
             default:
                 result = mysqlUserRepository.save(user);
-                syncService.syncUsersBidirectional();
                 break;
         }
+        // 登记复制任务，由后台线程同步到其它库
+        writeBehind.enqueue("sys_user", result.getId());
         return result;
     }
 }
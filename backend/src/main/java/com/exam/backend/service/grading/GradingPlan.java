@@ -0,0 +1,71 @@
+package com.exam.backend.service.grading;
+
+import com.exam.backend.entity.Paper;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一张试卷编译后的判分方案 (不可变)
+ * 只保留判分需要的数据：按题目 id 升序排列的 id / 标准答案 / 分值数组，不含题干等大字段。
+ * 判分时遍历学生的作答，二分查找题目，不分配 BigDecimal 等中间对象。
+ */
+public final class GradingPlan {
+
+    private final long paperId;
+    private final String paperName;
+    private final Integer totalScore;
+    private final long[] questionIds;
+    private final String[] answers;
+    private final int[] scores;
+
+    /**
+     * @param rows 试卷的题目：{question_id, answer, score}
+     */
+    GradingPlan(long paperId, String paperName, Integer totalScore, List<Object[]> rows) {
+        this.paperId = paperId;
+        this.paperName = paperName;
+        this.totalScore = totalScore;
+        Object[][] sorted = rows.toArray(new Object[0][]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(((Number) a[0]).longValue(), ((Number) b[0]).longValue()));
+        this.questionIds = new long[sorted.length];
+        this.answers = new String[sorted.length];
+        this.scores = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            questionIds[i] = ((Number) sorted[i][0]).longValue();
+            answers[i] = (String) sorted[i][1];
+            scores[i] = sorted[i][2] == null ? 0 : ((Number) sorted[i][2]).intValue();
+        }
+    }
+
+    /**
+     * 判分：答案与标准答案忽略大小写相同即得该题分值
+     */
+    public int grade(Map<Long, String> studentAnswers) {
+        if (studentAnswers == null) return 0;
+        int total = 0;
+        for (Map.Entry<Long, String> e : studentAnswers.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) continue;
+            int i = Arrays.binarySearch(questionIds, e.getKey());
+            if (i >= 0 && e.getValue().equalsIgnoreCase(answers[i])) total += scores[i];
+        }
+        return total;
+    }
+
+    public boolean contains(long questionId) {
+        return Arrays.binarySearch(questionIds, questionId) >= 0;
+    }
+
+    // 成绩记录引用的试卷 (只带 id 与基本信息，保存成绩时只用到 id)
+    public Paper paperRef() {
+        Paper paper = new Paper();
+        paper.setId(paperId);
+        paper.setPaperName(paperName);
+        paper.setTotalScore(totalScore);
+        return paper;
+    }
+
+    public long getPaperId() { return paperId; }
+    public int getQuestionCount() { return questionIds.length; }
+}
@@ -0,0 +1,66 @@
+package com.exam.backend.service.grading;
+
+import com.exam.backend.entity.Paper;
+import com.exam.backend.repository.mysql.MysqlPaperQuestionRepository;
+import com.exam.backend.repository.mysql.MysqlPaperRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 判分方案缓存 (LRU，最多 exam.grading.cache-size 张试卷)
+ * 第一次判某张试卷时从 MySQL 编译判分方案 (只查题目 id / 答案 / 分值)，之后直接复用。
+ * 试卷或其中的试题被修改 (业务写入或同步写入 MySQL) 时失效，下次判分重新编译。
+ */
+@Component
+public class GradingPlanCache {
+
+    @Autowired private MysqlPaperRepository mysqlPaperRepo;
+    @Autowired private MysqlPaperQuestionRepository mysqlPaperQuestionRepo;
+
+    private final Map<Long, GradingPlan> plans;
+    // 失效计数：编译期间发生失效时，编译出的方案可能已经过时，不放入缓存
+    private long invalidations;
+
+    public GradingPlanCache(@Value("${exam.grading.cache-size:256}") int capacity) {
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, GradingPlan> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public GradingPlan get(Long paperId) {
+        long generation;
+        synchronized (this) {
+            GradingPlan plan = plans.get(paperId);
+            if (plan != null) return plan;
+            generation = invalidations;
+        }
+        GradingPlan plan = compile(paperId);
+        synchronized (this) {
+            if (generation == invalidations) plans.put(paperId, plan);
+        }
+        return plan;
+    }
+
+    private GradingPlan compile(Long paperId) {
+        Paper paper = mysqlPaperRepo.findById(paperId).orElseThrow(() -> new RuntimeException("试卷不存在"));
+        return new GradingPlan(paperId, paper.getPaperName(), paper.getTotalScore(),
+                mysqlPaperQuestionRepo.findAnswerKeyByPaperId(paperId));
+    }
+
+    public synchronized void invalidatePapers(Collection<Long> paperIds) {
+        invalidations++;
+        paperIds.forEach(plans::remove);
+    }
+
+    // 试题被修改：包含这些试题的试卷都失效 (只检查缓存中的方案，不查库)
+    public synchronized void invalidateQuestions(Collection<Long> questionIds) {
+        invalidations++;
+        plans.values().removeIf(plan -> questionIds.stream().anyMatch(id -> id != null && plan.contains(id)));
+    }
+}
@@ -0,0 +1,387 @@
+package com.exam.backend.service.submit;
+
+import com.exam.backend.common.DbSwitchContext;
+import com.exam.backend.entity.ExamResult;
+import com.exam.backend.entity.Paper;
+import com.exam.backend.entity.User;
+import com.exam.backend.repository.mysql.MysqlExamResultRepository;
+import com.exam.backend.repository.oracle.OracleExamResultRepository;
+import com.exam.backend.repository.sqlserver.SqlServerExamResultRepository;
+import com.exam.backend.service.sync.WriteBehindQueue;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * 交卷缓冲 (group commit)
+ * 交卷请求判分后只追加写本地日志并返回，由后台线程把成绩成批写入主库、一个事务提交一次：
+ *   - journal.log    : 每行 "序号 学生 试卷 得分 交卷时间 答案JSON" (制表符分隔)
+ *   - journal.offset : 已写入主库的最大序号；重启时重放其后的条目
+ * 落盘也是成组的：并发的交卷请求各自追加后，由先拿到锁的请求调用一次 force，
+ * 替所有已追加的请求落盘，其余请求发现已经落盘直接返回。
+ * 写库失败时条目保留，按指数退避重试；约束冲突 (学生 / 试卷已被删除) 的条目逐条隔离到 dead-letter.log，不阻塞后面的交卷。
+ * 写库成功、偏移尚未保存时进程崩溃，重启重放时按 (学生, 试卷, 交卷时间) 查重，已写入的不再写。
+ */
+@Component
+public class SubmissionBuffer {
+
+    // replayed: 启动时从日志重放的条目 (上次可能已经写入主库，写入前先查重)
+    record Entry(long seq, long studentId, long paperId, BigDecimal score, long submittedAt, String answers, boolean replayed) {}
+
+    @Autowired private MysqlExamResultRepository mysqlExamResultRepo;
+    @Autowired private OracleExamResultRepository oracleExamResultRepo;
+    @Autowired private SqlServerExamResultRepository sqlServerExamResultRepo;
+    @Autowired private WriteBehindQueue writeBehind;
+
+    @Value("${exam.submit.dir:./data/submissions}") private String dir;
+    @Value("${exam.submit.batch-size:200}") private int batchSize;
+    @Value("${exam.submit.linger-ms:20}") private long lingerMs;
+    @Value("${exam.submit.max-pending:50000}") private int maxPending;
+    @Value("${exam.submit.max-backoff-ms:30000}") private long maxBackoffMs;
+
+    private final Map<String, TransactionTemplate> txByDb = new HashMap<>();
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    private FileChannel journal;
+    private Path offsetFile;
+    private Path deadLetterFile;
+    private long nextSeq = 1;
+
+    // 成组落盘
+    private final Object fsyncLock = new Object();
+    private volatile long writtenSeq;
+    private volatile long durableSeq;
+
+    // 监控指标
+    private volatile long accepted, flushed, batches, fsyncs, failures, quarantined;
+    private volatile long lastBatchSize, lastFlushMs, maxFlushMs, totalFlushMs;
+    private volatile String lastError;
+
+    private Thread flusher;
+    private volatile boolean running = true;
+
+    public SubmissionBuffer(@Qualifier("mysqlTransactionManager") PlatformTransactionManager mysqlTm,
+                            @Qualifier("transactionManagerOracle") PlatformTransactionManager oracleTm,
+                            @Qualifier("transactionManagerSqlServer") PlatformTransactionManager sqlServerTm) {
+        txByDb.put("MySQL", new TransactionTemplate(mysqlTm));
+        txByDb.put("Oracle", new TransactionTemplate(oracleTm));
+        txByDb.put("SQLServer", new TransactionTemplate(sqlServerTm));
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path base = Paths.get(dir);
+        Files.createDirectories(base);
+        Path journalFile = base.resolve("journal.log");
+        offsetFile = base.resolve("journal.offset");
+        deadLetterFile = base.resolve("dead-letter.log");
+
+        long offset = Files.exists(offsetFile) ? Long.parseLong(Files.readString(offsetFile).trim()) : 0L;
+        nextSeq = offset + 1;
+        if (Files.exists(journalFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    String[] f = line.split("\t", 6);
+                    if (f.length != 6) continue; // 崩溃时写了一半的行
+                    Entry e = new Entry(Long.parseLong(f[0]), Long.parseLong(f[1]), Long.parseLong(f[2]),
+                            new BigDecimal(f[3]), Long.parseLong(f[4]), f[5], true);
+                    if (e.seq() > offset) pending.add(e);
+                    nextSeq = Math.max(nextSeq, e.seq() + 1);
+                }
+            }
+        }
+        writtenSeq = durableSeq = nextSeq - 1;
+        dropTornTail(journalFile);
+        journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (!pending.isEmpty()) System.out.println(">>> [交卷缓冲] 重放未写入主库的交卷 " + pending.size() + " 份");
+
+        flusher = new Thread(this::flushLoop, "exam-submit-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // 截掉崩溃时写了一半的末行：否则下一份交卷会接在它后面，下次重放时连同它一起被当作残行丢弃
+    private static void dropTornTail(Path file) throws IOException {
+        if (!Files.exists(file)) return;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            long end = ch.size();
+            while (end > 0) {
+                b.clear();
+                ch.read(b, end - 1);
+                if (b.get(0) == '\n') break;
+                end--;
+            }
+            if (end < ch.size()) ch.truncate(end);
+        }
+    }
+
+    /**
+     * 登记一份已判分的答卷，落盘后返回 (成绩稍后写入主库)
+     */
+    public void submit(ExamResult result) {
+        Entry e;
+        synchronized (lock) {
+            if (pending.size() >= maxPending) throw new RuntimeException("交卷人数过多，请稍后重试");
+            e = new Entry(nextSeq++, result.getStudent().getId(), result.getPaper().getId(), result.getScore(),
+                    result.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                    result.getStudentAnswers() == null ? "" : result.getStudentAnswers(), false);
+            try {
+                ByteBuffer line = StandardCharsets.UTF_8.encode(line(e));
+                while (line.hasRemaining()) journal.write(line);
+            } catch (IOException ex) {
+                throw new RuntimeException("写入交卷日志失败: " + ex.getMessage(), ex);
+            }
+            writtenSeq = e.seq();
+            pending.add(e);
+            accepted++;
+            lock.notifyAll();
+        }
+        awaitDurable(e.seq());
+    }
+
+    private static String line(Entry e) {
+        return e.seq() + "\t" + e.studentId() + "\t" + e.paperId() + "\t"
+                + e.score().toPlainString() + "\t" + e.submittedAt() + "\t" + e.answers() + "\n";
+    }
+
+    // 先拿到锁的请求替所有已追加的条目落盘
+    private void awaitDurable(long seq) {
+        synchronized (fsyncLock) {
+            if (durableSeq >= seq) return;
+            long target = writtenSeq;
+            try {
+                journal.force(false);
+            } catch (IOException ex) {
+                throw new RuntimeException("交卷日志落盘失败: " + ex.getMessage(), ex);
+            }
+            durableSeq = target;
+            fsyncs++;
+        }
+    }
+
+    private void flushLoop() {
+        long backoff = 0;
+        while (running) {
+            List<Entry> batch = new ArrayList<>();
+            try {
+                synchronized (lock) {
+                    while (pending.isEmpty() && running) lock.wait();
+                    // 不足一批时再等 linger-ms，让同一时刻的交卷并入同一个事务
+                    if (pending.size() < batchSize && lingerMs > 0) lock.wait(lingerMs);
+                    Iterator<Entry> it = pending.iterator();
+                    while (it.hasNext() && batch.size() < batchSize) {
+                        Entry e = it.next();
+                        if (e.seq() > durableSeq) break; // 还没落盘的不写库
+                        batch.add(e);
+                    }
+                    // 队首还在等落盘，稍后再取
+                    if (batch.isEmpty()) lock.wait(Math.max(1, lingerMs));
+                }
+                if (batch.isEmpty()) continue;
+
+                long start = System.currentTimeMillis();
+                List<ExamResult> saved = new ArrayList<>();
+                int settled = flush(batch, saved);
+                if (settled > 0) {
+                    commit(batch.subList(0, settled));
+                    record(settled, System.currentTimeMillis() - start);
+                    saved.forEach(r -> writeBehind.enqueue("exam_result", r.getId()));
+                }
+                if (settled < batch.size()) throw new IllegalStateException(lastError);
+                backoff = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failures++;
+                lastError = e.getMessage();
+                backoff = backoff == 0 ? 500 : Math.min(maxBackoffMs, backoff * 2);
+                System.err.println(">>> [交卷缓冲] 写入主库失败，" + backoff + "ms 后重试 (" + batch.size() + " 份): " + e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入一批，返回已处理完的条数 (写入成功或移入死信，总是队首的连续若干条)。
+     * 整批失败且是约束冲突 (如学生 / 试卷已被删除，外键不成立) 时逐条重写，冲突的条目移入死信文件，不再挡住后面的交卷；
+     * 其它失败 (连接断开、主库切换中) 不隔离任何条目，已处理的之后的条目留在队列里退避重试。
+     */
+    int flush(List<Entry> batch, List<ExamResult> saved) {
+        try {
+            saved.addAll(save(batch));
+            return batch.size();
+        } catch (DataIntegrityViolationException e) {
+            System.err.println(">>> [交卷缓冲] 整批写入冲突，逐条重写 (" + batch.size() + " 份): " + e.getMessage());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Entry entry = batch.get(i);
+            try {
+                saved.addAll(save(List.of(entry)));
+            } catch (DataIntegrityViolationException e) {
+                if (!quarantine(entry, e)) return i;
+            } catch (RuntimeException e) {
+                lastError = e.getMessage();
+                return i;
+            }
+        }
+        return batch.size();
+    }
+
+    // 一批成绩写入当前主库，一个事务提交一次；重放的条目先按 (学生, 试卷, 交卷时间) 查重，上次已写入的跳过
+    private List<ExamResult> save(List<Entry> batch) {
+        String currentDb = DbSwitchContext.getCurrentMasterDb();
+        TransactionTemplate tx = txByDb.getOrDefault(currentDb, txByDb.get("MySQL"));
+        return tx.execute(status -> {
+            List<ExamResult> results = new ArrayList<>(batch.size());
+            for (Entry e : batch) {
+                ExamResult r = toResult(e);
+                if (e.replayed() && exists(currentDb, r)) continue;
+                results.add(r);
+            }
+            return switch (currentDb) {
+                case "Oracle" -> oracleExamResultRepo.saveAll(results);
+                case "SQLServer" -> sqlServerExamResultRepo.saveAll(results);
+                default -> mysqlExamResultRepo.saveAll(results);
+            };
+        });
+    }
+
+    private boolean exists(String db, ExamResult r) {
+        Long studentId = r.getStudent().getId(), paperId = r.getPaper().getId();
+        return switch (db) {
+            case "Oracle" -> oracleExamResultRepo.existsByStudentIdAndPaperIdAndCreateTime(studentId, paperId, r.getCreateTime());
+            case "SQLServer" -> sqlServerExamResultRepo.existsByStudentIdAndPaperIdAndCreateTime(studentId, paperId, r.getCreateTime());
+            default -> mysqlExamResultRepo.existsByStudentIdAndPaperIdAndCreateTime(studentId, paperId, r.getCreateTime());
+        };
+    }
+
+    private static ExamResult toResult(Entry e) {
+        User student = new User();
+        student.setId(e.studentId());
+        Paper paper = new Paper();
+        paper.setId(e.paperId());
+        LocalDateTime submitted = LocalDateTime.ofInstant(Instant.ofEpochMilli(e.submittedAt()), ZoneId.systemDefault());
+
+        ExamResult result = new ExamResult();
+        result.setStudent(student);
+        result.setPaper(paper);
+        result.setScore(e.score());
+        result.setStudentAnswers(e.answers().isEmpty() ? null : e.answers());
+        result.setCreateTime(submitted);
+        result.setUpdateTime(submitted);
+        return result;
+    }
+
+    // 死信文件：原日志行 + 错误信息，人工处理后可以重新提交
+    private boolean quarantine(Entry e, Exception cause) {
+        String error = String.valueOf(cause.getMessage()).replaceAll("[\\t\\r\\n]", " ");
+        try {
+            Files.writeString(deadLetterFile, line(e).replace("\n", "\t" + error + "\n"), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        } catch (IOException ex) {
+            // 死信写不进去就不能丢掉这份交卷，按普通失败退避重试
+            lastError = "写入交卷死信失败: " + ex.getMessage();
+            return false;
+        }
+        quarantined++;
+        System.err.println(">>> [交卷缓冲] 交卷 #" + e.seq() + " (学生 " + e.studentId() + ", 试卷 " + e.paperId() + ") 无法写入，已移入死信: " + error);
+        return true;
+    }
+
+    /**
+     * 出队并记录偏移；队列已空且偏移已保存时截断日志 (序号继续递增，偏移文件仍然有效)。
+     * 出队先于保存偏移：偏移写失败时这些条目不会在本进程内再写一次，重启重放时由查重跳过。
+     */
+    private void commit(List<Entry> done) {
+        long lastSeq = done.get(done.size() - 1).seq();
+        synchronized (lock) {
+            for (int i = 0; i < done.size(); i++) pending.poll();
+        }
+        try {
+            Path tmp = offsetFile.resolveSibling("journal.offset.tmp");
+            Files.writeString(tmp, Long.toString(lastSeq));
+            Files.move(tmp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            lastError = "保存交卷日志偏移失败: " + e.getMessage();
+            System.err.println(">>> [交卷缓冲] " + lastError);
+            return;
+        }
+        synchronized (lock) {
+            if (!pending.isEmpty()) return;
+            synchronized (fsyncLock) {
+                try {
+                    if (durableSeq == writtenSeq) journal.truncate(0);
+                } catch (IOException e) {
+                    System.err.println(">>> [交卷缓冲] 截断交卷日志失败: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void record(int size, long elapsedMs) {
+        flushed += size;
+        batches++;
+        lastBatchSize = size;
+        lastFlushMs = elapsedMs;
+        maxFlushMs = Math.max(maxFlushMs, elapsedMs);
+        totalFlushMs += elapsedMs;
+    }
+
+    /**
+     * 积压指标：队列深度、最早一份等待的毫秒数、每批写库耗时等
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            Entry oldest = pending.peek();
+            stats.put("pending", pending.size());
+            stats.put("oldestWaitMillis", oldest == null ? 0 : System.currentTimeMillis() - oldest.submittedAt());
+        }
+        stats.put("accepted", accepted);
+        stats.put("flushed", flushed);
+        stats.put("batches", batches);
+        stats.put("avgBatchSize", batches == 0 ? 0 : flushed / batches);
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastFlushMillis", lastFlushMs);
+        stats.put("avgFlushMillis", batches == 0 ? 0 : totalFlushMs / batches);
+        stats.put("maxFlushMillis", maxFlushMs);
+        stats.put("fsyncs", fsyncs);
+        stats.put("failures", failures);
+        stats.put("quarantined", quarantined);
+        stats.put("lastError", lastError);
+        return stats;
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        if (flusher != null) flusher.interrupt();
+        if (journal != null) journal.close();
+    }
+}
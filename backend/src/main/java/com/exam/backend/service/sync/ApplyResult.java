@@ -0,0 +1,71 @@
+package com.exam.backend.service.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次 (目标库, 表) 写入的结果：成功行数 + 被隔离的失败行
+ */
+public class ApplyResult {
+
+    public static class Failure {
+        private final String key;
+        private final Long id;
+        private final String error;
+
+        public Failure(String key, Long id, String error) {
+            this.key = key;
+            this.id = id;
+            this.error = error;
+        }
+
+        public String getKey() { return key; }
+        public Long getId() { return id; }
+        public String getError() { return error; }
+    }
+
+    private final SyncDialect target;
+    private final String table;
+    private int applied;
+    private int deferred;    // 目标库熔断 / 连接失败，转入 hint 日志待恢复后重放的行
+    private int quarantined; // 在死信中且未到重试时间，本轮跳过的行
+    private final List<Failure> failures = new ArrayList<>();
+
+    public ApplyResult(SyncDialect target, String table) {
+        this.target = target;
+        this.table = table;
+    }
+
+    void addApplied(int count) { applied += count; }
+    void addDeferred(int count) { deferred += count; }
+    void addQuarantined(int count) { quarantined += count; }
+    void addFailure(String key, Long id, Throwable e) {
+        String msg = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        failures.add(new Failure(key, id, msg));
+    }
+    void merge(ApplyResult other) {
+        applied += other.applied;
+        deferred += other.deferred;
+        quarantined += other.quarantined;
+        failures.addAll(other.failures);
+    }
+
+    public SyncDialect getTarget() { return target; }
+    public String getTable() { return table; }
+    public int getApplied() { return applied; }
+    public int getDeferred() { return deferred; }
+    public int getQuarantined() { return quarantined; }
+    public List<Failure> getFailures() { return failures; }
+    public boolean hasFailures() { return !failures.isEmpty(); }
+
+    public boolean isFailed(String key) {
+        return failures.stream().anyMatch(f -> f.getKey().equals(key));
+    }
+
+    public String summary() {
+        return target.getDbName() + " " + table + ": 成功 " + applied + " 行, 失败 " + failures.size() + " 行"
+                + (deferred == 0 ? "" : ", 延后 " + deferred + " 行")
+                + (quarantined == 0 ? "" : ", 死信跳过 " + quarantined + " 行")
+                + (failures.isEmpty() ? "" : " (首个错误 id=" + failures.get(0).getKey() + ": " + failures.get(0).getError() + ")");
+    }
+}
@@ -0,0 +1,110 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.entity.SyncWatermark;
+
+import java.util.*;
+
+/**
+ * 一个库一轮读到的变更：按表合并后的行 id (同一行多次变更只记一次)，
+ * 以及读完后推进的游标 (尚未保存)。
+ * 游标失效、需要全量对账的表，只有对账完成 (resynced) 后游标才会被保存；否则保持旧游标，下一轮继续要求全量对账。
+ */
+public class ChangeSet {
+
+    private final Map<String, Map<Long, RowVersion>> rows = new HashMap<>();
+    private final Map<String, Map<Long, Long>> deleted = new HashMap<>();
+    private final Map<String, Set<Long>> requested = new HashMap<>();
+    private final Set<String> fullResync = new HashSet<>();
+    private final Set<String> resynced = new HashSet<>();
+    private final Map<String, SyncWatermark> cursors = new LinkedHashMap<>();
+
+    // 只知道 id 变了，版本稍后按 id 补齐
+    public void add(String table, Long id) {
+        rows.computeIfAbsent(table, k -> new HashMap<>()).putIfAbsent(id, null);
+        unrequest(table, id);
+    }
+
+    // 定向同步要求比对的行 (业务写入、依赖行)：不是变更来源报告的；同一行也被报告过 (先后不论) 则仍算报告
+    public void request(String table, Long id) {
+        Map<Long, RowVersion> tableRows = rows.computeIfAbsent(table, k -> new HashMap<>());
+        if (tableRows.containsKey(id)) return;
+        tableRows.put(id, null);
+        requested.computeIfAbsent(table, k -> new HashSet<>()).add(id);
+    }
+
+    // 变更来源顺带读到了版本 (update-time 扫描)，省去一次按 id 查询
+    public void add(String table, RowVersion version) {
+        rows.computeIfAbsent(table, k -> new HashMap<>()).put(version.id(), version);
+        unrequest(table, version.id());
+    }
+
+    // 变更来源能区分删除操作时 (outbox / change tracking)，记下被删除的行，同步前为它们记录墓碑
+    public void delete(String table, Long id) {
+        delete(table, id, null);
+    }
+
+    // 变更来源还记录了删除时间 (outbox)：墓碑版本取删除发生时的版本，而不是读到删除时的版本
+    public void delete(String table, Long id, Long version) {
+        add(table, id);
+        deleted.computeIfAbsent(table, k -> new HashMap<>()).merge(id, version == null ? Long.MIN_VALUE : version, Math::max);
+    }
+
+    // 游标已失效 (如 change tracking 的保留期已过)，该表需要全量对账
+    public void requireFullResync(String table) {
+        fullResync.add(table);
+    }
+
+    // 全量对账已经完成，该表的游标可以保存
+    public void resynced(String table) {
+        resynced.add(table);
+    }
+
+    public void advance(String table, SyncWatermark cursor) {
+        cursors.put(table, cursor);
+    }
+
+    // 表的变更行：id -> 版本 (未知时为 null)
+    public Map<Long, RowVersion> rows(String table) {
+        return rows.getOrDefault(table, Map.of());
+    }
+
+    private void unrequest(String table, Long id) {
+        Set<Long> ids = requested.get(table);
+        if (ids != null) ids.remove(id);
+    }
+
+    // 变更来源报告的行 id (不含定向同步要求的行)
+    public Set<Long> reported(String table) {
+        Set<Long> ids = new HashSet<>(rows(table).keySet());
+        ids.removeAll(requested.getOrDefault(table, Set.of()));
+        return ids;
+    }
+
+    // 表 -> 本轮读到的被删除的 id -> 删除时的版本 (未知时为 null)
+    public Map<String, Map<Long, Long>> getDeleted() {
+        Map<String, Map<Long, Long>> result = new HashMap<>();
+        deleted.forEach((table, ids) -> {
+            Map<Long, Long> versions = new HashMap<>();
+            ids.forEach((id, v) -> versions.put(id, v == Long.MIN_VALUE ? null : v));
+            result.put(table, versions);
+        });
+        return result;
+    }
+
+    public boolean requiresFullResync(String table) {
+        return fullResync.contains(table);
+    }
+
+    // 可以保存的游标：不需要全量对账的表，或全量对账已完成的表
+    public List<SyncWatermark> getCursors() {
+        List<SyncWatermark> ready = new ArrayList<>();
+        cursors.forEach((table, cursor) -> {
+            if (!fullResync.contains(table) || resynced.contains(table)) ready.add(cursor);
+        });
+        return ready;
+    }
+
+    public int size() {
+        return rows.values().stream().mapToInt(Map::size).sum();
+    }
+}
@@ -0,0 +1,46 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.repository.SyncSourceRepository;
+
+import java.util.Map;
+
+/**
+ * 变更来源 (增量同步从某个库拿到"哪些行变了")
+ * 每个库通过 sync.change-source.{mysql|oracle|sqlserver} 选择一种实现：
+ *   update-time     : 按 (update_time, id) 水位线扫描 (默认，三库通用；看不到删除)
+ *   outbox          : 消费触发器写入的 sync_change_log (见 sql/sync_outbox_*.sql)
+ *   change-tracking : SQL Server CHANGETABLE(CHANGES ...) (见 sql/sync_change_tracking_sqlserver.sql)
+ *   rowscn          : Oracle ORA_ROWSCN (看不到删除)
+ * 实现只负责读出变更的 id 和推进后的游标；游标在本轮同步成功后由调用方保存。
+ */
+public interface ChangeSource {
+
+    // 配置中使用的名字
+    String name();
+
+    boolean supports(SyncDialect db);
+
+    /**
+     * 读取某个库在游标之后的变更
+     * @param tables 需要关注的表 (表名 -> 该库的仓库)，按外键顺序
+     */
+    ChangeSet poll(SyncDialect db, Map<String, SyncSourceRepository<?>> tables);
+
+    // 能否报告物理删除 (ChangeSet.delete)；不能的来源下，直接在库上执行的删除会被同步回来
+    default boolean capturesDeletes() {
+        return false;
+    }
+
+    // 本轮同步成功、游标已保存之后回调 (如清理已消费的日志)
+    default void committed(SyncDialect db, ChangeSet changes) {
+    }
+
+    // 游标在 sys_sync_watermark 中的 db_name
+    static String watermarkDb(SyncDialect db) {
+        return switch (db) {
+            case MYSQL -> "MySQL";
+            case ORACLE -> "Oracle";
+            case SQLSERVER -> "SQLServer";
+        };
+    }
+}
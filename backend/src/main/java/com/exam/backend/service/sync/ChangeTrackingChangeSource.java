@@ -0,0 +1,92 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.entity.SyncWatermark;
+import com.exam.backend.repository.SyncSourceRepository;
+import com.exam.backend.repository.mysql.MysqlSyncWatermarkRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL Server 自带的 Change Tracking (需先执行 sql/sync_change_tracking_sqlserver.sql)
+ * 由数据库在提交时记录变更行的主键，不需要触发器，也不依赖 update_time 索引；删除同样可见。
+ * 每张表一个游标 (table_name = change_tracking:表名)，last_id 保存上次读到的版本号：
+ *   1. 先取当前版本 CHANGE_TRACKING_CURRENT_VERSION()
+ *   2. 再用 CHANGETABLE(CHANGES 表, 上次版本) 取变更主键 (可能多取到 1 之后提交的变更，下轮重复比对无害)
+ *   3. 游标从未初始化或早于 CHANGE_TRACKING_MIN_VALID_VERSION (超过保留期) 时，该表改为全量对账
+ */
+@Component
+public class ChangeTrackingChangeSource implements ChangeSource {
+
+    @Autowired private MysqlSyncWatermarkRepository watermarkRepo;
+
+    @PersistenceContext(unitName = "sqlServerPersistenceUnit") private EntityManager sqlServerEm;
+
+    @Override
+    public String name() {
+        return "change-tracking";
+    }
+
+    @Override
+    public boolean supports(SyncDialect db) {
+        return db == SyncDialect.SQLSERVER;
+    }
+
+    @Override
+    public boolean capturesDeletes() {
+        return true;
+    }
+
+    @Override
+    public ChangeSet poll(SyncDialect db, Map<String, SyncSourceRepository<?>> tables) {
+        Number current = (Number) sqlServerEm.createNativeQuery("SELECT CHANGE_TRACKING_CURRENT_VERSION()").getSingleResult();
+        if (current == null) throw new RuntimeException("SQL Server 未开启 CHANGE_TRACKING (见 sql/sync_change_tracking_sqlserver.sql)");
+        long version = current.longValue();
+
+        ChangeSet changes = new ChangeSet();
+        String dbName = ChangeSource.watermarkDb(db);
+        for (String table : tables.keySet()) {
+            String cursorName = "change_tracking:" + table;
+            SyncWatermark mark = watermarkRepo.findByTableNameAndDbName(cursorName, dbName).orElseGet(() -> new SyncWatermark(cursorName, dbName));
+            long last = mark.getLastId();
+            if (last == 0 || last < minValidVersion(table)) {
+                changes.requireFullResync(table);
+            } else {
+                ids(table, "id", last, "<> 'D'").forEach(id -> changes.add(table, id));
+                ids(table, "id", last, "= 'D'").forEach(id -> changes.delete(table, id));
+                // 试卷的题目集合跟随试卷同步
+                if ("paper".equals(table)) ids("paper_question", "paper_id", last, null).forEach(id -> changes.add(table, id));
+            }
+            if (version > last) {
+                mark.setLastId(version);
+                mark.setUpdateTime(LocalDateTime.now());
+            }
+            changes.advance(table, mark);
+        }
+        return changes;
+    }
+
+    private long minValidVersion(String table) {
+        Number min = (Number) sqlServerEm.createNativeQuery("SELECT CHANGE_TRACKING_MIN_VALID_VERSION(OBJECT_ID(?))")
+                .setParameter(1, "dbo." + table)
+                .getSingleResult();
+        if (min == null) throw new RuntimeException("SQL Server 表 " + table + " 未开启 CHANGE_TRACKING");
+        return min.longValue();
+    }
+
+    // op: 按净操作 (SYS_CHANGE_OPERATION) 过滤，如 "= 'D'" 只取被删除的行；null 表示不过滤
+    private List<Long> ids(String table, String keyColumn, long since, String op) {
+        @SuppressWarnings("unchecked")
+        List<Number> rows = sqlServerEm.createNativeQuery(
+                        "SELECT DISTINCT ct." + keyColumn + " FROM CHANGETABLE(CHANGES dbo." + table + ", ?) AS ct"
+                                + (op == null ? "" : " WHERE ct.SYS_CHANGE_OPERATION " + op))
+                .setParameter(1, since)
+                .getResultList();
+        return rows.stream().map(Number::longValue).toList();
+    }
+}
@@ -0,0 +1,130 @@
+package com.exam.backend.service.sync;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * 校验和树 (冲突检测用)
+ * 行哈希在各库内按 id 区间求和，只把每个桶的 (行数, 哈希和) 传回来：
+ *   1. 整表一行汇总，三库一致则结束 (稳态下每张表只传几十字节)
+ *   2. 不一致时按 fanout 个桶向下细分，只继续下钻哈希不同的桶
+ *   3. 桶宽降到 leaf-size 后返回该 id 区间，由调用方只取这些区间内的行逐行比较
+ * 以 MySQL 为基准，分别与 Oracle / SQL Server 比较。
+ * 参与哈希的列应只含 ASCII (如 fingerprint)：SQL Server 的 VARCHAR 按代码页取字节，非 ASCII 文本的桶永远对不上，每轮都会下钻到底。
+ */
+@Component
+public class ChecksumTree {
+
+    public static final class Spec {
+        private final String table;
+        private final List<String> columns; // 参与比较的列 (不含 id)
+
+        public Spec(String table, List<String> columns) {
+            this.table = table;
+            this.columns = columns;
+        }
+
+        public String getTable() { return table; }
+        public List<String> getColumns() { return columns; }
+    }
+
+    private record Sum(long count, BigDecimal hash) {}
+
+    @PersistenceContext(unitName = "oraclePersistenceUnit") private EntityManager oracleEm;
+    @PersistenceContext(unitName = "sqlServerPersistenceUnit") private EntityManager sqlServerEm;
+    @PersistenceContext private EntityManager mysqlEm;
+
+    @Value("${sync.checksum.fanout:16}") private int fanout;
+    @Value("${sync.checksum.leaf-size:256}") private int leafSize;
+
+    /**
+     * 返回各目标库中与 MySQL 不一致的 id 区间 (闭区间 [from, to])，一致的目标库不出现在结果中
+     */
+    public Map<SyncDialect, List<long[]>> diffRanges(Spec spec, Collection<SyncDialect> targets) {
+        Map<SyncDialect, List<long[]>> out = new EnumMap<>(SyncDialect.class);
+        Map<SyncDialect, Object[]> roots = new EnumMap<>(SyncDialect.class);
+        roots.put(SyncDialect.MYSQL, single(SyncDialect.MYSQL, SyncDialect.MYSQL.tableChecksumSql(spec.getTable(), spec.getColumns())));
+        for (SyncDialect t : targets) roots.put(t, single(t, t.tableChecksumSql(spec.getTable(), spec.getColumns())));
+
+        Sum base = toSum(roots.get(SyncDialect.MYSQL)[0], roots.get(SyncDialect.MYSQL)[1]);
+        List<SyncDialect> differing = new ArrayList<>();
+        for (SyncDialect t : targets) {
+            if (!base.equals(toSum(roots.get(t)[0], roots.get(t)[1]))) differing.add(t);
+        }
+        if (differing.isEmpty()) return out;
+
+        Long lo = null, hi = null;
+        for (Object[] r : roots.values()) {
+            if (r[2] != null) lo = lo == null ? toLong(r[2]) : Math.min(lo, toLong(r[2]));
+            if (r[3] != null) hi = hi == null ? toLong(r[3]) : Math.max(hi, toLong(r[3]));
+        }
+        if (lo == null) return out;
+
+        // 顶层桶宽：leaf-size × fanout^k，使顶层桶数不超过 fanout
+        long width = leafSize;
+        while ((hi - lo) / width + 1 > fanout) width *= fanout;
+        descend(spec, lo, hi, width, differing, out);
+        return out;
+    }
+
+    private void descend(Spec spec, long lo, long hi, long width, List<SyncDialect> targets, Map<SyncDialect, List<long[]>> out) {
+        Map<Long, Sum> base = buckets(SyncDialect.MYSQL, spec, lo, hi, width);
+        Map<SyncDialect, Map<Long, Sum>> others = new EnumMap<>(SyncDialect.class);
+        for (SyncDialect t : targets) others.put(t, buckets(t, spec, lo, hi, width));
+
+        Set<Long> bucketIds = new TreeSet<>(base.keySet());
+        others.values().forEach(m -> bucketIds.addAll(m.keySet()));
+        for (Long b : bucketIds) {
+            List<SyncDialect> differing = new ArrayList<>();
+            for (SyncDialect t : targets) {
+                if (!Objects.equals(base.get(b), others.get(t).get(b))) differing.add(t);
+            }
+            if (differing.isEmpty()) continue;
+            long from = Math.max(lo, b * width);
+            long to = Math.min(hi, b * width + width - 1);
+            if (width <= leafSize) {
+                differing.forEach(t -> out.computeIfAbsent(t, k -> new ArrayList<>()).add(new long[]{from, to}));
+            } else {
+                descend(spec, from, to, width / fanout, differing, out);
+            }
+        }
+    }
+
+    private Map<Long, Sum> buckets(SyncDialect d, Spec spec, long lo, long hi, long width) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = em(d).createNativeQuery(d.bucketChecksumSql(spec.getTable(), spec.getColumns(), width))
+                .setParameter(1, lo)
+                .setParameter(2, hi)
+                .getResultList();
+        Map<Long, Sum> result = new HashMap<>();
+        for (Object[] r : rows) result.put(toLong(r[0]), toSum(r[1], r[2]));
+        return result;
+    }
+
+    private Object[] single(SyncDialect d, String sql) {
+        return (Object[]) em(d).createNativeQuery(sql).getSingleResult();
+    }
+
+    private EntityManager em(SyncDialect d) {
+        return switch (d) {
+            case ORACLE -> oracleEm;
+            case SQLSERVER -> sqlServerEm;
+            case MYSQL -> mysqlEm;
+        };
+    }
+
+    // 三库返回的数值类型各不相同 (BigInteger / BigDecimal / Long)，统一转成 BigDecimal 比较
+    private static Sum toSum(Object count, Object hash) {
+        BigDecimal h = hash == null ? BigDecimal.ZERO : new BigDecimal(hash.toString()).stripTrailingZeros();
+        return new Sum(toLong(count), h.signum() == 0 ? BigDecimal.ZERO : h);
+    }
+
+    private static long toLong(Object value) {
+        return ((Number) value).longValue();
+    }
+}
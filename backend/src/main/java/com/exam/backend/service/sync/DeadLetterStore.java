@@ -0,0 +1,167 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.entity.SyncDeadLetter;
+import com.exam.backend.repository.mysql.MysqlSyncDeadLetterRepository;
+import com.exam.backend.service.SyncService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同步死信 (sys_sync_dead_letter)
+ * SyncApplier 隔离出的坏行按 (表, id, 目标库) 记一条死信，本轮同步照常成功、游标照常推进：
+ *   - 第 n 次失败后等待 base-backoff-ms * 2^(n-1) (不超过 max-backoff-ms) 再重试，期间该行不参与同步
+ *   - 失败 max-attempts 次后停止自动重试，只能通过 /api/dead-letter 手动重试或丢弃
+ *   - 重试 (自动或手动) 写入成功后死信自动删除
+ * 是否跳过由内存中的索引判断，同步热路径上不查库。
+ */
+@Component
+public class DeadLetterStore {
+
+    @Autowired @Lazy private SyncService syncService;
+    @Autowired private MysqlSyncDeadLetterRepository repo;
+
+    @Value("${sync.dead-letter.base-backoff-ms:60000}") private long baseBackoffMs;
+    @Value("${sync.dead-letter.max-backoff-ms:3600000}") private long maxBackoffMs;
+    @Value("${sync.dead-letter.max-attempts:10}") private int maxAttempts;
+    @Value("${sync.dead-letter.retry-ms:60000}") private long retryMs;
+
+    // 目标库:表:id -> 下次重试时间 (停止自动重试的用 LocalDateTime.MAX)
+    private final Map<String, LocalDateTime> index = new ConcurrentHashMap<>();
+    private ScheduledExecutorService retrier;
+
+    @PostConstruct
+    public void start() {
+        repo.findAll().forEach(this::cache);
+        if (!index.isEmpty()) System.out.println(">>> [死信] 待处理死信 " + index.size() + " 条");
+        retrier = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sync-dead-letter");
+            t.setDaemon(true);
+            return t;
+        });
+        retrier.scheduleWithFixedDelay(this::retryDue, retryMs, retryMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 该行在死信中且还没到重试时间：本轮不写入
+     */
+    public boolean isQuarantined(SyncDialect target, String table, Long id) {
+        if (index.isEmpty()) return false;
+        LocalDateTime next = index.get(key(target.getDbName(), table, id));
+        return next != null && LocalDateTime.now().isBefore(next);
+    }
+
+    /**
+     * 一次写入结束后登记结果：失败行记入 / 更新死信，本次写入成功的死信行删除
+     */
+    public void settle(SyncDialect target, String table, Collection<Long> attempted, ApplyResult result) {
+        Set<Long> failed = new HashSet<>();
+        for (ApplyResult.Failure f : result.getFailures()) {
+            failed.add(f.getId());
+            recordFailure(target, table, f.getId(), f.getError());
+        }
+        if (index.isEmpty()) return;
+        List<Long> recovered = attempted.stream()
+                .filter(id -> !failed.contains(id) && index.containsKey(key(target.getDbName(), table, id)))
+                .toList();
+        if (recovered.isEmpty()) return;
+        List<SyncDeadLetter> letters = repo.findByTableNameAndTargetDbAndRowIdIn(table, target.getDbName(), recovered);
+        repo.deleteAll(letters);
+        letters.forEach(l -> index.remove(key(l)));
+        System.out.println(">>> [死信] " + target.getDbName() + " " + table + " 重试成功 " + letters.size() + " 行");
+    }
+
+    private void recordFailure(SyncDialect target, String table, Long id, String error) {
+        SyncDeadLetter letter = repo.findByTableNameAndRowIdAndTargetDb(table, id, target.getDbName())
+                .orElseGet(() -> new SyncDeadLetter(table, id, target.getDbName()));
+        LocalDateTime now = LocalDateTime.now();
+        letter.setAttempts(letter.getAttempts() + 1);
+        letter.setError(error != null && error.length() > 2000 ? error.substring(0, 2000) : error);
+        letter.setLastFailedAt(now);
+        letter.setNextRetryAt(letter.getAttempts() >= maxAttempts ? null : now.plusNanos(backoffMs(letter.getAttempts()) * 1_000_000));
+        cache(repo.save(letter));
+    }
+
+    private long backoffMs(int attempts) {
+        long backoff = baseBackoffMs << Math.min(attempts - 1, 30);
+        return backoff <= 0 ? maxBackoffMs : Math.min(maxBackoffMs, backoff);
+    }
+
+    // 到期的死信按表合并，走定向同步 (写入结果再经 settle 登记)
+    private void retryDue() {
+        try {
+            List<SyncDeadLetter> due = repo.findByNextRetryAtLessThanEqual(LocalDateTime.now());
+            if (!due.isEmpty()) resync(due);
+        } catch (Exception e) {
+            System.err.println(">>> [死信] 自动重试失败: " + e.getMessage());
+        }
+    }
+
+    // 同步之后没有再次失败的死信一并删除：写入成功，或三库已一致不再需要写入 (熔断延后的行已转入 hint 日志)
+    private void resync(List<SyncDeadLetter> letters) {
+        LocalDateTime start = LocalDateTime.now();
+        Map<String, Set<Long>> rows = new LinkedHashMap<>();
+        letters.forEach(l -> rows.computeIfAbsent(l.getTableName(), k -> new LinkedHashSet<>()).add(l.getRowId()));
+        syncService.sync(rows);
+
+        List<SyncDeadLetter> settled = repo.findAllById(letters.stream().map(SyncDeadLetter::getId).toList()).stream()
+                .filter(l -> l.getLastFailedAt().isBefore(start))
+                .toList();
+        repo.deleteAll(settled);
+        settled.forEach(l -> index.remove(key(l)));
+    }
+
+    public List<SyncDeadLetter> list() {
+        return repo.findAllByOrderByLastFailedAtDesc();
+    }
+
+    /**
+     * 立即重试指定死信 (ids 为空时重试全部)，返回重试后仍未成功的条数
+     */
+    public int retry(Collection<Long> ids) {
+        List<SyncDeadLetter> letters = ids == null || ids.isEmpty() ? repo.findAll() : repo.findAllById(ids);
+        if (letters.isEmpty()) return 0;
+        LocalDateTime now = LocalDateTime.now();
+        letters.forEach(l -> l.setNextRetryAt(now));
+        repo.saveAll(letters).forEach(this::cache);
+        resync(letters);
+        return (int) letters.stream().filter(l -> index.containsKey(key(l))).count();
+    }
+
+    /**
+     * 丢弃指定死信 (ids 为空时丢弃全部)；该行之后再变更时会照常同步，再次失败会重新进入死信
+     */
+    public int discard(Collection<Long> ids) {
+        List<SyncDeadLetter> letters = ids == null || ids.isEmpty() ? repo.findAll() : repo.findAllById(ids);
+        repo.deleteAll(letters);
+        letters.forEach(l -> index.remove(key(l)));
+        return letters.size();
+    }
+
+    private void cache(SyncDeadLetter l) {
+        index.put(key(l), l.getNextRetryAt() == null ? LocalDateTime.MAX : l.getNextRetryAt());
+    }
+
+    private static String key(SyncDeadLetter l) {
+        return key(l.getTargetDb(), l.getTableName(), l.getRowId());
+    }
+
+    private static String key(String db, String table, Long id) {
+        return db + ":" + table + ":" + id;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (retrier != null) retrier.shutdownNow();
+    }
+}
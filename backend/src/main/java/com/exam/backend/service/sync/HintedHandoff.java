@@ -0,0 +1,135 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.service.SyncService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不可用目标库的 hint 日志 (hinted handoff)
+ * 目标库熔断或写入时连接失败，要写入它的行只记 (表, id) 到本地文件 {dir}/{库}.log，不阻塞本轮同步；
+ * 后台线程定期检查，目标库熔断器关闭后把积压的 hint 合并去重，按外键顺序批量定向同步 (SyncService.sync)。
+ * 重放时取的是各库当前最新的行，不是记录 hint 时的旧值；重放失败则保留文件，下次继续。
+ */
+@Component
+public class HintedHandoff {
+
+    @Autowired @Lazy private SyncService syncService;
+    @Autowired private TargetHealth health;
+
+    @Value("${sync.hints.dir:./data/hints}") private String dir;
+    @Value("${sync.hints.replay-ms:10000}") private long replayMs;
+    @Value("${sync.hints.replay-batch:1000}") private int replayBatch;
+
+    private final Map<SyncDialect, Object> locks = new EnumMap<>(SyncDialect.class);
+    private ScheduledExecutorService replayer;
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(Paths.get(dir));
+        for (SyncDialect d : SyncDialect.values()) locks.put(d, new Object());
+        replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sync-hint-replay");
+            t.setDaemon(true);
+            return t;
+        });
+        replayer.scheduleWithFixedDelay(this::replayAll, replayMs, replayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录要写入 target 的行 (追加写并落盘)
+     */
+    public void record(SyncDialect target, String table, Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        StringBuilder sb = new StringBuilder();
+        for (Long id : ids) sb.append(table).append(' ').append(id).append('\n');
+        synchronized (locks.get(target)) {
+            try {
+                Files.writeString(logFile(target), sb, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+            } catch (IOException e) {
+                throw new RuntimeException("写入 hint 日志失败: " + e.getMessage(), e);
+            }
+        }
+        System.out.println(">>> [hint] " + target.getDbName() + " 不可用，" + table + " 延后 " + ids.size() + " 行");
+    }
+
+    private void replayAll() {
+        for (SyncDialect d : SyncDialect.values()) {
+            if (!health.isClosed(d)) continue;
+            try {
+                replay(d);
+            } catch (Exception e) {
+                System.err.println(">>> [hint] " + d.getDbName() + " 重放失败，稍后重试: " + e.getMessage());
+            }
+        }
+    }
+
+    // 先把当前日志改名为 .replaying (之后的 hint 写入新文件)，重放成功后删除
+    private void replay(SyncDialect target) throws IOException {
+        Path replaying = logFile(target).resolveSibling(target.name() + ".replaying");
+        synchronized (locks.get(target)) {
+            if (!Files.exists(replaying)) {
+                if (!Files.exists(logFile(target)) || Files.size(logFile(target)) == 0) return;
+                Files.move(logFile(target), replaying, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+
+        Map<String, Set<Long>> rows = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(replaying, StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String[] f = line.split(" ");
+                if (f.length != 2) continue;
+                rows.computeIfAbsent(f[0], k -> new LinkedHashSet<>()).add(Long.parseLong(f[1]));
+            }
+        }
+        int total = rows.values().stream().mapToInt(Set::size).sum();
+        System.out.println(">>> [hint] " + target.getDbName() + " 已恢复，重放 " + total + " 行");
+        for (Map.Entry<String, Set<Long>> e : rows.entrySet()) {
+            List<Long> ids = new ArrayList<>(e.getValue());
+            for (int i = 0; i < ids.size(); i += replayBatch) {
+                syncService.sync(Map.of(e.getKey(), ids.subList(i, Math.min(ids.size(), i + replayBatch))));
+            }
+        }
+        Files.delete(replaying);
+    }
+
+    // 各库积压的 hint 行数 (未去重)
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (SyncDialect d : SyncDialect.values()) {
+            long lines = 0;
+            for (Path p : List.of(logFile(d), logFile(d).resolveSibling(d.name() + ".replaying"))) {
+                if (!Files.exists(p)) continue;
+                try (var stream = Files.lines(p)) {
+                    lines += stream.count();
+                } catch (IOException ignored) {
+                    // 统计失败不影响同步
+                }
+            }
+            stats.put(d.getDbName(), lines);
+        }
+        return stats;
+    }
+
+    private Path logFile(SyncDialect target) {
+        return Paths.get(dir).resolve(target.name() + ".log");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (replayer != null) replayer.shutdownNow();
+    }
+}
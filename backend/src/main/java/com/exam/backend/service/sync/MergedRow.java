@@ -0,0 +1,15 @@
+package com.exam.backend.service.sync;
+
+/**
+ * 三路归并后同一个 id 在三个库中的行 (某个库没有该 id 时为 null)
+ */
+public record MergedRow<T>(long id, T mysql, T oracle, T sqlServer) {
+
+    public T get(SyncDialect dialect) {
+        return switch (dialect) {
+            case MYSQL -> mysql;
+            case ORACLE -> oracle;
+            case SQLSERVER -> sqlServer;
+        };
+    }
+}
@@ -0,0 +1,302 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.common.HybridClock;
+import com.exam.backend.entity.Paper;
+import com.exam.backend.entity.PaperQuestion;
+import com.exam.backend.service.view.PaperCacheInvalidator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 原生 upsert 写入器
+ * 在调用方已开启的目标库事务中执行：SyncApplier 为每个 chunk 用对应库的事务管理器开一个 REQUIRES_NEW 事务，
+ * 整批写入失败时回滚到保存点再逐行重试。每行只发一条语句，按 batch-size 分批 executeBatch。
+ */
+@Component
+public class NativeUpsertWriter {
+
+    @PersistenceContext(unitName = "oraclePersistenceUnit") private EntityManager oracleEm;
+    @PersistenceContext(unitName = "sqlServerPersistenceUnit") private EntityManager sqlServerEm;
+    @PersistenceContext private EntityManager mysqlEm;
+
+    @Autowired private PaperCacheInvalidator cacheInvalidator;
+
+    // 每次 executeBatch 发送的行数
+    @Value("${sync.apply.batch-size:500}") private int batchSize;
+
+    private static final int IN_LIST_LIMIT = 500;
+
+    /**
+     * 批量 upsert：每 batchSize 行一次 executeBatch；
+     * SQL Server 自增表的 IDENTITY_INSERT 在整批前后各切换一次，而不是每行一次
+     */
+    public <T> void upsertBatch(SyncDialect dialect, SyncTableSpec<T> spec, List<T> rows) {
+        if (rows.isEmpty()) return;
+        String sql = dialect.upsertSql(spec);
+        String identityOn = dialect.identityInsertSql(spec, true);
+        String identityOff = dialect.identityInsertSql(spec, false);
+        session(dialect).doWork(connection -> {
+            try (Statement stmt = connection.createStatement();
+                 PreparedStatement ps = connection.prepareStatement(sql)) {
+                if (identityOn != null) stmt.execute(identityOn);
+                try {
+                    int pending = 0;
+                    for (T row : rows) {
+                        bind(dialect, ps, spec.getColumns(), spec.bind(row));
+                        ps.addBatch();
+                        if (++pending == batchSize) {
+                            ps.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) ps.executeBatch();
+                } finally {
+                    if (identityOff != null) stmt.execute(identityOff);
+                }
+            } catch (SQLException e) {
+                throw new SQLException(dialect.getDbName() + " " + spec.getTable() + " 批量 upsert 失败: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * 让若干张试卷在目标库中的 paper_question 与胜者的题目集合一致：
+     * 一次查出目标库现有关联，只删除多出来的、只写入新增或分值变化的，不变的行不动
+     */
+    public void syncPaperQuestions(SyncDialect dialect, List<Long> paperIds, List<PaperQuestion> pqs) {
+        if (paperIds.isEmpty()) return;
+        Map<String, Integer> current = loadPaperQuestionScores(dialect, paperIds);
+
+        List<PaperQuestion> changed = new ArrayList<>();
+        Set<String> wanted = new HashSet<>();
+        for (PaperQuestion pq : pqs) {
+            String key = SyncTableSpec.PAPER_QUESTION.keyOf(pq);
+            wanted.add(key);
+            if (!current.containsKey(key) || !Objects.equals(current.get(key), pq.getScore())) changed.add(pq);
+        }
+        List<String> removed = current.keySet().stream().filter(k -> !wanted.contains(k)).toList();
+
+        if (!removed.isEmpty()) {
+            String delete = "DELETE FROM " + dialect.qualify(SyncTableSpec.PAPER_QUESTION) + " WHERE paper_id = ? AND question_id = ?";
+            session(dialect).doWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(delete)) {
+                    int pending = 0;
+                    for (String key : removed) {
+                        String[] ids = key.split(":");
+                        ps.setLong(1, Long.parseLong(ids[0]));
+                        ps.setLong(2, Long.parseLong(ids[1]));
+                        ps.addBatch();
+                        if (++pending == batchSize) {
+                            ps.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) ps.executeBatch();
+                }
+            });
+        }
+        upsertBatch(dialect, SyncTableSpec.PAPER_QUESTION, changed);
+    }
+
+    // 目标库中这些试卷现有的关联："paperId:questionId" -> score (IN 列表分批，Oracle 上限 1000)
+    private Map<String, Integer> loadPaperQuestionScores(SyncDialect dialect, List<Long> paperIds) {
+        Map<String, Integer> scores = new HashMap<>();
+        session(dialect).doWork(connection -> {
+            for (int i = 0; i < paperIds.size(); i += IN_LIST_LIMIT) {
+                List<Long> chunk = paperIds.subList(i, Math.min(paperIds.size(), i + IN_LIST_LIMIT));
+                String sql = "SELECT paper_id, question_id, score FROM " + dialect.qualify(SyncTableSpec.PAPER_QUESTION)
+                        + " WHERE paper_id IN (" + chunk.stream().map(id -> "?").collect(Collectors.joining(", ")) + ")";
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    for (int j = 0; j < chunk.size(); j++) ps.setLong(j + 1, chunk.get(j));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            int score = rs.getInt(3);
+                            scores.put(rs.getLong(1) + ":" + rs.getLong(2), rs.wasNull() ? null : score);
+                        }
+                    }
+                }
+            }
+        });
+        return scores;
+    }
+
+    /**
+     * 按墓碑删除一批行，连同依赖它的行 (集合式，每条语句一个 IN 列表)：
+     *   sys_user    : 该学生的成绩、该教师试卷的 teacher_id 置空 (重算指纹并生成新版本)、用户
+     *   question    : 引用该题的试卷题目关联、试题
+     *   paper       : 该试卷的成绩、题目关联、试卷
+     *   exam_result : 成绩
+     * 返回删除的主表行数。MySQL 上的删除在事务提交后使相关读缓存失效 (PaperCacheInvalidator)。
+     */
+    public int deleteCascade(SyncDialect dialect, String table, List<Long> ids) {
+        if (ids.isEmpty()) return 0;
+        List<String> statements = switch (table) {
+            case "sys_user" -> List.of(
+                    "DELETE FROM " + dialect.qualify("exam_result") + " WHERE student_id IN ",
+                    "DELETE FROM " + dialect.qualify("sys_user") + " WHERE id IN ");
+            case "question" -> List.of(
+                    "DELETE FROM " + dialect.qualify("paper_question") + " WHERE question_id IN ",
+                    "DELETE FROM " + dialect.qualify("question") + " WHERE id IN ");
+            case "paper" -> List.of(
+                    "DELETE FROM " + dialect.qualify("exam_result") + " WHERE paper_id IN ",
+                    "DELETE FROM " + dialect.qualify("paper_question") + " WHERE paper_id IN ",
+                    "DELETE FROM " + dialect.qualify("paper") + " WHERE id IN ");
+            case "exam_result" -> List.of("DELETE FROM " + dialect.qualify("exam_result") + " WHERE id IN ");
+            default -> throw new RuntimeException("不支持删除的同步表: " + table);
+        };
+        List<Long> detached = new ArrayList<>();
+        int total = session(dialect).doReturningWork(connection -> {
+            int deleted = 0;
+            for (int i = 0; i < ids.size(); i += IN_LIST_LIMIT) {
+                List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + IN_LIST_LIMIT));
+                String in = "(" + chunk.stream().map(id -> "?").collect(Collectors.joining(", ")) + ")";
+                for (int s = 0; s < statements.size(); s++) {
+                    if ("sys_user".equals(table) && s == statements.size() - 1) detached.addAll(detachTeacher(connection, dialect, chunk, in));
+                    try (PreparedStatement ps = connection.prepareStatement(statements.get(s) + in)) {
+                        for (int j = 0; j < chunk.size(); j++) ps.setLong(j + 1, chunk.get(j));
+                        int count = ps.executeUpdate();
+                        if (s == statements.size() - 1) deleted += count;
+                    } catch (SQLException e) {
+                        throw new SQLException(dialect.getDbName() + " " + table + " 删除失败: " + e.getMessage(), e);
+                    }
+                }
+            }
+            return deleted;
+        });
+        if (dialect == SyncDialect.MYSQL) {
+            cacheInvalidator.rowsDeleted(table, ids);
+            cacheInvalidator.papersDetached(detached);
+        }
+        return total;
+    }
+
+    // 被删除教师的试卷：teacher_id 置空，同时按置空后的内容重算指纹、生成新的行版本，否则同步会认为这些行没有变化；返回这些试卷的 id
+    private List<Long> detachTeacher(Connection connection, SyncDialect dialect, List<Long> teacherIds, String in) throws SQLException {
+        List<Paper> papers = new ArrayList<>();
+        String select = "SELECT id, paper_name, total_score, create_time FROM " + dialect.qualify("paper") + " WHERE teacher_id IN " + in;
+        try (PreparedStatement ps = connection.prepareStatement(select)) {
+            for (int j = 0; j < teacherIds.size(); j++) ps.setLong(j + 1, teacherIds.get(j));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Paper p = new Paper();
+                    p.setId(rs.getLong(1));
+                    p.setPaperName(rs.getString(2));
+                    int totalScore = rs.getInt(3);
+                    p.setTotalScore(rs.wasNull() ? null : totalScore);
+                    Timestamp createTime = rs.getTimestamp(4);
+                    p.setCreateTime(createTime != null ? createTime.toLocalDateTime() : null);
+                    papers.add(p);
+                }
+            }
+        }
+        if (papers.isEmpty()) return List.of();
+        long version = HybridClock.next();
+        String update = "UPDATE " + dialect.qualify("paper") + " SET teacher_id = NULL, fingerprint = ?, sync_version = ? WHERE id = ?";
+        try (PreparedStatement ps = connection.prepareStatement(update)) {
+            for (Paper p : papers) {
+                ps.setString(1, p.computeFingerprint());
+                ps.setLong(2, version);
+                ps.setLong(3, p.getId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            throw new SQLException(dialect.getDbName() + " paper 教师置空失败: " + e.getMessage(), e);
+        }
+        return papers.stream().map(Paper::getId).toList();
+    }
+
+    /**
+     * 给绕过应用直接改过的行写入按内容重算的指纹和新的行版本，让同步把它当作最新的一份传播出去。
+     * 只有版本仍是读取时的值才更新 (期间经应用写入的行已有新版本，不覆盖)；返回实际更新的 id
+     */
+    public List<Long> restamp(SyncDialect dialect, String table, List<RowVersion> stale, Map<Long, String> fingerprints, long version) {
+        if (stale.isEmpty()) return List.of();
+        String update = "UPDATE " + dialect.qualify(table) + " SET fingerprint = ?, sync_version = ? WHERE id = ? AND ";
+        return session(dialect).doReturningWork(connection -> {
+            List<Long> updated = new ArrayList<>();
+            for (RowVersion row : stale) {
+                String sql = update + (row.syncVersion() == null ? "sync_version IS NULL" : "sync_version = ?");
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    ps.setString(1, fingerprints.get(row.id()));
+                    ps.setLong(2, version);
+                    ps.setLong(3, row.id());
+                    if (row.syncVersion() != null) ps.setLong(4, row.syncVersion());
+                    if (ps.executeUpdate() > 0) updated.add(row.id());
+                } catch (SQLException e) {
+                    throw new SQLException(dialect.getDbName() + " " + table + " 重新生成版本失败: " + e.getMessage(), e);
+                }
+            }
+            return updated;
+        });
+    }
+
+    // === 保存点 (由 SyncApplier 用来隔离单行失败) ===
+    public Savepoint savepoint(SyncDialect dialect) {
+        return session(dialect).doReturningWork(Connection::setSavepoint);
+    }
+
+    public void rollbackTo(SyncDialect dialect, Savepoint savepoint) {
+        session(dialect).doWork(connection -> connection.rollback(savepoint));
+    }
+
+    public void release(SyncDialect dialect, Savepoint savepoint) {
+        session(dialect).doWork(connection -> {
+            try {
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLFeatureNotSupportedException ignored) {
+                // Oracle 不支持显式释放保存点，事务结束时自动释放
+            }
+        });
+    }
+
+    Session session(SyncDialect dialect) {
+        EntityManager em = switch (dialect) {
+            case ORACLE -> oracleEm;
+            case SQLSERVER -> sqlServerEm;
+            case MYSQL -> mysqlEm;
+        };
+        return em.unwrap(Session.class);
+    }
+
+    // 按列类型绑定参数：时间统一转 Timestamp，null 按列类型 setNull，Oracle 的 CLOB 用字符流绑定
+    static void bind(SyncDialect dialect, PreparedStatement ps, List<SyncTableSpec.Column> cols, Object[] values) throws SQLException {
+        for (int i = 0; i < cols.size(); i++) {
+            int idx = i + 1;
+            int type = cols.get(i).getSqlType();
+            Object v = values[i];
+            if (v == null) {
+                ps.setNull(idx, type == Types.CLOB && dialect != SyncDialect.ORACLE ? Types.VARCHAR : type);
+            } else if (v instanceof LocalDateTime t) {
+                ps.setTimestamp(idx, Timestamp.valueOf(t));
+            } else if (type == Types.CLOB) {
+                String s = v.toString();
+                if (dialect == SyncDialect.ORACLE) ps.setCharacterStream(idx, new StringReader(s), s.length());
+                else ps.setString(idx, s);
+            } else if (v instanceof BigDecimal d) {
+                ps.setBigDecimal(idx, d);
+            } else {
+                ps.setObject(idx, v, type);
+            }
+        }
+    }
+}
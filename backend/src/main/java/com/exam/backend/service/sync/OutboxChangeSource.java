@@ -0,0 +1,123 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.common.HybridClock;
+import com.exam.backend.entity.SyncChangeLog;
+import com.exam.backend.entity.SyncWatermark;
+import com.exam.backend.repository.SyncChangeLogRepository;
+import com.exam.backend.repository.SyncSourceRepository;
+import com.exam.backend.repository.mysql.MysqlSyncChangeLogRepository;
+import com.exam.backend.repository.mysql.MysqlSyncWatermarkRepository;
+import com.exam.backend.repository.oracle.OracleSyncChangeLogRepository;
+import com.exam.backend.repository.sqlserver.SqlServerSyncChangeLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 消费触发器写入的变更日志 (sync_change_log，见 sql/sync_outbox_*.sql)
+ * 按 id 顺序读取游标之后的变更，游标复用 sys_sync_watermark (table_name = sync_change_log:表名)，只用 last_id。
+ * 同步自身写入目标库也会触发记录，下一轮比对时指纹一致，不会再写。
+ * 自增 id 提交顺序与分配顺序可能不同，只消费写入超过 settle-seconds 的变更，极端情况下漏掉的由全量对账兜底。
+ */
+@Component
+public class OutboxChangeSource implements ChangeSource {
+
+    private static final String OUTBOX_TABLE = "sync_change_log";
+
+    @Autowired private MysqlSyncWatermarkRepository watermarkRepo;
+    @Autowired private MysqlSyncChangeLogRepository mysqlChangeLogRepo;
+    @Autowired private OracleSyncChangeLogRepository oracleChangeLogRepo;
+    @Autowired private SqlServerSyncChangeLogRepository sqlServerChangeLogRepo;
+
+    @Value("${sync.incremental.page-size:500}") private int pageSize;
+    @Value("${sync.outbox.max-changes:20000}") private int maxChanges;
+    @Value("${sync.outbox.settle-seconds:5}") private int settleSeconds;
+    @Value("${sync.outbox.retention-hours:24}") private int retentionHours;
+
+    @Override
+    public String name() {
+        return "outbox";
+    }
+
+    @Override
+    public boolean supports(SyncDialect db) {
+        return true;
+    }
+
+    @Override
+    public boolean capturesDeletes() {
+        return true;
+    }
+
+    /**
+     * 逐表读取游标之后的变更 (每张表每轮最多 max-changes 条)，同一行的多次变更合并为一次。
+     * 每张表一个游标，只同步部分表时不会跳过其它表的变更。
+     */
+    @Override
+    public ChangeSet poll(SyncDialect db, Map<String, SyncSourceRepository<?>> tables) {
+        String dbName = ChangeSource.watermarkDb(db);
+        LocalDateTime before = LocalDateTime.now().minusSeconds(settleSeconds);
+        ChangeSet changes = new ChangeSet();
+        for (String table : tables.keySet()) {
+            String cursorName = OUTBOX_TABLE + ":" + table;
+            SyncWatermark mark = watermarkRepo.findByTableNameAndDbName(cursorName, dbName).orElseGet(() -> new SyncWatermark(cursorName, dbName));
+            Long lastId = mark.getLastId();
+            int read = 0;
+            while (read < maxChanges) {
+                List<SyncChangeLog> page = repo(db).findPending(logTables(table), lastId, before, PageRequest.of(0, pageSize));
+                for (SyncChangeLog c : page) {
+                    // paper_question 的删除只是题目集合变化，不是试卷被删除
+                    if ("D".equals(c.getOp()) && table.equals(c.getTableName())) {
+                        changes.delete(table, c.getRowId(), c.getChangeTime() == null ? null
+                                : HybridClock.at(c.getChangeTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+                    } else {
+                        changes.add(table, c.getRowId());
+                    }
+                    lastId = c.getId();
+                }
+                read += page.size();
+                if (page.size() < pageSize) break;
+            }
+            if (mark.isBefore(mark.getLastUpdateTime(), lastId)) {
+                mark.setLastId(lastId);
+                mark.setUpdateTime(LocalDateTime.now());
+            }
+            changes.advance(table, mark);
+        }
+        return changes;
+    }
+
+    // 清理已消费且超过保留期的变更日志；清理失败不影响本轮同步结果
+    @Override
+    public void committed(SyncDialect db, ChangeSet changes) {
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        for (SyncWatermark mark : changes.getCursors()) {
+            String table = mark.getTableName().substring(OUTBOX_TABLE.length() + 1);
+            try {
+                int deleted = repo(db).deleteConsumed(logTables(table), mark.getLastId(), before);
+                if (deleted > 0) System.out.println(">>> [变更日志] " + mark.getDbName() + " " + table + " 清理 " + deleted + " 条");
+            } catch (Exception e) {
+                System.err.println("变更日志清理失败 (" + mark.getDbName() + "): " + e.getMessage());
+            }
+        }
+    }
+
+    // paper_question 记录的是 paper_id，归到试卷上整体同步
+    private static List<String> logTables(String table) {
+        return "paper".equals(table) ? List.of("paper", "paper_question") : List.of(table);
+    }
+
+    private SyncChangeLogRepository repo(SyncDialect db) {
+        return switch (db) {
+            case MYSQL -> mysqlChangeLogRepo;
+            case ORACLE -> oracleChangeLogRepo;
+            case SQLSERVER -> sqlServerChangeLogRepo;
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package com.exam.backend.service.sync;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * 同步比对用的行投影：只含 id、更新时间、内容指纹和行版本，不读取任何大字段
+ */
+public record RowVersion(Long id, LocalDateTime updateTime, String fingerprint, Long syncVersion) {
+
+    /**
+     * 新旧顺序：先比 sync_version，版本相同 (或都还没有版本的旧数据) 再比 update_time；
+     * 有版本的行总是新于没有版本的行
+     */
+    public static final Comparator<RowVersion> NEWEST = Comparator
+            .comparing(RowVersion::syncVersion, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(RowVersion::updateTime, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /**
+     * 本行 (目标库当前的版本) 是否需要被胜者覆盖：
+     * 双方都有版本且不同 → 本行较旧，需要写入 (即使指纹相同：版本不同说明胜者之后又被写过，只是内容改回了原样)；
+     * 版本相同或缺少版本 → 按指纹判断，指纹相同或版本相同且没有指纹时不写；
+     * 指纹相同时再比 update_time：直接改库的行 (不经过 JPA 钩子) 指纹和版本都不变，只能靠更新时间发现；
+     * 连 update_time 也没改的直接修改由 SyncService 按变更来源的报告重算指纹、重新生成版本后再比较
+     */
+    public boolean isBehind(RowVersion winner) {
+        if (syncVersion != null && winner.syncVersion != null && !syncVersion.equals(winner.syncVersion)) return true;
+        if (fingerprint == null || winner.fingerprint == null) {
+            if (syncVersion == null || !syncVersion.equals(winner.syncVersion)) return true;
+        } else if (!Objects.equals(fingerprint, winner.fingerprint)) {
+            return true;
+        }
+        return olderThan(winner);
+    }
+
+    // 按秒比较：各库 update_time 的精度不同 (Oracle DATE 只到秒)，同步写入的同一时间不能被当成更新
+    private boolean olderThan(RowVersion winner) {
+        if (updateTime == null || winner.updateTime == null) return false;
+        return winner.updateTime.truncatedTo(ChronoUnit.SECONDS).isAfter(updateTime.truncatedTo(ChronoUnit.SECONDS));
+    }
+}
@@ -0,0 +1,179 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.entity.Paper;
+import com.exam.backend.entity.PaperQuestion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Savepoint;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 同步写入阶段 (apply)
+ * 把要写入某个目标库的行按 chunk-size 分组，每组一个事务、只提交一次；
+ * 组内先整批写入，整批失败时回滚到保存点，再逐行 (各自一个保存点) 重试，
+ * 把坏行隔离出来，其余行照常提交。
+ */
+@Component
+public class SyncApplier {
+
+    @Autowired private NativeUpsertWriter writer;
+    @Autowired private TargetHealth health;
+    @Autowired private HintedHandoff hints;
+    @Autowired private DeadLetterStore deadLetters;
+
+    // 每个事务包含的行数 (一次提交 / 一次日志刷盘)
+    @Value("${sync.apply.chunk-size:1000}") private int chunkSize;
+
+    private final Map<SyncDialect, TransactionTemplate> txTemplates = new EnumMap<>(SyncDialect.class);
+
+    public SyncApplier(@Qualifier("mysqlTransactionManager") PlatformTransactionManager mysqlTm,
+                       @Qualifier("transactionManagerOracle") PlatformTransactionManager oracleTm,
+                       @Qualifier("transactionManagerSqlServer") PlatformTransactionManager sqlServerTm) {
+        txTemplates.put(SyncDialect.MYSQL, newChunkTemplate(mysqlTm));
+        txTemplates.put(SyncDialect.ORACLE, newChunkTemplate(oracleTm));
+        txTemplates.put(SyncDialect.SQLSERVER, newChunkTemplate(sqlServerTm));
+    }
+
+    // 每个 chunk 都是独立的新事务，不会并入调用方可能存在的事务
+    private static TransactionTemplate newChunkTemplate(PlatformTransactionManager tm) {
+        TransactionTemplate template = new TransactionTemplate(tm);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    public <T> ApplyResult apply(SyncDialect target, SyncTableSpec<T> spec, List<T> rows) {
+        return applyUnits(target, spec.getTable(), rows, spec::keyOf, spec::idOf,
+                chunk -> writer.upsertBatch(target, spec, chunk));
+    }
+
+    /**
+     * 试卷与其题目关联作为一个整体写入：同一 chunk 内先写试卷，再把题目集合对齐到胜者 (只改有差异的行)。
+     * 单张试卷失败时，它的题目关联也一起回滚。
+     */
+    public ApplyResult applyPapers(SyncDialect target, List<Paper> papers, Map<Long, List<PaperQuestion>> pqByPaper) {
+        return applyUnits(target, SyncTableSpec.PAPER.getTable(), papers, SyncTableSpec.PAPER::keyOf, Paper::getId, chunk -> {
+            writer.upsertBatch(target, SyncTableSpec.PAPER, chunk);
+            List<Long> paperIds = chunk.stream().map(Paper::getId).toList();
+            List<PaperQuestion> pqs = new ArrayList<>();
+            paperIds.forEach(id -> pqs.addAll(pqByPaper.getOrDefault(id, List.of())));
+            writer.syncPaperQuestions(target, paperIds, pqs);
+        });
+    }
+
+    /**
+     * 按墓碑在目标库删除一批行 (连同依赖行，见 NativeUpsertWriter.deleteCascade)，每 chunk 一个事务。
+     * 与写入一样经过熔断器：目标库不可用时剩余的 id 转入 hint 日志，恢复后重放时再按墓碑删除。
+     */
+    public ApplyResult applyDeletes(SyncDialect target, String table, List<Long> ids) {
+        ApplyResult result = new ApplyResult(target, table);
+        if (ids.isEmpty()) return result;
+        if (!health.allow(target)) {
+            defer(target, table, ids, id -> id, result);
+            return result;
+        }
+        TransactionTemplate tx = txTemplates.get(target);
+        int done = 0;
+        try {
+            for (int i = 0; i < ids.size(); i += chunkSize) {
+                List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + chunkSize));
+                Integer deleted = tx.execute(status -> writer.deleteCascade(target, table, chunk));
+                result.addApplied(deleted == null ? 0 : deleted);
+                done = i + chunk.size();
+            }
+            health.recordSuccess(target);
+        } catch (RuntimeException e) {
+            health.recordFailure(target, e);
+            System.err.println(">>> [同步] " + target.getDbName() + " " + table + " 删除中断: " + e.getMessage());
+            defer(target, table, ids.subList(done, ids.size()), id -> id, result);
+        }
+        return result;
+    }
+
+    /**
+     * 为直接改库的行重新生成版本 (见 NativeUpsertWriter.restamp)，单独一个事务提交，
+     * 之后从该库读取的胜者即是新版本；返回实际更新的 id
+     */
+    public List<Long> restamp(SyncDialect target, String table, List<RowVersion> stale, Map<Long, String> fingerprints, long version) {
+        if (stale.isEmpty()) return List.of();
+        List<Long> updated = txTemplates.get(target).execute(status -> writer.restamp(target, table, stale, fingerprints, version));
+        return updated == null ? List.of() : updated;
+    }
+
+    /**
+     * 在死信中且未到重试时间的行直接跳过；隔离出的坏行记入死信 (DeadLetterStore)。
+     * 目标库熔断时不访问它，整批行转入 hint 日志；写到一半出现连接 / 事务级异常 (行级错误已在 chunk 内隔离)
+     * 时记一次熔断失败，剩余的行转入 hint 日志。两种情况都不抛异常，其它目标库照常同步。
+     */
+    private <U> ApplyResult applyUnits(SyncDialect target, String table, List<U> allUnits,
+                                       Function<U, String> keyOf, Function<U, Long> idOf, Consumer<List<U>> write) {
+        ApplyResult result = new ApplyResult(target, table);
+        List<U> units = new ArrayList<>(allUnits.size());
+        for (U unit : allUnits) {
+            if (deadLetters.isQuarantined(target, table, idOf.apply(unit))) {
+                result.addQuarantined(1);
+            } else {
+                units.add(unit);
+            }
+        }
+        if (units.isEmpty()) return result;
+        if (!health.allow(target)) {
+            defer(target, table, units, idOf, result);
+            return result;
+        }
+        TransactionTemplate tx = txTemplates.get(target);
+        int done = 0;
+        try {
+            for (int i = 0; i < units.size(); i += chunkSize) {
+                List<U> chunk = units.subList(i, Math.min(units.size(), i + chunkSize));
+                tx.executeWithoutResult(status -> applyChunk(target, chunk, keyOf, idOf, write, result));
+                done = i + chunk.size();
+            }
+            health.recordSuccess(target);
+        } catch (RuntimeException e) {
+            health.recordFailure(target, e);
+            System.err.println(">>> [同步] " + target.getDbName() + " " + table + " 写入中断: " + e.getMessage());
+            defer(target, table, units.subList(done, units.size()), idOf, result);
+        }
+        deadLetters.settle(target, table, units.subList(0, done).stream().map(idOf).toList(), result);
+        return result;
+    }
+
+    private <U> void defer(SyncDialect target, String table, List<U> units, Function<U, Long> idOf, ApplyResult result) {
+        hints.record(target, table, units.stream().map(idOf).toList());
+        result.addDeferred(units.size());
+    }
+
+    private <U> void applyChunk(SyncDialect target, List<U> chunk, Function<U, String> keyOf, Function<U, Long> idOf,
+                                Consumer<List<U>> write, ApplyResult result) {
+        Savepoint chunkSp = writer.savepoint(target);
+        try {
+            write.accept(chunk);
+            writer.release(target, chunkSp);
+            result.addApplied(chunk.size());
+            return;
+        } catch (RuntimeException batchError) {
+            writer.rollbackTo(target, chunkSp);
+            System.err.println(">>> [同步] " + target.getDbName() + " " + result.getTable()
+                    + " 批量写入失败，逐行重试隔离坏行: " + batchError.getMessage());
+        }
+        for (U unit : chunk) {
+            Savepoint rowSp = writer.savepoint(target);
+            try {
+                write.accept(List.of(unit));
+                writer.release(target, rowSp);
+                result.addApplied(1);
+            } catch (RuntimeException rowError) {
+                writer.rollbackTo(target, rowSp);
+                result.addFailure(keyOf.apply(unit), idOf.apply(unit), rowError);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.exam.backend.service.sync;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 同步触发合并器 (SyncAspect 使用)
+ * 每张表最多一个待执行请求、最多一个正在执行的同步：
+ *   - 触发后等待 debounce-ms，期间的新触发并入同一个请求 (计入 absorbed)，并顺延执行时间
+ *   - 顺延不超过 max-delay-ms：从第一次触发算起最迟 max-delay-ms 执行
+ *   - 该表正在同步时的触发只登记为待执行，本次同步结束后再执行一次
+ * 执行的是该表的增量同步任务 (SyncScheduler.runTableNow)：与定时任务共用变更来源配置和任务状态，不会与它重叠；
+ * 全量对账正在执行时跳过 (计入 skipped)：变更仍留在变更来源里，由对账或该表下一轮定时任务同步。
+ */
+@Component
+public class SyncCoalescer {
+
+    private static final class TableState {
+        long firstTrigger;   // 待执行请求的第一次触发时间，0 表示没有待执行请求
+        long lastTrigger;
+        boolean scheduled;
+        boolean inFlight;
+        long triggers, absorbed, runs, failures, skipped;
+    }
+
+    @Autowired private SyncScheduler syncScheduler;
+
+    @Value("${sync.coalesce.debounce-ms:500}") private long debounceMs;
+    @Value("${sync.coalesce.max-delay-ms:5000}") private long maxDelayMs;
+
+    private final Map<String, TableState> states = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4, new ThreadFactory() {
+        private final AtomicInteger seq = new AtomicInteger();
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "sync-coalesce-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * 登记一次触发，立即返回
+     */
+    public void trigger(String table) {
+        TableState s = states.computeIfAbsent(table, k -> new TableState());
+        long now = System.currentTimeMillis();
+        synchronized (s) {
+            s.triggers++;
+            if (s.firstTrigger == 0) {
+                s.firstTrigger = now;
+            } else {
+                s.absorbed++;
+            }
+            s.lastTrigger = now;
+            if (!s.scheduled && !s.inFlight) schedule(table, s, debounceMs);
+        }
+    }
+
+    // 调用方持有 s 的锁
+    private void schedule(String table, TableState s, long delayMs) {
+        s.scheduled = true;
+        scheduler.schedule(() -> fire(table, s), Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+    }
+
+    private void fire(String table, TableState s) {
+        synchronized (s) {
+            s.scheduled = false;
+            if (s.firstTrigger == 0 || s.inFlight) return;
+            long now = System.currentTimeMillis();
+            long due = Math.min(s.lastTrigger + debounceMs, s.firstTrigger + maxDelayMs);
+            if (now < due) {
+                schedule(table, s, due - now);
+                return;
+            }
+            s.firstTrigger = 0;
+            s.inFlight = true;
+            s.runs++;
+        }
+        try {
+            if (!syncScheduler.runTableNow(table)) {
+                synchronized (s) {
+                    s.skipped++;
+                }
+            }
+        } catch (Exception e) {
+            synchronized (s) {
+                s.failures++;
+            }
+            System.err.println(">>> [同步合并] " + table + " 同步失败: " + e.getMessage());
+        } finally {
+            synchronized (s) {
+                s.inFlight = false;
+                // 同步期间又有触发：不再等待 debounce 之外的时间，按原有截止时间执行
+                if (s.firstTrigger != 0 && !s.scheduled) {
+                    long now = System.currentTimeMillis();
+                    schedule(table, s, Math.min(s.lastTrigger + debounceMs, s.firstTrigger + maxDelayMs) - now);
+                }
+            }
+        }
+    }
+
+    /**
+     * 各表的触发计数：triggers 总触发数 / absorbed 被合并的触发数 / runs 实际执行的同步次数 / skipped 因全量对账跳过的次数
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        states.forEach((table, s) -> {
+            synchronized (s) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("triggers", s.triggers);
+                row.put("absorbed", s.absorbed);
+                row.put("runs", s.runs);
+                row.put("failures", s.failures);
+                row.put("skipped", s.skipped);
+                row.put("pending", s.firstTrigger != 0);
+                row.put("inFlight", s.inFlight);
+                stats.put(table, row);
+            }
+        });
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
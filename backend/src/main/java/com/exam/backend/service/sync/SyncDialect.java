@@ -0,0 +1,159 @@
+package com.exam.backend.service.sync;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 三个库的 SQL 方言
+ * 负责生成"一行一条语句"的原生 upsert：
+ *   MySQL      : INSERT ... ON DUPLICATE KEY UPDATE
+ *   Oracle     : MERGE INTO ... USING (SELECT ... FROM dual)
+ *   SQL Server : MERGE ... USING (VALUES ...)，自增表在整批前后打开/关闭 IDENTITY_INSERT
+ * 以及冲突检测用的分桶校验和：三库对同一行算出相同的行哈希 (MD5 前 32 位)，按 id 分桶求和后比较。
+ */
+public enum SyncDialect {
+
+    MYSQL("MySQL", "") {
+        @Override
+        public String upsertSql(SyncTableSpec<?> spec) {
+            List<SyncTableSpec.Column> values = spec.getValueColumns();
+            String sql = "INSERT INTO " + qualify(spec) + " (" + columnList(spec.getColumns(), "") + ") VALUES (" + placeholders(spec) + ")";
+            if (values.isEmpty()) {
+                // 只有主键列：重复时什么也不做
+                String k = spec.getKeyColumns().get(0).getName();
+                return sql + " ON DUPLICATE KEY UPDATE " + k + " = " + k;
+            }
+            return sql + " ON DUPLICATE KEY UPDATE " + values.stream()
+                    .map(c -> c.getName() + " = VALUES(" + c.getName() + ")")
+                    .collect(Collectors.joining(", "));
+        }
+
+        @Override
+        public String rowHash(List<String> columns) {
+            String text = "CONCAT(id" + columns.stream().map(c -> ", '|', COALESCE(" + c + ", '')").collect(Collectors.joining()) + ")";
+            return "CAST(CONV(SUBSTRING(MD5(" + text + "), 1, 8), 16, 10) AS UNSIGNED)";
+        }
+    },
+
+    ORACLE("Oracle", "") {
+        @Override
+        public String upsertSql(SyncTableSpec<?> spec) {
+            String source = spec.getColumns().stream()
+                    .map(c -> "? AS " + c.getName())
+                    .collect(Collectors.joining(", "));
+            return "MERGE INTO " + qualify(spec) + " t USING (SELECT " + source + " FROM dual) s ON (" + keyMatch(spec) + ")"
+                    + matchedUpdate(spec)
+                    + " WHEN NOT MATCHED THEN INSERT (" + columnList(spec.getColumns(), "") + ") VALUES (" + columnList(spec.getColumns(), "s.") + ")";
+        }
+
+        @Override
+        public String rowHash(List<String> columns) {
+            // || 把 NULL 当作空串，与另外两库的 COALESCE / CONCAT 一致
+            String text = "id" + columns.stream().map(c -> " || '|' || " + c).collect(Collectors.joining());
+            return "TO_NUMBER(SUBSTR(RAWTOHEX(STANDARD_HASH(" + text + ", 'MD5')), 1, 8), 'XXXXXXXX')";
+        }
+    },
+
+    SQLSERVER("SQLServer", "dbo.") {
+        @Override
+        public String upsertSql(SyncTableSpec<?> spec) {
+            return "MERGE " + qualify(spec) + " WITH (HOLDLOCK) AS t USING (VALUES (" + placeholders(spec) + ")) AS s ("
+                    + columnList(spec.getColumns(), "") + ") ON " + keyMatch(spec)
+                    + matchedUpdate(spec)
+                    + " WHEN NOT MATCHED THEN INSERT (" + columnList(spec.getColumns(), "") + ") VALUES (" + columnList(spec.getColumns(), "s.") + ");";
+        }
+
+        @Override
+        public String identityInsertSql(SyncTableSpec<?> spec, boolean on) {
+            return spec.isIdentity() ? "SET IDENTITY_INSERT " + qualify(spec) + (on ? " ON" : " OFF") : null;
+        }
+
+        @Override
+        public String rowHash(List<String> columns) {
+            // CONCAT 把 NULL 当作空串；转成 VARCHAR 再哈希，避免 NVARCHAR 按 UTF-16 取字节
+            // (VARCHAR 按排序规则的代码页取字节，只有 ASCII 列能与另外两库的 UTF-8 哈希一致，所以校验和只用 fingerprint 列)
+            String text = "CAST(CONCAT(id" + columns.stream().map(c -> ", '|', " + c).collect(Collectors.joining()) + ") AS VARCHAR(4000))";
+            return "CONVERT(BIGINT, SUBSTRING(HASHBYTES('MD5', " + text + "), 1, 4))";
+        }
+
+        @Override
+        String bucketExpr(long width) {
+            return "id / " + width; // bigint 整除
+        }
+    };
+
+    private final String dbName;       // 与 DbSwitchContext 中的库名一致
+    private final String schemaPrefix;
+
+    SyncDialect(String dbName, String schemaPrefix) {
+        this.dbName = dbName;
+        this.schemaPrefix = schemaPrefix;
+    }
+
+    public String getDbName() { return dbName; }
+
+    public String qualify(SyncTableSpec<?> spec) {
+        return qualify(spec.getTable());
+    }
+
+    public String qualify(String table) {
+        return schemaPrefix + table;
+    }
+
+    // 按主键写入一行：存在则更新，不存在则插入
+    public abstract String upsertSql(SyncTableSpec<?> spec);
+
+    // 只有 SQL Server 需要，其余方言返回 null
+    public String identityInsertSql(SyncTableSpec<?> spec, boolean on) {
+        return null;
+    }
+
+    // 行哈希表达式：对 "id|列1|列2..." 做 MD5，取前 32 位转为非负整数 (NULL 按空串处理)
+    public abstract String rowHash(List<String> columns);
+
+    String bucketExpr(long width) {
+        return "FLOOR(id / " + width + ")";
+    }
+
+    // 整表汇总：行数、行哈希之和、最小/最大 id
+    public String tableChecksumSql(String table, List<String> columns) {
+        return "SELECT COUNT(*), SUM(" + rowHash(columns) + "), MIN(id), MAX(id) FROM " + qualify(table);
+    }
+
+    // [?, ?] 区间内按 id 分桶 (桶宽为 width，由程序计算而非外部输入，直接拼入 SQL)：桶号、行数、行哈希之和
+    public String bucketChecksumSql(String table, List<String> columns, long width) {
+        String bucket = bucketExpr(width);
+        return "SELECT " + bucket + ", COUNT(*), SUM(" + rowHash(columns) + ") FROM " + qualify(table)
+                + " WHERE id BETWEEN ? AND ? GROUP BY " + bucket;
+    }
+
+    public static SyncDialect of(String dbName) {
+        for (SyncDialect d : values()) {
+            if (d.dbName.equalsIgnoreCase(dbName)) return d;
+        }
+        throw new IllegalArgumentException("未知数据库: " + dbName);
+    }
+
+    // === SQL 片段 ===
+    static String columnList(List<SyncTableSpec.Column> cols, String prefix) {
+        return cols.stream().map(c -> prefix + c.getName()).collect(Collectors.joining(", "));
+    }
+
+    static String placeholders(SyncTableSpec<?> spec) {
+        return spec.getColumns().stream().map(c -> "?").collect(Collectors.joining(", "));
+    }
+
+    static String keyMatch(SyncTableSpec<?> spec) {
+        return spec.getKeyColumns().stream()
+                .map(c -> "t." + c.getName() + " = s." + c.getName())
+                .collect(Collectors.joining(" AND "));
+    }
+
+    static String matchedUpdate(SyncTableSpec<?> spec) {
+        List<SyncTableSpec.Column> values = spec.getValueColumns();
+        if (values.isEmpty()) return "";
+        return " WHEN MATCHED THEN UPDATE SET " + values.stream()
+                .map(c -> "t." + c.getName() + " = s." + c.getName())
+                .collect(Collectors.joining(", "));
+    }
+}
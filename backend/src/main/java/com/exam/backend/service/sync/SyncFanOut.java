@@ -0,0 +1,120 @@
+package com.exam.backend.service.sync;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 同步并行调度
+ * 三个库的读取 (extract) 与写入 (apply) 各自放到独立的工作线程上并行执行，
+ * 一轮同步的耗时从"三库之和"变为"最慢的那个库"。
+ *
+ * 两个线程池分开：表级任务 (tablePool) 只会向 ioPool 提交子任务，ioPool 中的任务不再嵌套提交，
+ * 避免有界线程池因嵌套等待而饿死。
+ */
+@Component
+public class SyncFanOut {
+
+    private final boolean enabled;
+    private final ExecutorService ioPool;
+    private final ExecutorService tablePool;
+
+    public SyncFanOut(@Value("${sync.parallel.enabled:true}") boolean enabled,
+                      @Value("${sync.parallel.io-threads:12}") int ioThreads,
+                      @Value("${sync.parallel.table-threads:4}") int tableThreads) {
+        this.enabled = enabled;
+        this.ioPool = Executors.newFixedThreadPool(ioThreads, namedThreads("sync-io-"));
+        this.tablePool = Executors.newFixedThreadPool(tableThreads, namedThreads("sync-table-"));
+    }
+
+    /**
+     * 并行执行 (按库拆分的读取)，任一失败立即取消其余任务并抛出 —— 读不全就不能比对
+     */
+    public <T> List<T> forkJoin(List<Callable<T>> tasks) {
+        return invoke(ioPool, tasks, true);
+    }
+
+    /**
+     * 并行执行 (按目标库拆分的写入)，等待全部结束：一个目标失败不影响其它目标，最后抛出第一个异常
+     */
+    public <T> List<T> forkJoinSettled(List<Callable<T>> tasks) {
+        return invoke(ioPool, tasks, false);
+    }
+
+    /**
+     * 互不依赖的表并行同步 (如 sys_user 与 question)，全部结束后再返回
+     */
+    public void forkJoinTables(Runnable... tasks) {
+        List<Callable<Object>> callables = new ArrayList<>();
+        for (Runnable r : tasks) callables.add(Executors.callable(r));
+        invoke(tablePool, callables, false);
+    }
+
+    private <T> List<T> invoke(ExecutorService pool, List<Callable<T>> tasks, boolean failFast) {
+        if (!enabled || tasks.size() <= 1) return runInline(tasks);
+
+        List<Future<T>> futures = new ArrayList<>();
+        for (Callable<T> task : tasks) futures.add(pool.submit(task));
+
+        List<T> results = new ArrayList<>();
+        RuntimeException failure = null;
+        for (Future<T> f : futures) {
+            try {
+                results.add(failure != null && failFast ? null : f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(x -> x.cancel(true));
+                throw new RuntimeException("同步任务被中断", e);
+            } catch (CancellationException e) {
+                results.add(null);
+            } catch (ExecutionException e) {
+                RuntimeException cause = unwrap(e);
+                if (failure == null) failure = cause; else failure.addSuppressed(cause);
+                // 结构化取消：还没开始的兄弟任务不再执行，正在执行的尝试中断
+                if (failFast) futures.forEach(x -> x.cancel(true));
+                results.add(null);
+            }
+        }
+        if (failure != null) throw failure;
+        return results;
+    }
+
+    private static <T> List<T> runInline(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>();
+        for (Callable<T> task : tasks) {
+            try {
+                results.add(task.call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+        return results;
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause instanceof RuntimeException re ? re : new RuntimeException(cause.getMessage(), cause);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        tablePool.shutdownNow();
+        ioPool.shutdownNow();
+    }
+}
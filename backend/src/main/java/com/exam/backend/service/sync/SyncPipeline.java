@@ -0,0 +1,227 @@
+package com.exam.backend.service.sync;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 全量对账流水线 (extract → diff → apply)
+ *
+ *   extract : 每个源库一个线程，用 id 游标 (WHERE id > ? ORDER BY id) 逐页读取，放入有界队列
+ *   diff    : 调用方线程对三个按 id 有序的流做三路归并 (merge join)，同一 id 的三行对齐后决出胜者，
+ *             按目标库攒成写入批次
+ *   apply   : 每个目标库一个线程，从有界队列取批次写入
+ * 队列满时上游阻塞 (背压)，任意时刻内存中只有 "队列容量 × 页大小" 级别的行，与表大小无关；
+ * 读 Oracle 的同时可以在写 SQL Server。
+ */
+@Component
+public class SyncPipeline {
+
+    @FunctionalInterface
+    public interface PageReader<T> {
+        List<T> read(Long afterId, Pageable pageable); // id > afterId，按 id 升序
+    }
+
+    @FunctionalInterface
+    public interface RowPlanner<T, B> {
+        // 入参为按 id 升序对齐后的一组行，返回各目标库需要写入的批次 (无需写入的目标不放入)
+        Map<SyncDialect, B> plan(List<MergedRow<T>> rows);
+    }
+
+    @FunctionalInterface
+    public interface BatchWriter<B> {
+        ApplyResult write(SyncDialect target, B batch);
+    }
+
+    private static final Object END = new Object();
+
+    @Value("${sync.pipeline.page-size:1000}") private int pageSize;
+    @Value("${sync.pipeline.queue-capacity:4}") private int queueCapacity;
+
+    // 流水线各阶段必须同时运行 (否则会互相等待)，因此不用有界线程池
+    private final ExecutorService stagePool = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger seq = new AtomicInteger();
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "sync-stage-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * 跑完一张表的全量对账，返回每个目标库合并后的写入结果
+     */
+    public <T, B> List<ApplyResult> run(String table, Function<T, Long> idOf,
+                                        Map<SyncDialect, PageReader<T>> readers,
+                                        RowPlanner<T, B> planner, BatchWriter<B> writer) {
+        Map<SyncDialect, ApplyResult> results = new EnumMap<>(SyncDialect.class);
+        for (SyncDialect d : SyncDialect.values()) results.put(d, new ApplyResult(d, table));
+
+        List<Future<?>> extractStages = new ArrayList<>();
+        List<Future<?>> applyStages = new ArrayList<>();
+        List<Cursor<T>> cursors = new ArrayList<>();
+        Map<SyncDialect, BlockingQueue<Object>> toApply = new EnumMap<>(SyncDialect.class);
+
+        try {
+            // 1. extract: 各源库独立按 id 游标分页读取，读完放一个空页作为结束标记
+            for (SyncDialect d : SyncDialect.values()) {
+                BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(queueCapacity);
+                cursors.add(new Cursor<>(queue, extractStages));
+                PageReader<T> reader = readers.get(d);
+                extractStages.add(stagePool.submit(() -> {
+                    Long afterId = Long.MIN_VALUE;
+                    while (true) {
+                        List<T> page = reader.read(afterId, PageRequest.of(0, pageSize));
+                        if (!page.isEmpty()) {
+                            queue.put(page);
+                            afterId = idOf.apply(page.get(page.size() - 1));
+                        }
+                        if (page.size() < pageSize) break;
+                    }
+                    queue.put(List.of());
+                    return null;
+                }));
+            }
+
+            // 3. apply: 各目标库独立写入；某个目标写入异常时只丢弃它自己的批次，不拖住其它目标
+            for (SyncDialect d : SyncDialect.values()) {
+                BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+                toApply.put(d, queue);
+                ApplyResult total = results.get(d);
+                applyStages.add(stagePool.submit(() -> {
+                    RuntimeException error = null;
+                    for (Object item = queue.take(); item != END; item = queue.take()) {
+                        if (error != null) continue;
+                        try {
+                            @SuppressWarnings("unchecked") B batch = (B) item;
+                            total.merge(writer.write(d, batch));
+                        } catch (RuntimeException e) {
+                            error = e;
+                        }
+                    }
+                    if (error != null) throw error;
+                    return null;
+                }));
+            }
+
+            // 2. diff: 三路归并，每次取三个游标当前行中最小的 id，等于该 id 的游标前进一行
+            List<MergedRow<T>> group = new ArrayList<>();
+            while (true) {
+                Long next = null;
+                for (Cursor<T> c : cursors) {
+                    T head = c.head();
+                    if (head != null && (next == null || idOf.apply(head) < next)) next = idOf.apply(head);
+                }
+                if (next == null) break;
+                group.add(new MergedRow<>(next, cursors.get(0).takeIf(next, idOf),
+                        cursors.get(1).takeIf(next, idOf), cursors.get(2).takeIf(next, idOf)));
+                if (group.size() == pageSize) {
+                    dispatch(planner.plan(group), toApply, applyStages);
+                    group = new ArrayList<>();
+                }
+            }
+            if (!group.isEmpty()) dispatch(planner.plan(group), toApply, applyStages);
+            for (SyncDialect d : SyncDialect.values()) put(toApply.get(d), END, applyStages);
+
+            RuntimeException failure = null;
+            for (Future<?> f : applyStages) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    RuntimeException cause = unwrap(e);
+                    if (failure == null) failure = cause; else failure.addSuppressed(cause);
+                }
+            }
+            if (failure != null) throw failure;
+            return new ArrayList<>(results.values());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(table + " 对账流水线被中断", e);
+        } finally {
+            // 正常结束时各阶段均已退出；异常时中断仍阻塞在队列上的阶段
+            extractStages.forEach(f -> f.cancel(true));
+            applyStages.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private static <B> void dispatch(Map<SyncDialect, B> batches, Map<SyncDialect, BlockingQueue<Object>> toApply,
+                                     List<Future<?>> applyStages) throws InterruptedException {
+        for (Map.Entry<SyncDialect, B> e : batches.entrySet()) put(toApply.get(e.getKey()), e.getValue(), applyStages);
+    }
+
+    /**
+     * 单个源库的 id 有序游标：只持有当前页，读完一页再从队列取下一页
+     */
+    private static final class Cursor<T> {
+        private final BlockingQueue<List<T>> queue;
+        private final List<Future<?>> producers;
+        private List<T> page = List.of();
+        private int pos;
+        private boolean exhausted;
+
+        Cursor(BlockingQueue<List<T>> queue, List<Future<?>> producers) {
+            this.queue = queue;
+            this.producers = producers;
+        }
+
+        // 当前行，流结束时返回 null
+        T head() throws InterruptedException {
+            if (pos == page.size() && !exhausted) {
+                page = take(queue, producers);
+                pos = 0;
+                exhausted = page.isEmpty();
+            }
+            return exhausted ? null : page.get(pos);
+        }
+
+        // 当前行的 id 等于 id 时取出并前进，否则返回 null (该库没有这个 id)
+        T takeIf(long id, Function<T, Long> idOf) throws InterruptedException {
+            T head = head();
+            if (head == null || idOf.apply(head) != id) return null;
+            pos++;
+            return head;
+        }
+    }
+
+    // 带超时轮询，期间若上游阶段已异常退出则立即失败，避免永久阻塞
+    private static <E> E take(BlockingQueue<E> queue, List<Future<?>> producers) throws InterruptedException {
+        while (true) {
+            E item = queue.poll(200, TimeUnit.MILLISECONDS);
+            if (item != null) return item;
+            checkStages(producers);
+        }
+    }
+
+    private static <E> void put(BlockingQueue<E> queue, E item, List<Future<?>> consumers) throws InterruptedException {
+        while (!queue.offer(item, 200, TimeUnit.MILLISECONDS)) checkStages(consumers);
+    }
+
+    private static void checkStages(List<Future<?>> stages) throws InterruptedException {
+        for (Future<?> f : stages) {
+            if (!f.isDone()) continue;
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            }
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        return cause instanceof RuntimeException re ? re : new RuntimeException(cause.getMessage(), cause);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stagePool.shutdownNow();
+    }
+}
@@ -0,0 +1,270 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.service.SyncService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 同步调度器 (不使用 Spring 默认的单线程调度器)
+ *   conflict-monitor : 冲突监控，独立线程，不会被慢同步拖住
+ *   sys_user / question / paper / exam_result : 每张表一个增量任务，各自的间隔，共用 sync-job 线程池
+ *   full-reconcile   : 全量对账，独立线程，按 sync.full.cron 执行
+ * 每个任务执行完才计算下一次执行时间，同一任务永远不会重叠；
+ * 全量对账执行期间表任务跳过本轮 (对账会覆盖同样的行)。
+ * 业务写入触发的同步 (SyncCoalescer) 与手动触发的全量对账 (/api/sync/trigger) 也经由这里执行，遵守同样的互斥规则。
+ * 表任务间隔自适应：本轮有变更则减半 (不低于 min-ms)，无变更则放大 1.5 倍 (不超过 max-ms)，
+ * 且不小于上次执行耗时，避免慢库时任务首尾相接占满线程。
+ */
+@Component
+public class SyncScheduler {
+
+    // 各表默认间隔 (毫秒)：interval / min / max；成绩变化最频繁，用户最少
+    private static final Map<String, long[]> TABLE_DEFAULTS = new LinkedHashMap<>();
+    static {
+        TABLE_DEFAULTS.put("exam_result", new long[]{5_000, 2_000, 60_000});
+        TABLE_DEFAULTS.put("paper", new long[]{30_000, 5_000, 300_000});
+        TABLE_DEFAULTS.put("question", new long[]{30_000, 5_000, 300_000});
+        TABLE_DEFAULTS.put("sys_user", new long[]{60_000, 10_000, 600_000});
+    }
+
+    /**
+     * 一个调度任务的当前状态 (/api/sync/jobs 返回)
+     */
+    public static final class JobState {
+        private final String name;
+        private final long minMs, maxMs;
+        private volatile long intervalMs;
+        private volatile boolean running;
+        private volatile LocalDateTime lastStart, nextRun;
+        private volatile long lastDurationMs, lastChanges, runs, failures, skipped;
+        private volatile String lastStatus, lastError;
+
+        JobState(String name, long intervalMs, long minMs, long maxMs) {
+            this.name = name;
+            this.intervalMs = intervalMs;
+            this.minMs = minMs;
+            this.maxMs = maxMs;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("name", name);
+            m.put("intervalMs", intervalMs);
+            m.put("running", running);
+            m.put("lastStart", lastStart);
+            m.put("lastDurationMs", lastDurationMs);
+            m.put("lastChanges", lastChanges);
+            m.put("lastStatus", lastStatus);
+            m.put("lastError", lastError);
+            m.put("nextRun", nextRun);
+            m.put("runs", runs);
+            m.put("failures", failures);
+            m.put("skipped", skipped);
+            return m;
+        }
+    }
+
+    @Autowired private SyncService syncService;
+    @Autowired private Environment env;
+
+    @Value("${sync.jobs.enabled:true}") private boolean enabled;
+    @Value("${sync.jobs.threads:4}") private int threads;
+    @Value("${sync.jobs.conflict-monitor-ms:5000}") private long conflictMonitorMs;
+    @Value("${sync.full.cron:0 30 * * * ?}") private String fullCron;
+
+    private final Map<String, JobState> jobs = new LinkedHashMap<>();
+    private final ReadWriteLock fullLock = new ReentrantReadWriteLock();
+    private ScheduledExecutorService monitorPool;
+    private ScheduledExecutorService tablePool;
+    private ScheduledExecutorService fullPool;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            System.out.println(">>> [同步调度] 已关闭 (sync.jobs.enabled=false)");
+            return;
+        }
+        monitorPool = Executors.newSingleThreadScheduledExecutor(namedThreads("sync-monitor-"));
+        tablePool = Executors.newScheduledThreadPool(threads, namedThreads("sync-job-"));
+        fullPool = Executors.newSingleThreadScheduledExecutor(namedThreads("sync-full-"));
+
+        JobState monitor = register("conflict-monitor", conflictMonitorMs, conflictMonitorMs, conflictMonitorMs);
+        schedule(monitorPool, monitor, () -> runMonitor(monitor), conflictMonitorMs);
+
+        TABLE_DEFAULTS.forEach((table, d) -> {
+            String prefix = "sync.jobs." + table + ".";
+            JobState job = register(table, env.getProperty(prefix + "interval-ms", Long.class, d[0]),
+                    env.getProperty(prefix + "min-ms", Long.class, d[1]), env.getProperty(prefix + "max-ms", Long.class, d[2]));
+            schedule(tablePool, job, () -> runTable(job), job.intervalMs);
+        });
+
+        CronExpression cron = CronExpression.parse(fullCron);
+        JobState full = register("full-reconcile", 0, 0, 0);
+        schedule(fullPool, full, () -> runFull(full, cron), untilNext(cron));
+    }
+
+    private JobState register(String name, long intervalMs, long minMs, long maxMs) {
+        JobState job = new JobState(name, intervalMs, minMs, maxMs);
+        jobs.put(name, job);
+        return job;
+    }
+
+    private void schedule(ScheduledExecutorService pool, JobState job, Runnable body, long delayMs) {
+        job.nextRun = LocalDateTime.now().plus(Duration.ofMillis(delayMs));
+        pool.schedule(body, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void runMonitor(JobState job) {
+        execute(job, () -> {
+            syncService.monitorConflicts();
+            return 0L;
+        });
+        schedule(monitorPool, job, () -> runMonitor(job), job.intervalMs);
+    }
+
+    private void runTable(JobState job) {
+        if (fullLock.readLock().tryLock()) {
+            try {
+                synchronized (job) {
+                    execute(job, () -> (long) syncService.scheduledTableSync(job.name));
+                    adapt(job);
+                }
+            } finally {
+                fullLock.readLock().unlock();
+            }
+        } else {
+            job.skipped++;
+        }
+        schedule(tablePool, job, () -> runTable(job), Math.max(job.intervalMs, job.lastDurationMs));
+    }
+
+    private void runFull(JobState job, CronExpression cron) {
+        fullLock.writeLock().lock();
+        try {
+            execute(job, () -> {
+                syncService.scheduledFullSync();
+                return 0L;
+            });
+        } finally {
+            fullLock.writeLock().unlock();
+        }
+        schedule(fullPool, job, () -> runFull(job, cron), untilNext(cron));
+    }
+
+    /**
+     * 立即执行一次单表增量同步 (与该表的定时任务共用变更来源和状态，不会与它重叠)；
+     * 全量对账正在执行时跳过并返回 false (对账会覆盖同样的行)，同步失败抛出 RuntimeException
+     */
+    public boolean runTableNow(String table) {
+        if (!fullLock.readLock().tryLock()) return false;
+        try {
+            JobState job = jobs.get(table);
+            if (job == null) { // 调度已关闭：没有任务状态，直接执行
+                syncService.scheduledTableSync(table);
+                return true;
+            }
+            synchronized (job) {
+                execute(job, () -> (long) syncService.scheduledTableSync(job.name));
+                adapt(job);
+                if ("FAILED".equals(job.lastStatus)) throw new RuntimeException(job.lastError);
+            }
+            return true;
+        } finally {
+            fullLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 立即执行一次全量对账：等待正在执行的表任务结束，对账期间表任务跳过；失败抛出 RuntimeException
+     */
+    public void runFullNow() {
+        fullLock.writeLock().lock();
+        try {
+            JobState job = jobs.get("full-reconcile");
+            if (job == null) {
+                syncService.scheduledFullSync();
+                return;
+            }
+            // 写锁同时排除了定时对账，不会与它重叠
+            execute(job, () -> {
+                syncService.scheduledFullSync();
+                return 0L;
+            });
+            if ("FAILED".equals(job.lastStatus)) throw new RuntimeException(job.lastError);
+        } finally {
+            fullLock.writeLock().unlock();
+        }
+    }
+
+    // 执行一次并记录状态；异常只记录，不影响下一次调度
+    private void execute(JobState job, Callable<Long> body) {
+        job.running = true;
+        job.lastStart = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        try {
+            job.lastChanges = body.call();
+            job.lastStatus = "SUCCESS";
+            job.lastError = null;
+        } catch (Exception e) {
+            job.failures++;
+            job.lastStatus = "FAILED";
+            job.lastError = e.getMessage();
+            System.err.println(">>> [同步调度] " + job.name + " 执行失败: " + e.getMessage());
+        } finally {
+            job.runs++;
+            job.lastDurationMs = System.currentTimeMillis() - start;
+            job.running = false;
+        }
+    }
+
+    // 有变更说明这张表正在活跃写入，缩短间隔；连续无变更则逐步放长
+    private static void adapt(JobState job) {
+        if ("FAILED".equals(job.lastStatus)) return;
+        long next = job.lastChanges > 0 ? job.intervalMs / 2 : job.intervalMs * 3 / 2;
+        job.intervalMs = Math.max(job.minMs, Math.min(job.maxMs, next));
+    }
+
+    private static long untilNext(CronExpression cron) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = cron.next(now);
+        return next == null ? Long.MAX_VALUE : Duration.between(now, next).toMillis();
+    }
+
+    /**
+     * 各调度任务的当前状态
+     */
+    public List<Map<String, Object>> jobStates() {
+        List<Map<String, Object>> list = new ArrayList<>();
+        jobs.values().forEach(j -> list.add(j.toMap()));
+        return list;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService pool : Arrays.asList(monitorPool, tablePool, fullPool)) {
+            if (pool != null) pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.entity.*;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 同步表的列定义
+ * 描述一张业务表的主键列、普通列及其 JDBC 类型，并负责把实体拆成按列顺序排列的参数数组。
+ * 三种方言的 upsert SQL 都由这份定义生成，保证三库写入的列完全一致。
+ * fingerprint 列写入时按胜者内容重新计算，不依赖源库里已存的值；sync_version 原样复制胜者的版本 (不重新生成)。
+ */
+public final class SyncTableSpec<T> {
+
+    public static final class Column {
+        private final String name;
+        private final int sqlType;
+        private final boolean key;
+
+        Column(String name, int sqlType, boolean key) {
+            this.name = name;
+            this.sqlType = sqlType;
+            this.key = key;
+        }
+
+        public String getName() { return name; }
+        public int getSqlType() { return sqlType; }
+        public boolean isKey() { return key; }
+    }
+
+    // === 业务表定义 (列顺序即参数顺序) ===
+    public static final SyncTableSpec<User> USER = new SyncTableSpec<User>("sys_user", true, u -> new Object[]{
+            u.getId(), u.getUsername(), u.getPassword(), u.getRole(), u.getRealName(), u.getCreateTime(), u.getUpdateTime(), u.computeFingerprint(), u.getSyncVersion()})
+            .key("id", Types.BIGINT)
+            .col("username", Types.VARCHAR).col("password", Types.VARCHAR).col("role", Types.VARCHAR)
+            .col("real_name", Types.VARCHAR).col("create_time", Types.TIMESTAMP).col("update_time", Types.TIMESTAMP)
+            .col("fingerprint", Types.VARCHAR).col("sync_version", Types.BIGINT);
+
+    public static final SyncTableSpec<Question> QUESTION = new SyncTableSpec<Question>("question", true, q -> new Object[]{
+            q.getId(), q.getContent(), q.getType(), q.getDifficulty(), q.getKnowledgePoint(), q.getAnswer(), q.getUpdateTime(), q.computeFingerprint(), q.getSyncVersion()})
+            .key("id", Types.BIGINT)
+            .col("content", Types.CLOB).col("type", Types.VARCHAR).col("difficulty", Types.VARCHAR)
+            .col("knowledge_point", Types.VARCHAR).col("answer", Types.VARCHAR).col("update_time", Types.TIMESTAMP)
+            .col("fingerprint", Types.VARCHAR).col("sync_version", Types.BIGINT);
+
+    public static final SyncTableSpec<Paper> PAPER = new SyncTableSpec<Paper>("paper", true, p -> new Object[]{
+            p.getId(), p.getPaperName(), p.getTotalScore(), p.getTeacher() != null ? p.getTeacher().getId() : null,
+            p.getCreateTime(), p.getUpdateTime(), p.computeFingerprint(), p.getSyncVersion()})
+            .key("id", Types.BIGINT)
+            .col("paper_name", Types.VARCHAR).col("total_score", Types.INTEGER).col("teacher_id", Types.BIGINT)
+            .col("create_time", Types.TIMESTAMP).col("update_time", Types.TIMESTAMP).col("fingerprint", Types.VARCHAR)
+            .col("sync_version", Types.BIGINT);
+
+    public static final SyncTableSpec<PaperQuestion> PAPER_QUESTION = new SyncTableSpec<PaperQuestion>("paper_question", false, pq -> new Object[]{
+            pq.getPaper().getId(), pq.getQuestion().getId(), pq.getScore()})
+            .key("paper_id", Types.BIGINT).key("question_id", Types.BIGINT)
+            .col("score", Types.INTEGER);
+
+    // 注意：exam_result 在备库中的考试时间列名为 exam_time (对应实体的 createTime)
+    public static final SyncTableSpec<ExamResult> EXAM_RESULT = new SyncTableSpec<ExamResult>("exam_result", true, r -> new Object[]{
+            r.getId(), r.getStudent() != null ? r.getStudent().getId() : null, r.getPaper() != null ? r.getPaper().getId() : null,
+            r.getScore(), r.getCreateTime(), r.getUpdateTime(), r.getStudentAnswers(), r.computeFingerprint(), r.getSyncVersion()})
+            .key("id", Types.BIGINT)
+            .col("student_id", Types.BIGINT).col("paper_id", Types.BIGINT).col("score", Types.DECIMAL)
+            .col("exam_time", Types.TIMESTAMP).col("update_time", Types.TIMESTAMP).col("student_answers", Types.CLOB)
+            .col("fingerprint", Types.VARCHAR).col("sync_version", Types.BIGINT);
+
+    private final String table;
+    private final boolean identity; // 主键是否为自增列 (SQL Server 需要 IDENTITY_INSERT)
+    private final Function<T, Object[]> binder;
+    private final List<Column> columns = new ArrayList<>();
+
+    private SyncTableSpec(String table, boolean identity, Function<T, Object[]> binder) {
+        this.table = table;
+        this.identity = identity;
+        this.binder = binder;
+    }
+
+    private SyncTableSpec<T> key(String name, int sqlType) {
+        columns.add(new Column(name, sqlType, true));
+        return this;
+    }
+
+    private SyncTableSpec<T> col(String name, int sqlType) {
+        columns.add(new Column(name, sqlType, false));
+        return this;
+    }
+
+    public String getTable() { return table; }
+    public boolean isIdentity() { return identity; }
+    public List<Column> getColumns() { return columns; }
+
+    public List<Column> getKeyColumns() {
+        return columns.stream().filter(Column::isKey).toList();
+    }
+
+    public List<Column> getValueColumns() {
+        return columns.stream().filter(c -> !c.isKey()).toList();
+    }
+
+    public Object[] bind(T row) {
+        return binder.apply(row);
+    }
+
+    // 单列主键表 (sys_user / question / paper / exam_result) 的 id
+    public Long idOf(T row) {
+        return ((Number) bind(row)[0]).longValue();
+    }
+
+    // 主键值 (复合主键用 ":" 连接)，用于日志与失败记录
+    public String keyOf(T row) {
+        Object[] values = bind(row);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (!columns.get(i).isKey()) continue;
+            if (sb.length() > 0) sb.append(':');
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.exam.backend.service.sync;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 各库的熔断器 (同步读写共用)
+ *   CLOSED    : 正常访问；连续失败 failure-threshold 次后打开
+ *   OPEN      : 不再访问该库 (读跳过、写转入 hint 日志)，open-ms 后进入半开
+ *   HALF_OPEN : 只放行一次探测，成功则关闭 (并触发 hint 重放)，失败则重新打开
+ * 某个库宕机时，只有前几次访问需要等待连接超时，之后其它库按正常速度同步。
+ * 调用方在 allow() 返回 true 后必须调用 recordSuccess / recordFailure 之一。
+ */
+@Component
+public class TargetHealth {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final class Breaker {
+        State state = State.CLOSED;
+        int consecutiveFailures;
+        long openedAt;
+        boolean probing;
+        String lastError;
+    }
+
+    @Value("${sync.breaker.failure-threshold:3}") private int failureThreshold;
+    @Value("${sync.breaker.open-ms:30000}") private long openMs;
+
+    private final Map<SyncDialect, Breaker> breakers = new EnumMap<>(SyncDialect.class);
+
+    public TargetHealth() {
+        for (SyncDialect d : SyncDialect.values()) breakers.put(d, new Breaker());
+    }
+
+    public boolean allow(SyncDialect db) {
+        Breaker b = breakers.get(db);
+        synchronized (b) {
+            switch (b.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.currentTimeMillis() - b.openedAt < openMs) return false;
+                    b.state = State.HALF_OPEN;
+                    b.probing = true;
+                    return true;
+                default:
+                    if (b.probing) return false;
+                    b.probing = true;
+                    return true;
+            }
+        }
+    }
+
+    public void recordSuccess(SyncDialect db) {
+        Breaker b = breakers.get(db);
+        synchronized (b) {
+            if (b.state != State.CLOSED) System.out.println(">>> [熔断] " + db.getDbName() + " 已恢复");
+            b.state = State.CLOSED;
+            b.consecutiveFailures = 0;
+            b.probing = false;
+        }
+    }
+
+    public void recordFailure(SyncDialect db, Throwable e) {
+        Breaker b = breakers.get(db);
+        synchronized (b) {
+            b.consecutiveFailures++;
+            b.lastError = e.getMessage();
+            b.probing = false;
+            if (b.state == State.HALF_OPEN || b.consecutiveFailures >= failureThreshold) {
+                if (b.state != State.OPEN) System.err.println(">>> [熔断] " + db.getDbName() + " 不可用，暂停访问 " + openMs + "ms: " + e.getMessage());
+                b.state = State.OPEN;
+                b.openedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    public boolean isClosed(SyncDialect db) {
+        Breaker b = breakers.get(db);
+        synchronized (b) {
+            return b.state == State.CLOSED;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        breakers.forEach((db, b) -> {
+            synchronized (b) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("state", b.state);
+                row.put("consecutiveFailures", b.consecutiveFailures);
+                row.put("lastError", b.lastError);
+                stats.put(db.getDbName(), row);
+            }
+        });
+        return stats;
+    }
+}
@@ -0,0 +1,255 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.common.HybridClock;
+import com.exam.backend.entity.SyncTombstone;
+import com.exam.backend.repository.mysql.MysqlExamResultRepository;
+import com.exam.backend.repository.mysql.MysqlSyncTombstoneRepository;
+import com.exam.backend.service.SyncService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 删除墓碑 (sys_sync_tombstone)
+ * 删除不再逐库同步执行，而是走普通的批量同步：
+ *   1. 业务删除：同一个 MySQL 事务里删除本库的行 (连同依赖行) 并记录墓碑，MySQL 记为已确认
+ *   2. 变更来源报告的直接删除 (outbox / change tracking 的 D 操作) 同样记录墓碑，删除发生的库记为已确认
+ *   3. 同步比对到有墓碑的 id 时 (reap)，还存在该行的库按墓碑集合式删除，已不存在的库记为已确认；
+ *      某个库的行版本比墓碑新 (删除之后又被修改)，则以该行为准，墓碑作废
+ *   4. 所有库都确认后墓碑删除；后台线程定期对未完成的墓碑发起定向同步，保证最终都会被确认
+ * 是否有墓碑由内存中的索引判断，没有墓碑的表在同步热路径上不查库。
+ */
+@Component
+public class TombstoneStore {
+
+    @Autowired @Lazy private SyncService syncService;
+    @Autowired private MysqlSyncTombstoneRepository repo;
+    @Autowired private MysqlExamResultRepository mysqlExamResultRepo;
+    @Autowired private NativeUpsertWriter writer;
+    @Autowired private SyncApplier applier;
+    @Autowired private SyncFanOut fanOut;
+    @Autowired private TargetHealth health;
+
+    @Value("${sync.tombstone.gc-ms:60000}") private long gcMs;
+
+    private final TransactionTemplate mysqlTx;
+    // 表 -> 未完成的墓碑 id -> 删除时的版本
+    private final Map<String, Map<Long, Long>> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService collector;
+
+    public TombstoneStore(@Qualifier("mysqlTransactionManager") PlatformTransactionManager mysqlTm) {
+        this.mysqlTx = new TransactionTemplate(mysqlTm);
+    }
+
+    @PostConstruct
+    public void start() {
+        repo.findAll().forEach(this::cache);
+        collector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sync-tombstone-gc");
+            t.setDaemon(true);
+            return t;
+        });
+        collector.scheduleWithFixedDelay(this::collect, gcMs, gcMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 业务删除：MySQL 立即删除 (连同依赖行) 并记录墓碑，事务提交后其它库由同步按墓碑删除。
+     * 删除用户 / 试卷时被级联删除的成绩也各记一条墓碑，避免其它库残留的成绩在试卷墓碑生效前被同步回来。
+     */
+    public void delete(String table, Collection<Long> ids) {
+        List<Long> list = new ArrayList<>(ids);
+        List<SyncTombstone> saved = mysqlTx.execute(status -> {
+            List<SyncTombstone> stones = new ArrayList<>();
+            List<Long> results = switch (table) {
+                case "sys_user" -> mysqlExamResultRepo.findIdsByStudentIdIn(list);
+                case "paper" -> mysqlExamResultRepo.findIdsByPaperIdIn(list);
+                default -> List.of();
+            };
+            stones.addAll(stamp("exam_result", results, SyncDialect.MYSQL));
+            stones.addAll(stamp(table, list, SyncDialect.MYSQL));
+            writer.deleteCascade(SyncDialect.MYSQL, table, list);
+            return repo.saveAll(stones);
+        });
+        // 提交之后才进入索引，回滚的删除不会影响同步
+        if (saved != null) saved.forEach(this::cache);
+    }
+
+    /**
+     * 变更来源报告的删除 (直接在某个库上执行的 DELETE)：id -> 删除时的版本，未知 (null) 时取当前时钟；已有墓碑的 id 跳过。
+     * 删除之后在其它库上的修改版本更大，仍以修改为准 (见 reap)。
+     */
+    public void recordDeleted(SyncDialect db, String table, Map<Long, Long> versions) {
+        Map<Long, Long> known = pending.getOrDefault(table, Map.of());
+        Map<Long, Long> fresh = new LinkedHashMap<>();
+        versions.forEach((id, v) -> {
+            if (!known.containsKey(id)) fresh.put(id, v);
+        });
+        if (fresh.isEmpty()) return;
+        repo.saveAll(stamp(table, fresh, db)).forEach(this::cache);
+        System.out.println(">>> [墓碑] " + db.getDbName() + " " + table + " 检测到删除 " + fresh.size() + " 行");
+    }
+
+    // 新建或重置墓碑：版本取当前时钟，只有 deletedIn 记为已确认
+    private List<SyncTombstone> stamp(String table, List<Long> ids, SyncDialect deletedIn) {
+        Map<Long, Long> versions = new LinkedHashMap<>();
+        ids.forEach(id -> versions.put(id, null));
+        return stamp(table, versions, deletedIn);
+    }
+
+    // 同上，版本取给定的删除时版本 (null 时取当前时钟)
+    private List<SyncTombstone> stamp(String table, Map<Long, Long> versions, SyncDialect deletedIn) {
+        if (versions.isEmpty()) return List.of();
+        Map<Long, SyncTombstone> existing = new HashMap<>();
+        repo.findByTableNameAndRowIdIn(table, versions.keySet()).forEach(t -> existing.put(t.getRowId(), t));
+        List<SyncTombstone> stones = new ArrayList<>(versions.size());
+        for (Map.Entry<Long, Long> e : versions.entrySet()) {
+            Long id = e.getKey();
+            SyncTombstone t = existing.getOrDefault(id, new SyncTombstone(table, id, null));
+            HybridClock.observe(e.getValue());
+            t.setSyncVersion(e.getValue() != null ? e.getValue() : HybridClock.next());
+            t.setDeleteTime(LocalDateTime.now());
+            t.setAcked("");
+            t.ack(deletedIn.getDbName());
+            stones.add(t);
+        }
+        return stones;
+    }
+
+    /**
+     * 同步比对阶段调用：有墓碑的行在仍然存在它的库上删除，不再参与胜者比对；返回其余的行
+     */
+    public List<MergedRow<RowVersion>> reap(String table, List<MergedRow<RowVersion>> rows) {
+        Map<Long, Long> stones = pending.get(table);
+        if (stones == null || stones.isEmpty()) return rows;
+
+        List<MergedRow<RowVersion>> live = new ArrayList<>(rows.size());
+        Map<SyncDialect, List<Long>> deletes = new EnumMap<>(SyncDialect.class);
+        Map<SyncDialect, List<Long>> absent = new EnumMap<>(SyncDialect.class);
+        List<Long> superseded = new ArrayList<>();
+        for (MergedRow<RowVersion> row : rows) {
+            Long version = stones.get(row.id());
+            if (version == null) {
+                live.add(row);
+                continue;
+            }
+            if (isNewer(row, version)) {
+                superseded.add(row.id());
+                live.add(row);
+                continue;
+            }
+            for (SyncDialect d : SyncDialect.values()) {
+                (row.get(d) != null ? deletes : absent).computeIfAbsent(d, k -> new ArrayList<>()).add(row.id());
+            }
+        }
+        if (!superseded.isEmpty()) drop(table, superseded);
+        if (deletes.isEmpty() && absent.isEmpty()) return live;
+
+        List<Callable<ApplyResult>> calls = new ArrayList<>();
+        deletes.forEach((target, ids) -> calls.add(() -> applier.applyDeletes(target, table, ids)));
+        for (ApplyResult r : fanOut.forkJoinSettled(calls)) {
+            if (r.getApplied() > 0 || r.getDeferred() > 0) System.out.println(">>> [墓碑] 删除 " + r.summary());
+            if (r.getDeferred() == 0) absent.computeIfAbsent(r.getTarget(), k -> new ArrayList<>()).addAll(deletes.get(r.getTarget()));
+        }
+        ack(table, absent);
+        return live;
+    }
+
+    /**
+     * 定向同步时三个库都查不到的 id：有墓碑的直接记为全部确认
+     */
+    public void reapAbsent(String table, Collection<Long> ids) {
+        Map<Long, Long> stones = pending.get(table);
+        if (stones == null || stones.isEmpty()) return;
+        List<Long> gone = ids.stream().filter(stones::containsKey).toList();
+        if (gone.isEmpty()) return;
+        Map<SyncDialect, List<Long>> acks = new EnumMap<>(SyncDialect.class);
+        for (SyncDialect d : SyncDialect.values()) acks.put(d, gone);
+        ack(table, acks);
+    }
+
+    private static boolean isNewer(MergedRow<RowVersion> row, long tombstoneVersion) {
+        for (SyncDialect d : SyncDialect.values()) {
+            RowVersion v = row.get(d);
+            if (v != null && v.syncVersion() != null && v.syncVersion() > tombstoneVersion) return true;
+        }
+        return false;
+    }
+
+    // 记录各库的确认 (熔断中的库读到的 "不存在" 不可信，不确认)；全部确认的墓碑删除
+    private synchronized void ack(String table, Map<SyncDialect, List<Long>> acks) {
+        Map<Long, Set<String>> byId = new HashMap<>();
+        acks.forEach((d, ids) -> {
+            if (!health.isClosed(d)) return;
+            ids.forEach(id -> byId.computeIfAbsent(id, k -> new HashSet<>()).add(d.getDbName()));
+        });
+        if (byId.isEmpty()) return;
+
+        List<SyncTombstone> done = new ArrayList<>();
+        List<SyncTombstone> partial = new ArrayList<>();
+        for (SyncTombstone t : repo.findByTableNameAndRowIdIn(table, byId.keySet())) {
+            byId.get(t.getRowId()).forEach(t::ack);
+            if (t.ackedDbs().size() == SyncDialect.values().length) {
+                done.add(t);
+            } else {
+                partial.add(t);
+            }
+        }
+        repo.saveAll(partial);
+        repo.deleteAll(done);
+        done.forEach(this::uncache);
+    }
+
+    private void drop(String table, List<Long> ids) {
+        List<SyncTombstone> stones = repo.findByTableNameAndRowIdIn(table, ids);
+        repo.deleteAll(stones);
+        stones.forEach(this::uncache);
+        System.out.println(">>> [墓碑] " + table + " " + stones.size() + " 行在删除后又被修改，保留修改，墓碑作废");
+    }
+
+    // 未完成的墓碑按表发起定向同步 (删除传播、确认与清理都在同步中完成)
+    private void collect() {
+        try {
+            Map<String, List<Long>> rows = new LinkedHashMap<>();
+            pending.forEach((table, stones) -> {
+                if (!stones.isEmpty()) rows.put(table, new ArrayList<>(stones.keySet()));
+            });
+            if (!rows.isEmpty()) syncService.sync(rows);
+        } catch (Exception e) {
+            System.err.println(">>> [墓碑] 清理失败: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Integer> stats() {
+        Map<String, Integer> stats = new LinkedHashMap<>();
+        pending.forEach((table, stones) -> stats.put(table, stones.size()));
+        return stats;
+    }
+
+    private void cache(SyncTombstone t) {
+        pending.computeIfAbsent(t.getTableName(), k -> new ConcurrentHashMap<>()).put(t.getRowId(), t.getSyncVersion());
+    }
+
+    private void uncache(SyncTombstone t) {
+        Map<Long, Long> stones = pending.get(t.getTableName());
+        if (stones != null) stones.remove(t.getRowId());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (collector != null) collector.shutdownNow();
+    }
+}
@@ -0,0 +1,191 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.service.SyncService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * 写后复制队列 (write-behind)
+ * 业务写入主库后只把 (表, id) 追加到本地日志文件并返回，由后台线程批量同步到其它库：
+ *   - journal.log    : 追加写，每行 "序号 表 id 入队时间"，写入后 force 落盘
+ *   - journal.offset : 已同步到的最大序号；重启时重放其后的条目，进程崩溃不丢复制任务
+ * 后台线程每次取一批条目，同一行合并为一次，按外键顺序定向同步 (SyncService.sync，含依赖行)；
+ * 失败时条目保留在队列中，按指数退避重试。队列清空且日志超过 compact-bytes 时截断日志。
+ */
+@Component
+public class WriteBehindQueue {
+
+    private record Entry(long seq, String table, long id, long enqueuedAt) {}
+
+    @Autowired private SyncService syncService;
+
+    @Value("${sync.write-behind.dir:./data/write-behind}") private String dir;
+    @Value("${sync.write-behind.batch-size:500}") private int batchSize;
+    @Value("${sync.write-behind.fsync:true}") private boolean fsync;
+    @Value("${sync.write-behind.compact-bytes:8388608}") private long compactBytes;
+    @Value("${sync.write-behind.max-backoff-ms:60000}") private long maxBackoffMs;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    private FileChannel journal;
+    private Path offsetFile;
+    private long nextSeq = 1;
+
+    // 监控指标
+    private volatile long applied;
+    private volatile long failures;
+    private volatile long lastAppliedAt;
+    private volatile String lastError;
+
+    private Thread applier;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path base = Paths.get(dir);
+        Files.createDirectories(base);
+        Path journalFile = base.resolve("journal.log");
+        offsetFile = base.resolve("journal.offset");
+
+        long offset = Files.exists(offsetFile) ? Long.parseLong(Files.readString(offsetFile).trim()) : 0L;
+        nextSeq = offset + 1;
+        if (Files.exists(journalFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    String[] f = line.split(" ");
+                    if (f.length != 4) continue; // 崩溃时写了一半的行
+                    Entry e = new Entry(Long.parseLong(f[0]), f[1], Long.parseLong(f[2]), Long.parseLong(f[3]));
+                    if (e.seq() > offset) pending.add(e);
+                    nextSeq = Math.max(nextSeq, e.seq() + 1);
+                }
+            }
+        }
+        dropTornTail(journalFile);
+        journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (!pending.isEmpty()) System.out.println(">>> [写后复制] 重放未完成的复制任务 " + pending.size() + " 条");
+
+        applier = new Thread(this::drainLoop, "sync-write-behind");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    // 截掉崩溃时写了一半的末行：否则下一条追加会接在它后面，下次重放时连同新条目一起被当作残行丢弃
+    private static void dropTornTail(Path file) throws IOException {
+        if (!Files.exists(file)) return;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            long end = ch.size();
+            while (end > 0) {
+                b.clear();
+                ch.read(b, end - 1);
+                if (b.get(0) == '\n') break;
+                end--;
+            }
+            if (end < ch.size()) ch.truncate(end);
+        }
+    }
+
+    /**
+     * 登记一行需要复制 (主库写入成功之后调用)；只做一次本地追加写，不访问其它库
+     */
+    public void enqueue(String table, Long id) {
+        if (id == null) return;
+        synchronized (lock) {
+            Entry e = new Entry(nextSeq++, table, id, System.currentTimeMillis());
+            try {
+                ByteBuffer line = StandardCharsets.UTF_8.encode(e.seq() + " " + e.table() + " " + e.id() + " " + e.enqueuedAt() + "\n");
+                while (line.hasRemaining()) journal.write(line);
+                if (fsync) journal.force(false);
+            } catch (IOException ex) {
+                throw new RuntimeException("写入复制日志失败: " + ex.getMessage(), ex);
+            }
+            pending.add(e);
+            lock.notifyAll();
+        }
+    }
+
+    private void drainLoop() {
+        long backoff = 0;
+        while (running) {
+            List<Entry> batch = new ArrayList<>();
+            try {
+                synchronized (lock) {
+                    while (pending.isEmpty() && running) lock.wait();
+                    Iterator<Entry> it = pending.iterator();
+                    while (it.hasNext() && batch.size() < batchSize) batch.add(it.next());
+                }
+                if (batch.isEmpty()) continue;
+
+                Map<String, Set<Long>> rows = new LinkedHashMap<>();
+                for (Entry e : batch) rows.computeIfAbsent(e.table(), k -> new LinkedHashSet<>()).add(e.id());
+                syncService.sync(rows);
+
+                commit(batch);
+                backoff = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failures++;
+                lastError = e.getMessage();
+                backoff = backoff == 0 ? 1000 : Math.min(maxBackoffMs, backoff * 2);
+                System.err.println(">>> [写后复制] 同步失败，" + backoff + "ms 后重试 (" + batch.size() + " 条): " + e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // 出队并记录偏移；队列已空且日志过大时截断 (序号继续递增，偏移文件仍然有效)
+    private void commit(List<Entry> batch) throws IOException {
+        long lastSeq = batch.get(batch.size() - 1).seq();
+        Path tmp = offsetFile.resolveSibling("journal.offset.tmp");
+        Files.writeString(tmp, Long.toString(lastSeq));
+        Files.move(tmp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (lock) {
+            for (int i = 0; i < batch.size(); i++) pending.poll();
+            if (pending.isEmpty() && journal.size() > compactBytes) journal.truncate(0);
+        }
+        applied += batch.size();
+        lastAppliedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 复制延迟指标：积压条数、最早一条已等待的毫秒数等
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            Entry oldest = pending.peek();
+            stats.put("pending", pending.size());
+            stats.put("lagMillis", oldest == null ? 0 : System.currentTimeMillis() - oldest.enqueuedAt());
+        }
+        stats.put("applied", applied);
+        stats.put("failures", failures);
+        stats.put("lastAppliedAt", lastAppliedAt == 0 ? null : new Date(lastAppliedAt));
+        stats.put("lastError", lastError);
+        return stats;
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        if (applier != null) applier.interrupt();
+        if (journal != null) journal.close();
+    }
+}
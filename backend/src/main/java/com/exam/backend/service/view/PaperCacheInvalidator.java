@@ -0,0 +1,68 @@
+package com.exam.backend.service.view;
+
+import com.exam.backend.service.grading.GradingPlanCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * MySQL 删除后的读缓存失效 (判分方案、试卷视图、学生端快照都只读 MySQL)
+ * MySQL 上的所有删除都经过 NativeUpsertWriter.deleteCascade：业务删除 (TombstoneStore.delete)、
+ * 按墓碑同步删除 (SyncApplier.applyDeletes)、hint 重放，由它在删除后调用这里，不需要每个调用方各自失效。
+ * 在 MySQL 事务中调用时等事务提交后再失效，避免提交前重新加载的请求把旧数据放回缓存。
+ */
+@Component
+public class PaperCacheInvalidator {
+
+    @Autowired private GradingPlanCache gradingPlans;
+    @Autowired private PaperViewCache paperViews;
+    @Autowired private PaperSnapshotStore paperSnapshots;
+
+    /**
+     * MySQL 删除了一批行 (连同依赖行)：
+     *   paper    : 这些试卷的缓存失效，快照删除
+     *   question : 包含这些试题的试卷缓存失效、快照重新渲染 (试卷题目关联已被级联删除)
+     */
+    public void rowsDeleted(String table, Collection<Long> ids) {
+        List<Long> list = List.copyOf(ids);
+        if (list.isEmpty()) return;
+        switch (table) {
+            case "paper" -> afterCommit(() -> {
+                gradingPlans.invalidatePapers(list);
+                paperViews.invalidatePapers(list);
+                paperSnapshots.remove(list);
+            });
+            case "question" -> afterCommit(() -> {
+                gradingPlans.invalidateQuestions(list);
+                paperViews.invalidateQuestions(list);
+                paperSnapshots.refreshQuestions(list);
+            });
+            default -> { }
+        }
+    }
+
+    /**
+     * 删除教师时这些试卷的 teacher_id 被置空：试卷视图带出卷人，需要失效 (判分方案、快照不含教师)
+     */
+    public void papersDetached(Collection<Long> paperIds) {
+        List<Long> list = List.copyOf(paperIds);
+        if (!list.isEmpty()) afterCommit(() -> paperViews.invalidatePapers(list));
+    }
+
+    private static void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+}
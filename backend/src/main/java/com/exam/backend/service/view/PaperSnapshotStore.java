@@ -0,0 +1,330 @@
+package com.exam.backend.service.view;
+
+import com.exam.backend.common.HybridClock;
+import com.exam.backend.entity.Paper;
+import com.exam.backend.entity.PaperQuestion;
+import com.exam.backend.entity.Question;
+import com.exam.backend.repository.mysql.MysqlPaperQuestionRepository;
+import com.exam.backend.repository.mysql.MysqlPaperRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 学生端试卷快照 (考试页 GET /api/exam/{paperId} 的响应)
+ * 试卷创建或变更时预先渲染成紧凑的 JSON (不含答案)，写入 {dir}/paper-{id}.{版本}.json 并以只读方式 mmap，
+ * 考试时直接把映射区写到响应里，不查库、不序列化，主库变慢或正在切换时考试页照常可用。
+ *   - 写入：先写临时文件并落盘，再改名为新版本文件，映射成功后替换内存中的快照，旧版本文件随后删除；
+ *           版本取读取试卷之前的时钟，比已有快照旧或读取之后试卷被删除的结果丢弃 (并发渲染不会用旧内容覆盖新内容)
+ *   - 重启：映射目录中每张试卷最新版本的文件 (不需要预热)；后台线程为还没有快照的试卷补渲染，并删除 MySQL 中已不存在的试卷的快照
+ *   - 失效：试卷 / 试题变更 (业务写入或同步写入 MySQL) 后从 MySQL 重新渲染；渲染失败保留旧快照；
+ *           MySQL 上删除试卷 / 试题 (PaperCacheInvalidator) 后删除快照 / 重新渲染
+ *   - 未命中：每张试卷同时只有一个请求渲染，其余请求等待同一个结果；不存在的试卷在 missing-ttl-ms 内直接返回不存在，不再查库
+ */
+@Component
+public class PaperSnapshotStore {
+
+    private record Snapshot(MappedByteBuffer json, long[] questionIds, Path file, long version) {
+        boolean contains(long questionId) {
+            return Arrays.binarySearch(questionIds, questionId) >= 0;
+        }
+    }
+
+    @Autowired private MysqlPaperRepository mysqlPaperRepo;
+    @Autowired private MysqlPaperQuestionRepository mysqlPaperQuestionRepo;
+    @Autowired private ObjectMapper objectMapper;
+
+    @Value("${exam.snapshot.dir:./data/snapshots}") private String dir;
+    @Value("${exam.snapshot.missing-ttl-ms:30000}") private long missingTtlMs;
+
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // 正在渲染的试卷 (同一张试卷的未命中请求共用一次渲染)
+    private final Map<Long, CompletableFuture<Optional<Snapshot>>> loading = new ConcurrentHashMap<>();
+    // 已知不存在 (被删除或查不到) 的试卷 -> 得知时的版本
+    private final Map<Long, Long> missing = new ConcurrentHashMap<>();
+    // 下次清理过期 missing 记录的时间 (毫秒)
+    private volatile long nextMissingPurge;
+    private ExecutorService backfiller;
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path base = Paths.get(dir);
+        Files.createDirectories(base);
+        // 每张试卷取版本最大的文件，其余 (被替换后没删掉的旧版本、写了一半的临时文件) 清理掉
+        Map<Long, Path> latest = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(base)) {
+            for (Path f : files) {
+                long[] key = parseName(f);
+                if (key == null) {
+                    Files.deleteIfExists(f);
+                    continue;
+                }
+                Path current = latest.get(key[0]);
+                if (current == null || parseName(current)[1] < key[1]) {
+                    if (current != null) deleteQuietly(current);
+                    latest.put(key[0], f);
+                } else {
+                    deleteQuietly(f);
+                }
+            }
+        }
+        for (Map.Entry<Long, Path> e : latest.entrySet()) {
+            try {
+                snapshots.put(e.getKey(), open(e.getValue(), parseName(e.getValue())[1]));
+            } catch (IOException ex) {
+                System.err.println(">>> [试卷快照] 加载失败，稍后重新渲染: " + e.getValue() + " " + ex.getMessage());
+            }
+        }
+        System.out.println(">>> [试卷快照] 已加载 " + snapshots.size() + " 张试卷");
+
+        backfiller = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "paper-snapshot-backfill");
+            t.setDaemon(true);
+            return t;
+        });
+        backfiller.submit(this::backfill);
+    }
+
+    /**
+     * 试卷快照 (只读视图，每次调用独立的读取位置)；还没有快照时从 MySQL 渲染一次，试卷不存在时抛出 RuntimeException
+     */
+    public ByteBuffer get(Long paperId) {
+        Snapshot s = snapshots.get(paperId);
+        if (s != null) return s.json().asReadOnlyBuffer();
+        Long gone = missing.get(paperId);
+        if (gone != null) {
+            if (HybridClock.physicalMillis(gone) + missingTtlMs > System.currentTimeMillis()) throw new RuntimeException("试卷不存在");
+            missing.remove(paperId, gone);
+        }
+
+        CompletableFuture<Optional<Snapshot>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<Snapshot>> running = loading.putIfAbsent(paperId, load);
+        if (running == null) {
+            running = load;
+            try {
+                load.complete(render(paperId));
+            } catch (Exception e) {
+                load.completeExceptionally(e);
+            } finally {
+                loading.remove(paperId, load);
+            }
+        }
+        try {
+            return running.join().orElseThrow(() -> new RuntimeException("试卷不存在")).json().asReadOnlyBuffer();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    /**
+     * 用已经在内存中的试卷和题目渲染快照 (组卷时调用，不依赖 MySQL 是否已同步)
+     */
+    public void publish(Paper paper, List<PaperQuestion> pqs) {
+        try {
+            write(paper, pqs, HybridClock.next());
+        } catch (Exception e) {
+            System.err.println(">>> [试卷快照] 试卷 " + paper.getId() + " 渲染失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 从 MySQL 重新渲染这些试卷；MySQL 中已不存在的试卷删除快照
+     */
+    public void refresh(Collection<Long> paperIds) {
+        for (Long id : paperIds) {
+            try {
+                if (render(id).isEmpty()) remove(List.of(id));
+            } catch (Exception e) {
+                System.err.println(">>> [试卷快照] 试卷 " + id + " 重新渲染失败，继续使用旧快照: " + e.getMessage());
+            }
+        }
+    }
+
+    // 试题被修改：重新渲染包含这些试题的试卷 (按快照里记录的题目判断，试题删除后同样能找到)
+    public void refreshQuestions(Collection<Long> questionIds) {
+        List<Long> affected = new ArrayList<>();
+        snapshots.forEach((paperId, s) -> {
+            if (questionIds.stream().anyMatch(id -> id != null && s.contains(id))) affected.add(paperId);
+        });
+        refresh(affected);
+    }
+
+    // 试卷已被删除：删除快照并记为不存在 (删除之前开始的渲染结果随后会被丢弃)
+    public synchronized void remove(Collection<Long> paperIds) {
+        long version = HybridClock.next();
+        purgeMissing();
+        for (Long id : paperIds) {
+            missing.put(id, version);
+            Snapshot s = snapshots.remove(id);
+            if (s != null) deleteQuietly(s.file());
+        }
+    }
+
+    // 清理过期的不存在记录，每 missing-ttl-ms 至多一次：任何人都能请求随机的试卷 id，只在删除时清理会让它无限增长
+    private void purgeMissing() {
+        long now = System.currentTimeMillis();
+        if (now < nextMissingPurge) return;
+        nextMissingPurge = now + missingTtlMs;
+        missing.values().removeIf(v -> HybridClock.physicalMillis(v) + missingTtlMs <= now);
+    }
+
+    // 从 MySQL 渲染；试卷不存在返回 empty，结果已过时 (渲染期间试卷被删除) 时同样返回 empty
+    private Optional<Snapshot> render(Long paperId) {
+        long version = HybridClock.next();
+        Optional<Paper> paper = mysqlPaperRepo.findById(paperId);
+        if (paper.isEmpty()) {
+            purgeMissing();
+            missing.merge(paperId, version, Math::max);
+            return Optional.empty();
+        }
+        try {
+            return write(paper.get(), mysqlPaperQuestionRepo.findWithQuestionByPaperId(paperId), version);
+        } catch (IOException e) {
+            throw new RuntimeException("写入试卷快照失败: " + e.getMessage(), e);
+        }
+    }
+
+    // 只保留考试页需要的字段：试卷 id / 名称 / 总分，试题 id / 题干 / 题型与分值 (不含答案)；
+    // version 是读取试卷内容之前的时钟：已有更新的快照时不写 (返回已有的)，读取之后试卷被删除时不写 (返回 empty)
+    private synchronized Optional<Snapshot> write(Paper paper, List<PaperQuestion> pqs, long version) throws IOException {
+        Snapshot current = snapshots.get(paper.getId());
+        if (current != null && current.version() > version) return Optional.of(current);
+        Long gone = missing.get(paper.getId());
+        if (gone != null && gone > version) return Optional.empty();
+
+        List<Map<String, Object>> questionList = new ArrayList<>(pqs.size());
+        long[] questionIds = new long[pqs.size()];
+        for (int i = 0; i < pqs.size(); i++) {
+            Question q = pqs.get(i).getQuestion();
+            Map<String, Object> question = new LinkedHashMap<>();
+            question.put("id", q.getId());
+            question.put("content", q.getContent());
+            question.put("type", q.getType());
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("question", question);
+            item.put("score", pqs.get(i).getScore());
+            questionList.add(item);
+            questionIds[i] = q.getId();
+        }
+        Arrays.sort(questionIds);
+
+        Map<String, Object> paperInfo = new LinkedHashMap<>();
+        paperInfo.put("id", paper.getId());
+        paperInfo.put("paperName", paper.getPaperName());
+        paperInfo.put("totalScore", paper.getTotalScore());
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("paperInfo", paperInfo);
+        data.put("questionList", questionList);
+        byte[] json = objectMapper.writeValueAsBytes(Map.of("code", 200, "data", data));
+
+        Path base = Paths.get(dir);
+        Path tmp = Files.createTempFile(base, "paper-" + paper.getId() + ".", ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.wrap(json);
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        Path file = base.resolve("paper-" + paper.getId() + "." + version + ".json");
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+
+        Snapshot snapshot = new Snapshot(map(file), questionIds, file, version);
+        Snapshot old = snapshots.put(paper.getId(), snapshot);
+        missing.remove(paper.getId());
+        // 已经映射的旧文件删除后映射区仍然可读，正在读它的请求不受影响
+        if (old != null) deleteQuietly(old.file());
+        return Optional.of(snapshot);
+    }
+
+    private Snapshot open(Path file, long version) throws IOException {
+        MappedByteBuffer json = map(file);
+        List<Long> ids = new ArrayList<>();
+        JsonNode root = objectMapper.readTree(toBytes(json));
+        root.path("data").path("questionList").forEach(item -> ids.add(item.path("question").path("id").asLong()));
+        long[] questionIds = ids.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new Snapshot(json, questionIds, file, version);
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    private static byte[] toBytes(ByteBuffer buf) {
+        ByteBuffer b = buf.asReadOnlyBuffer();
+        byte[] bytes = new byte[b.remaining()];
+        b.get(bytes);
+        return bytes;
+    }
+
+    // 文件名 paper-{id}.{版本}.json -> [id, 版本]；不是快照文件返回 null
+    private static long[] parseName(Path f) {
+        String name = f.getFileName().toString();
+        if (!name.startsWith("paper-") || !name.endsWith(".json")) return null;
+        String[] parts = name.substring(6, name.length() - 5).split("\\.");
+        if (parts.length != 2) return null;
+        try {
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void deleteQuietly(Path f) {
+        try {
+            Files.deleteIfExists(f);
+        } catch (IOException ignored) {
+            // 删除失败 (如 Windows 下文件仍被映射) 留到下次启动清理
+        }
+    }
+
+    // 还没有快照的试卷补渲染 (第一次启用快照或快照目录被清空时)；
+    // MySQL 中已不存在的试卷 (停机前删除但没来得及删快照) 删除快照，避免重启后重新映射
+    private void backfill() {
+        try {
+            long listed = HybridClock.next(); // 列出 id 之后才写入的快照 (新建的试卷) 不算孤儿
+            Set<Long> ids = new HashSet<>(mysqlPaperRepo.findAllIds());
+            List<Long> orphans = snapshots.entrySet().stream()
+                    .filter(e -> !ids.contains(e.getKey()) && e.getValue().version() < listed).map(Map.Entry::getKey).toList();
+            if (!orphans.isEmpty()) {
+                remove(orphans);
+                System.out.println(">>> [试卷快照] 删除 " + orphans.size() + " 张已不存在的试卷的快照");
+            }
+            List<Long> absent = ids.stream().filter(id -> !snapshots.containsKey(id)).toList();
+            if (absent.isEmpty()) return;
+            refresh(absent);
+            System.out.println(">>> [试卷快照] 补渲染 " + absent.size() + " 张试卷");
+        } catch (Exception e) {
+            System.err.println(">>> [试卷快照] 补渲染失败，考试页首次访问时再渲染: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("papers", snapshots.size());
+        stats.put("missing", missing.size());
+        stats.put("bytes", snapshots.values().stream().mapToLong(s -> s.json().capacity()).sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (backfiller != null) backfiller.shutdownNow();
+    }
+}
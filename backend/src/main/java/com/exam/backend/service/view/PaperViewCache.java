@@ -0,0 +1,139 @@
+package com.exam.backend.service.view;
+
+import com.exam.backend.entity.Paper;
+import com.exam.backend.entity.PaperQuestion;
+import com.exam.backend.repository.mysql.MysqlPaperQuestionRepository;
+import com.exam.backend.repository.mysql.MysqlPaperRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 试卷视图缓存 (LRU，最多 exam.paper-view.cache-size 张试卷)
+ * 缓存的是序列化好的响应 JSON ({"code":200,"data":{paperInfo, questionList}})，命中时直接写出字节，不查库也不再序列化。
+ * 同一张试卷同时只有一个请求在加载 (single-flight)：开考时大量学生同时请求同一张试卷，
+ * 第一个请求负责查库，其余请求等待同一个结果。
+ * 试卷或其中的试题被修改 (业务写入或同步写入 MySQL) 或在 MySQL 上被删除 (PaperCacheInvalidator) 时失效；加载期间发生的失效会让这次结果只交给已在等待的请求，不进入缓存。
+ */
+@Component
+public class PaperViewCache {
+
+    private record View(byte[] json, long[] questionIds) {
+        boolean contains(long questionId) {
+            return Arrays.binarySearch(questionIds, questionId) >= 0;
+        }
+    }
+
+    @Autowired private MysqlPaperRepository mysqlPaperRepo;
+    @Autowired private MysqlPaperQuestionRepository mysqlPaperQuestionRepo;
+    @Autowired private ObjectMapper objectMapper;
+
+    private final Map<Long, CompletableFuture<View>> views;
+    // 失效计数：加载期间发生失效时，加载出的视图可能已经过时，不留在缓存里
+    private long invalidations;
+    private volatile long hits, loads, coalesced;
+
+    public PaperViewCache(@Value("${exam.paper-view.cache-size:256}") int capacity) {
+        this.views = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompletableFuture<View>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * 试卷视图的响应 JSON；试卷不存在时抛出 RuntimeException
+     */
+    public byte[] get(Long paperId) {
+        CompletableFuture<View> view;
+        boolean loader = false;
+        long generation;
+        synchronized (this) {
+            view = views.get(paperId);
+            if (view == null) {
+                view = new CompletableFuture<>();
+                views.put(paperId, view);
+                loader = true;
+            } else if (view.isDone()) {
+                hits++;
+            } else {
+                coalesced++;
+            }
+            generation = invalidations;
+        }
+        if (loader) load(paperId, view, generation);
+        try {
+            return view.join().json();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    private void load(Long paperId, CompletableFuture<View> view, long generation) {
+        try {
+            view.complete(render(paperId));
+            loads++;
+        } catch (Exception e) {
+            // 失败 (包括试卷不存在) 只通知本轮等待的请求，不缓存
+            view.completeExceptionally(e);
+            synchronized (this) {
+                views.remove(paperId, view);
+            }
+            return;
+        }
+        synchronized (this) {
+            if (generation != invalidations) views.remove(paperId, view);
+        }
+    }
+
+    private View render(Long paperId) throws Exception {
+        Paper paper = mysqlPaperRepo.findById(paperId).orElseThrow(() -> new RuntimeException("试卷不存在"));
+        List<PaperQuestion> pqs = mysqlPaperQuestionRepo.findWithQuestionByPaperId(paperId);
+
+        List<Map<String, Object>> questionList = new ArrayList<>(pqs.size());
+        long[] questionIds = new long[pqs.size()];
+        for (int i = 0; i < pqs.size(); i++) {
+            PaperQuestion pq = pqs.get(i);
+            Map<String, Object> item = new HashMap<>();
+            item.put("question", pq.getQuestion());
+            item.put("score", pq.getScore());
+            questionList.add(item);
+            questionIds[i] = pq.getQuestion().getId();
+        }
+        Arrays.sort(questionIds);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("paperInfo", paper);
+        data.put("questionList", questionList);
+        return new View(objectMapper.writeValueAsBytes(Map.of("code", 200, "data", data)), questionIds);
+    }
+
+    public synchronized void invalidatePapers(Collection<Long> paperIds) {
+        invalidations++;
+        paperIds.forEach(views::remove);
+    }
+
+    // 试题被修改：包含这些试题的试卷视图都失效 (只检查已加载完成的视图，加载中的由失效计数处理)
+    public synchronized void invalidateQuestions(Collection<Long> questionIds) {
+        invalidations++;
+        views.values().removeIf(f -> {
+            View v = f.isDone() && !f.isCompletedExceptionally() ? f.join() : null;
+            return v != null && questionIds.stream().anyMatch(id -> id != null && v.contains(id));
+        });
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cached", views.size());
+        stats.put("hits", hits);
+        stats.put("loads", loads);
+        stats.put("coalesced", coalesced);
+        return stats;
+    }
+}
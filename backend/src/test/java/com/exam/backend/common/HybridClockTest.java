@@ -0,0 +1,68 @@
+package com.exam.backend.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HybridClockTest {
+
+    @Test
+    void versionsStrictlyIncreaseAndTrackWallClock() {
+        long before = System.currentTimeMillis();
+        long a = HybridClock.next();
+        long b = HybridClock.next();
+        assertTrue(b > a);
+        assertTrue(HybridClock.physicalMillis(a) >= before);
+    }
+
+    @Test
+    void observedVersionFromAheadIsOvertaken() {
+        // 其它库的时钟比本机快两秒 (时钟是进程内全局的，不要推得太远影响其它测试)
+        long remote = HybridClock.at(System.currentTimeMillis() + 2_000) + 7;
+        HybridClock.observe(remote);
+        assertTrue(HybridClock.next() > remote);
+        HybridClock.observe(null); // 没有版本的旧数据
+        HybridClock.observe(1L);   // 更旧的版本不会拉回时钟
+        assertTrue(HybridClock.next() > remote);
+    }
+
+    @Test
+    void atMapsMillisToTheSmallestVersionOfThatMillisecond() {
+        long millis = 1_700_000_000_123L;
+        assertEquals(millis, HybridClock.physicalMillis(HybridClock.at(millis)));
+        assertEquals(millis, HybridClock.physicalMillis(HybridClock.at(millis) + 0xFFFF));
+        assertEquals(millis + 1, HybridClock.physicalMillis(HybridClock.at(millis) + 0x10000));
+    }
+
+    @Test
+    void concurrentCallersNeverShareAVersion() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<List<Long>>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(() -> {
+                    List<Long> versions = new ArrayList<>();
+                    for (int i = 0; i < 10_000; i++) versions.add(HybridClock.next());
+                    return versions;
+                });
+            }
+            List<Long> all = new ArrayList<>();
+            for (Future<List<Long>> f : pool.invokeAll(tasks)) {
+                List<Long> versions = f.get();
+                List<Long> sorted = new ArrayList<>(versions);
+                Collections.sort(sorted);
+                assertEquals(sorted, versions); // 每个线程看到的版本单调递增
+                all.addAll(versions);
+            }
+            assertEquals(all.size(), new HashSet<>(all).size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.exam.backend.service.grading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradingPlanTest {
+
+    // 故意打乱顺序：判分方案按题目 id 排序后二分查找
+    private final GradingPlan plan = new GradingPlan(1L, "期中", 10, List.of(
+            new Object[]{30L, "C", 4},
+            new Object[]{10L, "A", 2},
+            new Object[]{20L, "ab", 4},
+            new Object[]{40L, "D", null}));
+
+    @Test
+    void correctAnswersScoreIgnoringCase() {
+        assertEquals(10, plan.grade(Map.of(10L, "a", 20L, "AB", 30L, "C")));
+    }
+
+    @Test
+    void wrongUnknownAndNullAnswersScoreNothing() {
+        Map<Long, String> answers = new HashMap<>();
+        answers.put(10L, "B");     // 答错
+        answers.put(99L, "A");     // 不在试卷中
+        answers.put(20L, null);    // 未作答
+        answers.put(null, "C");
+        answers.put(30L, "C");
+        assertEquals(4, plan.grade(answers));
+        assertEquals(0, plan.grade(null));
+    }
+
+    @Test
+    void missingScoreCountsAsZero() {
+        assertEquals(0, plan.grade(Map.of(40L, "D")));
+        assertTrue(plan.contains(40L));
+        assertFalse(plan.contains(50L));
+        assertEquals(4, plan.getQuestionCount());
+    }
+}
@@ -0,0 +1,200 @@
+package com.exam.backend.service.submit;
+
+import com.exam.backend.entity.ExamResult;
+import com.exam.backend.entity.Paper;
+import com.exam.backend.entity.User;
+import com.exam.backend.repository.mysql.MysqlExamResultRepository;
+import com.exam.backend.repository.oracle.OracleExamResultRepository;
+import com.exam.backend.repository.sqlserver.SqlServerExamResultRepository;
+import com.exam.backend.service.sync.WriteBehindQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class SubmissionBufferTest {
+
+    @TempDir Path dir;
+
+    private final MysqlExamResultRepository mysqlRepo = mock(MysqlExamResultRepository.class);
+    private final List<Long> savedPapers = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final List<SubmissionBuffer> started = new ArrayList<>();
+
+    @AfterEach
+    void stopAll() throws Exception {
+        for (SubmissionBuffer b : started) b.stop();
+    }
+
+    // 试卷 id 在 poisoned 中的成绩写入时违反外键；failing 为 true 时模拟主库不可用
+    private void stubSaveAll(List<Long> poisoned, AtomicBoolean failing) {
+        when(mysqlRepo.saveAll(any())).thenAnswer(inv -> {
+            if (failing.get()) throw new QueryTimeoutException("主库不可用");
+            List<ExamResult> rows = new ArrayList<>();
+            for (ExamResult r : inv.<Iterable<ExamResult>>getArgument(0)) rows.add(r);
+            if (rows.stream().anyMatch(r -> poisoned.contains(r.getPaper().getId()))) {
+                throw new DataIntegrityViolationException("foreign key constraint fails (paper_id)");
+            }
+            rows.forEach(r -> {
+                r.setId(ids.incrementAndGet());
+                savedPapers.add(r.getPaper().getId());
+            });
+            return rows;
+        });
+    }
+
+    private SubmissionBuffer start() throws Exception {
+        SubmissionBuffer buffer = new SubmissionBuffer(mock(PlatformTransactionManager.class),
+                mock(PlatformTransactionManager.class), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(buffer, "mysqlExamResultRepo", mysqlRepo);
+        ReflectionTestUtils.setField(buffer, "oracleExamResultRepo", mock(OracleExamResultRepository.class));
+        ReflectionTestUtils.setField(buffer, "sqlServerExamResultRepo", mock(SqlServerExamResultRepository.class));
+        ReflectionTestUtils.setField(buffer, "writeBehind", mock(WriteBehindQueue.class));
+        ReflectionTestUtils.setField(buffer, "dir", dir.toString());
+        ReflectionTestUtils.setField(buffer, "batchSize", 200);
+        ReflectionTestUtils.setField(buffer, "lingerMs", 0L);
+        ReflectionTestUtils.setField(buffer, "maxPending", 1000);
+        ReflectionTestUtils.setField(buffer, "maxBackoffMs", 500L);
+        buffer.start();
+        started.add(buffer);
+        return buffer;
+    }
+
+    private void writeJournal(long... paperIds) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < paperIds.length; i++) {
+            sb.append(i + 1).append('\t').append(100 + i).append('\t').append(paperIds[i]).append('\t')
+                    .append("80").append('\t').append(1_700_000_000_000L + i).append('\t').append("{\"1\":\"A\"}").append('\n');
+        }
+        Files.writeString(dir.resolve("journal.log"), sb.toString());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("超时");
+            Thread.sleep(10);
+        }
+    }
+
+    private static long pending(SubmissionBuffer buffer) {
+        return ((Number) buffer.stats().get("pending")).longValue();
+    }
+
+    // 出队先于保存偏移和截断日志，等写入线程把这两步也做完再断言
+    private void awaitCommitted(long offset) throws InterruptedException {
+        await(() -> {
+            try {
+                Path offsetFile = dir.resolve("journal.offset");
+                return Files.exists(offsetFile) && Files.readString(offsetFile).equals(Long.toString(offset))
+                        && Files.size(dir.resolve("journal.log")) == 0;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+    }
+
+    @Test
+    void poisonedEntryIsQuarantinedAndDoesNotBlockLaterEntries() throws Exception {
+        stubSaveAll(List.of(2L), new AtomicBoolean(false));
+        writeJournal(1, 2, 3);
+
+        SubmissionBuffer buffer = start();
+        await(() -> pending(buffer) == 0);
+        awaitCommitted(3);
+
+        assertEquals(List.of(1L, 3L), savedPapers);
+        assertEquals(1L, buffer.stats().get("quarantined"));
+        List<String> letters = Files.readAllLines(dir.resolve("dead-letter.log"));
+        assertEquals(1, letters.size());
+        assertTrue(letters.get(0).startsWith("2\t101\t2\t80\t"));
+        assertEquals("3", Files.readString(dir.resolve("journal.offset")));
+        assertEquals(0, Files.size(dir.resolve("journal.log")));
+
+        // 重启后没有需要重放的条目
+        buffer.stop();
+        started.remove(buffer);
+        SubmissionBuffer restarted = start();
+        assertEquals(0, pending(restarted));
+        assertEquals(List.of(1L, 3L), savedPapers);
+    }
+
+    @Test
+    void transientFailureKeepsEntriesQueued() throws Exception {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        stubSaveAll(List.of(), failing);
+        writeJournal(1, 2);
+
+        SubmissionBuffer buffer = start();
+        await(() -> ((Number) buffer.stats().get("failures")).longValue() > 0);
+        assertEquals(2, pending(buffer));
+        assertFalse(Files.exists(dir.resolve("dead-letter.log")));
+
+        failing.set(false);
+        await(() -> pending(buffer) == 0);
+        assertEquals(List.of(1L, 2L), savedPapers);
+    }
+
+    @Test
+    void replayedEntriesAlreadyWrittenAreSkipped() throws Exception {
+        stubSaveAll(List.of(), new AtomicBoolean(false));
+        // 第一条上次已写入主库，只是偏移没来得及保存
+        when(mysqlRepo.existsByStudentIdAndPaperIdAndCreateTime(eq(100L), anyLong(), any())).thenReturn(true);
+        writeJournal(1, 2);
+
+        SubmissionBuffer buffer = start();
+        await(() -> pending(buffer) == 0);
+        awaitCommitted(2);
+        assertEquals(List.of(2L), savedPapers);
+        assertEquals("2", Files.readString(dir.resolve("journal.offset")));
+    }
+
+    @Test
+    void submissionAfterTornTailSurvivesRestart() throws Exception {
+        stubSaveAll(List.of(), new AtomicBoolean(true));
+        writeJournal(1);
+        Files.writeString(dir.resolve("journal.log"), "2\t101\t5", StandardOpenOption.APPEND); // 崩溃时写了一半
+
+        SubmissionBuffer buffer = start();
+        assertEquals(1, pending(buffer));
+        User student = new User();
+        student.setId(200L);
+        Paper paper = new Paper();
+        paper.setId(9L);
+        ExamResult result = new ExamResult();
+        result.setStudent(student);
+        result.setPaper(paper);
+        result.setScore(new BigDecimal("90"));
+        result.setCreateTime(LocalDateTime.of(2024, 1, 1, 8, 0));
+        buffer.submit(result);
+        buffer.stop();
+        started.remove(buffer);
+
+        // 新交卷自成一行，重启后两份都还在
+        List<String> lines = Files.readAllLines(dir.resolve("journal.log"));
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).startsWith("2\t200\t9\t90\t"));
+        assertEquals(2, pending(start()));
+    }
+}
@@ -0,0 +1,61 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.entity.SyncWatermark;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChangeSetTest {
+
+    @Test
+    void cursorOfTableNeedingResyncIsHeldUntilResynced() {
+        ChangeSet changes = new ChangeSet();
+        SyncWatermark user = new SyncWatermark("change_tracking:sys_user", "SQLServer");
+        SyncWatermark paper = new SyncWatermark("change_tracking:paper", "SQLServer");
+        changes.advance("sys_user", user);
+        changes.requireFullResync("paper");
+        changes.advance("paper", paper);
+
+        assertEquals(List.of(user), changes.getCursors());
+
+        changes.resynced("paper");
+        assertEquals(List.of(user, paper), changes.getCursors());
+    }
+
+    @Test
+    void deletedRowsKeepTheLatestKnownDeleteVersion() {
+        ChangeSet changes = new ChangeSet();
+        changes.delete("paper", 1L, 100L);
+        changes.delete("paper", 1L, 300L);
+        changes.delete("paper", 1L, 200L);
+        changes.delete("paper", 2L);
+
+        Map<Long, Long> expected = new HashMap<>();
+        expected.put(1L, 300L);
+        expected.put(2L, null);
+        assertEquals(expected, changes.getDeleted().get("paper"));
+        assertEquals(2, changes.rows("paper").size());
+    }
+
+    @Test
+    void onlyRowsFromTheChangeSourceCountAsReported() {
+        ChangeSet changes = new ChangeSet();
+        changes.add("paper", 1L);
+        changes.request("paper", 1L);
+        changes.request("paper", 2L);
+        changes.add("paper", 2L);
+        changes.delete("paper", 3L);
+
+        changes.request("paper", 4L);
+        assertEquals(Set.of(1L, 2L, 3L, 4L), changes.rows("paper").keySet());
+
+        // 被变更来源报告过的行 (不论先后) 都算报告，只被定向同步要求的不算
+        assertEquals(Set.of(1L, 2L, 3L), changes.reported("paper"));
+        assertEquals(Set.of(), changes.reported("sys_user"));
+    }
+}
@@ -0,0 +1,168 @@
+package com.exam.backend.service.sync;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChecksumTreeTest {
+
+    private static final ChecksumTree.Spec SPEC = new ChecksumTree.Spec("paper", List.of("paper_name"));
+    private static final Pattern WIDTH = Pattern.compile("id / (\\d+)");
+
+    // 各库的表内容：id -> 行哈希
+    private final Map<SyncDialect, TreeMap<Long, Long>> tables = new EnumMap<>(SyncDialect.class);
+    // MySQL 每次分桶查询的 [lo, hi, 桶宽]，用来检查下钻时的桶边界
+    private final List<long[]> bucketQueries = new ArrayList<>();
+    private final ChecksumTree tree = new ChecksumTree();
+
+    private void configure(int fanout, int leafSize) {
+        ReflectionTestUtils.setField(tree, "fanout", fanout);
+        ReflectionTestUtils.setField(tree, "leafSize", leafSize);
+        ReflectionTestUtils.setField(tree, "mysqlEm", em(SyncDialect.MYSQL));
+        ReflectionTestUtils.setField(tree, "oracleEm", em(SyncDialect.ORACLE));
+        ReflectionTestUtils.setField(tree, "sqlServerEm", em(SyncDialect.SQLSERVER));
+    }
+
+    private TreeMap<Long, Long> table(SyncDialect d) {
+        return tables.computeIfAbsent(d, k -> new TreeMap<>());
+    }
+
+    // 按 SQL 在内存表上算出与数据库相同形状的结果 (行数、哈希和、桶号)
+    private EntityManager em(SyncDialect d) {
+        EntityManager em = mock(EntityManager.class);
+        when(em.createNativeQuery(anyString())).thenAnswer(inv -> {
+            String sql = inv.getArgument(0);
+            long[] range = {Long.MIN_VALUE, Long.MAX_VALUE};
+            Query query = mock(Query.class);
+            when(query.setParameter(anyInt(), any())).thenAnswer(p -> {
+                range[(int) p.getArgument(0) - 1] = (Long) p.getArgument(1);
+                return query;
+            });
+            when(query.getSingleResult()).thenAnswer(q -> {
+                TreeMap<Long, Long> rows = table(d);
+                long sum = rows.values().stream().mapToLong(Long::longValue).sum();
+                return new Object[]{(long) rows.size(), rows.isEmpty() ? null : BigDecimal.valueOf(sum),
+                        rows.isEmpty() ? null : rows.firstKey(), rows.isEmpty() ? null : rows.lastKey()};
+            });
+            when(query.getResultList()).thenAnswer(q -> {
+                Matcher m = WIDTH.matcher(sql);
+                assertTrue(m.find(), sql);
+                long width = Long.parseLong(m.group(1));
+                if (d == SyncDialect.MYSQL) bucketQueries.add(new long[]{range[0], range[1], width});
+                Map<Long, long[]> buckets = new TreeMap<>();
+                table(d).subMap(range[0], true, range[1], true).forEach((id, hash) -> {
+                    long[] b = buckets.computeIfAbsent(Math.floorDiv(id, width), k -> new long[2]);
+                    b[0]++;
+                    b[1] += hash;
+                });
+                List<Object[]> rows = new ArrayList<>();
+                buckets.forEach((b, s) -> rows.add(new Object[]{b, s[0], BigDecimal.valueOf(s[1])}));
+                return rows;
+            });
+            return query;
+        });
+        return em;
+    }
+
+    // 三库写入相同的 [from, to] 行
+    private void fill(long from, long to) {
+        for (SyncDialect d : SyncDialect.values()) {
+            for (long id = from; id <= to; id++) table(d).put(id, id * 31);
+        }
+    }
+
+    private Map<SyncDialect, List<long[]>> diff() {
+        return tree.diffRanges(SPEC, List.of(SyncDialect.ORACLE, SyncDialect.SQLSERVER));
+    }
+
+    private static boolean covers(List<long[]> ranges, long id) {
+        return ranges.stream().anyMatch(r -> r[0] <= id && id <= r[1]);
+    }
+
+    @Test
+    void identicalTablesStopAtTheRoot() {
+        configure(4, 8);
+        fill(1, 500);
+        assertTrue(diff().isEmpty());
+        assertTrue(bucketQueries.isEmpty());
+    }
+
+    @Test
+    void leafRangesAreClampedToTheIdSpanAndContainTheDifference() {
+        configure(4, 8);
+        fill(1003, 1200); // 最小 id 不在桶边界上
+        table(SyncDialect.ORACLE).put(1003L, 0L);
+        table(SyncDialect.ORACLE).put(1200L, 0L);
+
+        Map<SyncDialect, List<long[]>> out = diff();
+        assertEquals(Set.of(SyncDialect.ORACLE), out.keySet());
+        List<long[]> ranges = out.get(SyncDialect.ORACLE);
+        assertTrue(covers(ranges, 1003) && covers(ranges, 1200));
+        for (long[] r : ranges) {
+            assertTrue(r[0] >= 1003 && r[1] <= 1200, Arrays.toString(r));
+            assertTrue(r[1] - r[0] + 1 <= 8, Arrays.toString(r));
+        }
+        // 只下钻不一致的桶：两个叶子区间
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new long[]{1003, 1007}, ranges.get(0));
+        assertArrayEquals(new long[]{1200, 1200}, ranges.get(1));
+    }
+
+    @Test
+    void childQueriesStayInsideTheirParentBucket() {
+        configure(4, 8);
+        fill(0, 1000);
+        table(SyncDialect.SQLSERVER).put(255L, 0L); // 桶边界两侧
+        table(SyncDialect.SQLSERVER).put(256L, 0L);
+
+        List<long[]> ranges = diff().get(SyncDialect.SQLSERVER);
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new long[]{248, 255}, ranges.get(0));
+        assertArrayEquals(new long[]{256, 263}, ranges.get(1));
+
+        // 顶层桶数不超过 fanout；每层查询区间都落在一个上层桶内，桶宽逐层除以 fanout
+        long[] top = bucketQueries.get(0);
+        assertEquals(512, top[2]);
+        assertTrue((top[1] - top[0]) / top[2] + 1 <= 4);
+        for (long[] q : bucketQueries.subList(1, bucketQueries.size())) {
+            long parentWidth = q[2] * 4;
+            assertEquals(Math.floorDiv(q[0], parentWidth), Math.floorDiv(q[1], parentWidth), Arrays.toString(q));
+            assertTrue(q[0] >= top[0] && q[1] <= top[1]);
+        }
+    }
+
+    @Test
+    void rowsOnlyInTheTargetBeyondMysqlMaxIdAreFound() {
+        configure(4, 8);
+        fill(1, 100);
+        table(SyncDialect.ORACLE).put(5000L, 7L);
+
+        List<long[]> ranges = diff().get(SyncDialect.ORACLE);
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new long[]{5000, 5000}, ranges.get(0));
+    }
+
+    @Test
+    void eachTargetOnlyGetsItsOwnDifferingBuckets() {
+        configure(16, 256);
+        fill(1, 10_000);
+        table(SyncDialect.ORACLE).remove(42L);
+        table(SyncDialect.SQLSERVER).put(9_999L, 1L);
+
+        Map<SyncDialect, List<long[]>> out = diff();
+        assertEquals(1, out.get(SyncDialect.ORACLE).size());
+        assertArrayEquals(new long[]{1, 255}, out.get(SyncDialect.ORACLE).get(0));
+        assertEquals(1, out.get(SyncDialect.SQLSERVER).size());
+        assertArrayEquals(new long[]{9984, 10_000}, out.get(SyncDialect.SQLSERVER).get(0));
+    }
+}
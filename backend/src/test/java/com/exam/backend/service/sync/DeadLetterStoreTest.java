@@ -0,0 +1,136 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.entity.SyncDeadLetter;
+import com.exam.backend.repository.mysql.MysqlSyncDeadLetterRepository;
+import com.exam.backend.service.SyncService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DeadLetterStoreTest {
+
+    private final MysqlSyncDeadLetterRepository repo = mock(MysqlSyncDeadLetterRepository.class);
+    private final SyncService syncService = mock(SyncService.class);
+    // 内存中的 sys_sync_dead_letter
+    private final Map<Long, SyncDeadLetter> table = new LinkedHashMap<>();
+    private final AtomicLong seq = new AtomicLong();
+    private final DeadLetterStore store = new DeadLetterStore();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(repo.save(any())).thenAnswer(inv -> {
+            SyncDeadLetter l = inv.getArgument(0);
+            if (l.getId() == null) l.setId(seq.incrementAndGet());
+            table.put(l.getId(), l);
+            return l;
+        });
+        when(repo.saveAll(anyIterable())).thenAnswer(inv -> {
+            List<SyncDeadLetter> saved = new ArrayList<>();
+            inv.<Iterable<SyncDeadLetter>>getArgument(0).forEach(l -> saved.add(repo.save(l)));
+            return saved;
+        });
+        when(repo.findAll()).thenAnswer(inv -> new ArrayList<>(table.values()));
+        when(repo.findAllById(anyIterable())).thenAnswer(inv -> {
+            List<SyncDeadLetter> found = new ArrayList<>();
+            inv.<Iterable<Long>>getArgument(0).forEach(id -> Optional.ofNullable(table.get(id)).ifPresent(found::add));
+            return found;
+        });
+        when(repo.findByTableNameAndRowIdAndTargetDb(anyString(), anyLong(), anyString())).thenAnswer(inv -> table.values().stream()
+                .filter(l -> l.getTableName().equals(inv.getArgument(0)) && l.getRowId().equals(inv.getArgument(1))
+                        && l.getTargetDb().equals(inv.getArgument(2)))
+                .findFirst());
+        when(repo.findByTableNameAndTargetDbAndRowIdIn(anyString(), anyString(), anyCollection())).thenAnswer(inv -> table.values().stream()
+                .filter(l -> l.getTableName().equals(inv.getArgument(0)) && l.getTargetDb().equals(inv.getArgument(1))
+                        && inv.<Collection<Long>>getArgument(2).contains(l.getRowId()))
+                .toList());
+        doAnswer(inv -> {
+            inv.<Iterable<SyncDeadLetter>>getArgument(0).forEach(l -> table.remove(l.getId()));
+            return null;
+        }).when(repo).deleteAll(anyIterable());
+
+        ReflectionTestUtils.setField(store, "repo", repo);
+        ReflectionTestUtils.setField(store, "syncService", syncService);
+        ReflectionTestUtils.setField(store, "baseBackoffMs", 60_000L);
+        ReflectionTestUtils.setField(store, "maxBackoffMs", 200_000L);
+        ReflectionTestUtils.setField(store, "maxAttempts", 4);
+    }
+
+    private void failWrite(long id) {
+        ApplyResult result = new ApplyResult(SyncDialect.ORACLE, "paper");
+        result.addFailure("paper:" + id, id, new RuntimeException("ORA-12899: 值太大"));
+        store.settle(SyncDialect.ORACLE, "paper", List.of(id), result);
+    }
+
+    private SyncDeadLetter letter(long rowId) {
+        return table.values().stream().filter(l -> l.getRowId() == rowId).findFirst().orElse(null);
+    }
+
+    private static long waitMs(SyncDeadLetter l) {
+        return Duration.between(l.getLastFailedAt(), l.getNextRetryAt()).toMillis();
+    }
+
+    @Test
+    void backoffDoublesPerFailureUpToTheCap() {
+        failWrite(7);
+        assertTrue(store.isQuarantined(SyncDialect.ORACLE, "paper", 7L));
+        // 只隔离失败的那个目标库
+        assertFalse(store.isQuarantined(SyncDialect.SQLSERVER, "paper", 7L));
+        assertFalse(store.isQuarantined(SyncDialect.ORACLE, "paper", 8L));
+        assertEquals(60_000, waitMs(letter(7)));
+
+        failWrite(7);
+        assertEquals(2, letter(7).getAttempts());
+        assertEquals(120_000, waitMs(letter(7)));
+
+        failWrite(7);
+        assertEquals(200_000, waitMs(letter(7)));
+        assertEquals("ORA-12899: 值太大", letter(7).getError());
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void givesUpAfterMaxAttemptsUntilRetriedByHand() {
+        for (int i = 0; i < 4; i++) failWrite(7);
+        assertNull(letter(7).getNextRetryAt());
+        assertTrue(store.isQuarantined(SyncDialect.ORACLE, "paper", 7L));
+
+        // 手动重试：定向同步该行，没有再次失败则删除死信
+        assertEquals(0, store.retry(List.of(letter(7).getId())));
+        verify(syncService).sync(Map.of("paper", new LinkedHashSet<>(List.of(7L))));
+        assertTrue(table.isEmpty());
+        assertFalse(store.isQuarantined(SyncDialect.ORACLE, "paper", 7L));
+    }
+
+    @Test
+    void successfulWriteClearsTheDeadLetter() {
+        failWrite(7);
+        failWrite(8);
+
+        ApplyResult result = new ApplyResult(SyncDialect.ORACLE, "paper");
+        result.addFailure("paper:8", 8L, new RuntimeException("仍然失败"));
+        store.settle(SyncDialect.ORACLE, "paper", List.of(7L, 8L), result);
+
+        assertNull(letter(7));
+        assertFalse(store.isQuarantined(SyncDialect.ORACLE, "paper", 7L));
+        assertEquals(2, letter(8).getAttempts());
+        assertTrue(store.isQuarantined(SyncDialect.ORACLE, "paper", 8L));
+    }
+
+    @Test
+    void rowIsReleasedOnceItsBackoffHasPassed() throws Exception {
+        ReflectionTestUtils.setField(store, "baseBackoffMs", 30L);
+        failWrite(7);
+        assertTrue(store.isQuarantined(SyncDialect.ORACLE, "paper", 7L));
+        Thread.sleep(60);
+        assertFalse(store.isQuarantined(SyncDialect.ORACLE, "paper", 7L));
+    }
+}
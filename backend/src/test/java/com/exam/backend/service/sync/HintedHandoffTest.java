@@ -0,0 +1,102 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.service.SyncService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class HintedHandoffTest {
+
+    @TempDir Path dir;
+
+    private final SyncService syncService = mock(SyncService.class);
+    private final TargetHealth health = mock(TargetHealth.class);
+    // Oracle 熔断器是否关闭 (其它库始终可用)
+    private final AtomicBoolean oracleUp = new AtomicBoolean(false);
+    // 每次 SyncService.sync 收到的 (表 -> id)
+    private final List<Map<String, List<Long>>> synced = new CopyOnWriteArrayList<>();
+    private final HintedHandoff hints = new HintedHandoff();
+
+    @AfterEach
+    void shutdown() {
+        hints.shutdown();
+    }
+
+    private void start(int replayBatch) throws Exception {
+        when(health.isClosed(any())).thenAnswer(inv -> inv.getArgument(0) != SyncDialect.ORACLE || oracleUp.get());
+        doAnswer(inv -> {
+            Map<String, List<Long>> rows = new LinkedHashMap<>();
+            inv.<Map<String, Collection<Long>>>getArgument(0).forEach((t, ids) -> rows.put(t, new ArrayList<>(ids)));
+            synced.add(rows);
+            return null;
+        }).when(syncService).sync(anyMap());
+        ReflectionTestUtils.setField(hints, "syncService", syncService);
+        ReflectionTestUtils.setField(hints, "health", health);
+        ReflectionTestUtils.setField(hints, "dir", dir.toString());
+        ReflectionTestUtils.setField(hints, "replayMs", 20L);
+        ReflectionTestUtils.setField(hints, "replayBatch", replayBatch);
+        hints.start();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("超时");
+            Thread.sleep(10);
+        }
+    }
+
+    private boolean noHintFiles() {
+        return !Files.exists(dir.resolve("ORACLE.log")) && !Files.exists(dir.resolve("ORACLE.replaying"));
+    }
+
+    @Test
+    void hintsWaitForTheBreakerAndReplayDeduplicatedInBatches() throws Exception {
+        start(2);
+        hints.record(SyncDialect.ORACLE, "paper", List.of(1L, 2L));
+        hints.record(SyncDialect.ORACLE, "paper", List.of(2L, 3L));
+        hints.record(SyncDialect.ORACLE, "question", List.of(7L));
+        assertEquals(5L, hints.stats().get("Oracle"));
+
+        // 熔断期间不重放
+        Thread.sleep(100);
+        assertTrue(synced.isEmpty());
+
+        oracleUp.set(true);
+        await(this::noHintFiles);
+        assertEquals(List.of(Map.of("paper", List.of(1L, 2L)), Map.of("paper", List.of(3L)), Map.of("question", List.of(7L))), synced);
+        assertEquals(0L, hints.stats().get("Oracle"));
+    }
+
+    @Test
+    void failedReplayKeepsTheRenamedLogAndNewHintsGoToAFreshOne() throws Exception {
+        oracleUp.set(true);
+        start(1000);
+        doThrow(new RuntimeException("Oracle 不可用")).doAnswer(inv -> {
+            synced.add(Map.of("paper", new ArrayList<>(inv.<Map<String, Collection<Long>>>getArgument(0).get("paper"))));
+            return null;
+        }).when(syncService).sync(anyMap());
+
+        hints.record(SyncDialect.ORACLE, "paper", List.of(1L));
+        // 第一次重放失败：日志已改名为 .replaying 并保留
+        await(() -> Files.exists(dir.resolve("ORACLE.replaying")) && mockingDetails(syncService).getInvocations().size() >= 1);
+        hints.record(SyncDialect.ORACLE, "paper", List.of(2L));
+
+        await(this::noHintFiles);
+        // 先重放改名的旧日志，再重放之后写入的新日志
+        assertEquals(List.of(Map.of("paper", List.of(1L)), Map.of("paper", List.of(2L))), synced);
+    }
+}
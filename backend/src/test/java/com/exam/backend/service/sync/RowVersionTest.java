@@ -0,0 +1,65 @@
+package com.exam.backend.service.sync;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RowVersionTest {
+
+    private static final LocalDateTime T1 = LocalDateTime.of(2024, 1, 1, 8, 0);
+    private static final LocalDateTime T2 = T1.plusSeconds(1);
+
+    private static RowVersion row(LocalDateTime updateTime, String fingerprint, Long syncVersion) {
+        return new RowVersion(1L, updateTime, fingerprint, syncVersion);
+    }
+
+    @Test
+    void differentVersionsAlwaysNeedWriteEvenWithSameFingerprint() {
+        assertTrue(row(T1, "a", 1L).isBehind(row(T1, "a", 2L)));
+    }
+
+    @Test
+    void sameVersionFallsBackToFingerprint() {
+        assertFalse(row(T1, "a", 5L).isBehind(row(T1, "a", 5L)));
+        assertTrue(row(T1, "a", 5L).isBehind(row(T1, "b", 5L)));
+        // 同版本但都没有指纹：视为相同
+        assertFalse(row(T1, null, 5L).isBehind(row(T1, null, 5L)));
+    }
+
+    @Test
+    void directEditBehindAnUnchangedFingerprintIsCaughtByUpdateTime() {
+        // 直接在库里改了内容：存的指纹、版本还是旧值，只有 update_time 变了
+        assertTrue(row(T1, "a", 5L).isBehind(row(T2, "a", 5L)));
+        assertTrue(row(T1, "a", null).isBehind(row(T2, "a", null)));
+        assertFalse(row(T2, "a", 5L).isBehind(row(T1, "a", 5L)));
+        // 秒以下的差异来自各库时间精度不同，不算更新
+        assertFalse(row(T1, "a", 5L).isBehind(row(T1.plusNanos(250_000_000), "a", 5L)));
+        assertFalse(row(T1, "a", 5L).isBehind(row(null, "a", 5L)));
+    }
+
+    @Test
+    void missingVersionOrFingerprint() {
+        // 旧数据没有版本：只看指纹
+        assertFalse(row(T1, "a", null).isBehind(row(T1, "a", null)));
+        assertTrue(row(T1, "a", null).isBehind(row(T1, "b", 3L)));
+        // 缺少指纹又缺少版本：无法判断相同，需要写
+        assertTrue(row(T1, null, null).isBehind(row(T1, "a", 3L)));
+        assertTrue(row(T1, "a", 3L).isBehind(row(T1, null, null)));
+    }
+
+    @Test
+    void newestOrdersByVersionThenUpdateTime() {
+        RowVersion legacyOld = row(T1, "a", null);
+        RowVersion legacyNew = row(T2, "a", null);
+        RowVersion versioned = row(T1, "a", 1L);
+        RowVersion latest = row(T1, "a", 2L);
+        assertEquals(List.of(legacyOld, legacyNew, versioned, latest),
+                Stream.of(latest, versioned, legacyNew, legacyOld).sorted(RowVersion.NEWEST).toList());
+        // 版本相同比 update_time
+        assertTrue(RowVersion.NEWEST.compare(row(T2, "a", 1L), row(T1, "b", 1L)) > 0);
+    }
+}
@@ -0,0 +1,153 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.Savepoint;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SyncApplierTest {
+
+    private final PlatformTransactionManager tm = mock(PlatformTransactionManager.class);
+    private final NativeUpsertWriter writer = mock(NativeUpsertWriter.class);
+    private final HintedHandoff hints = mock(HintedHandoff.class);
+    private final DeadLetterStore deadLetters = mock(DeadLetterStore.class);
+    private final TargetHealth health = new TargetHealth();
+    private final SyncApplier applier = new SyncApplier(tm, tm, tm);
+
+    // 目标库：当前事务内已写入 (未提交) 的 id、已提交的 id；保存点记录创建时已写入的行数
+    private final List<Long> written = new ArrayList<>();
+    private final List<Long> committed = new ArrayList<>();
+    private final Map<Savepoint, Integer> savepoints = new HashMap<>();
+    // 写到这些 id 时抛出行级错误
+    private final Set<Long> badIds = new HashSet<>();
+    // 为 true 时创建保存点失败 (连接断开)
+    private final AtomicBoolean disconnected = new AtomicBoolean(false);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(health, "failureThreshold", 1);
+        ReflectionTestUtils.setField(health, "openMs", 60_000L);
+        ReflectionTestUtils.setField(applier, "writer", writer);
+        ReflectionTestUtils.setField(applier, "health", health);
+        ReflectionTestUtils.setField(applier, "hints", hints);
+        ReflectionTestUtils.setField(applier, "deadLetters", deadLetters);
+        ReflectionTestUtils.setField(applier, "chunkSize", 3);
+
+        when(tm.getTransaction(any())).thenAnswer(inv -> {
+            written.clear();
+            return new SimpleTransactionStatus();
+        });
+        doAnswer(inv -> committed.addAll(written)).when(tm).commit(any());
+        doAnswer(inv -> {
+            written.clear();
+            return null;
+        }).when(tm).rollback(any());
+
+        when(writer.savepoint(any())).thenAnswer(inv -> {
+            if (disconnected.get()) throw new RuntimeException("连接已断开");
+            Savepoint sp = mock(Savepoint.class);
+            savepoints.put(sp, written.size());
+            return sp;
+        });
+        doAnswer(inv -> {
+            int mark = savepoints.get(inv.<Savepoint>getArgument(1));
+            written.subList(mark, written.size()).clear();
+            return null;
+        }).when(writer).rollbackTo(any(), any());
+        // 逐行写入，遇到坏行时前面的行已经写进事务
+        doAnswer(inv -> {
+            for (User u : inv.<List<User>>getArgument(2)) {
+                if (badIds.contains(u.getId())) throw new RuntimeException("违反唯一约束: " + u.getId());
+                written.add(u.getId());
+            }
+            return null;
+        }).when(writer).upsertBatch(any(), any(), anyList());
+    }
+
+    private static List<User> users(long... ids) {
+        List<User> users = new ArrayList<>();
+        for (long id : ids) {
+            User u = new User();
+            u.setId(id);
+            u.setUsername("u" + id);
+            users.add(u);
+        }
+        return users;
+    }
+
+    private ApplyResult apply(long... ids) {
+        return applier.apply(SyncDialect.ORACLE, SyncTableSpec.USER, users(ids));
+    }
+
+    @Test
+    void badRowRollsBackToTheChunkSavepointAndOnlyItFails() {
+        badIds.add(2L);
+        ApplyResult result = apply(1, 2, 3, 4, 5);
+
+        // 第一组整批失败时已写入的 1 被回滚，逐行重试后不会重复写入
+        assertEquals(List.of(1L, 3L, 4L, 5L), committed);
+        assertEquals(4, result.getApplied());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(2L, result.getFailures().get(0).getId());
+        assertTrue(result.isFailed("2"));
+        // 行级错误不计入熔断
+        assertTrue(health.isClosed(SyncDialect.ORACLE));
+        verify(deadLetters).settle(SyncDialect.ORACLE, "sys_user", List.of(1L, 2L, 3L, 4L, 5L), result);
+        verifyNoInteractions(hints);
+    }
+
+    @Test
+    void quarantinedRowsAreSkipped() {
+        when(deadLetters.isQuarantined(SyncDialect.ORACLE, "sys_user", 2L)).thenReturn(true);
+        ApplyResult result = apply(1, 2, 3);
+
+        assertEquals(List.of(1L, 3L), committed);
+        assertEquals(2, result.getApplied());
+        assertEquals(1, result.getQuarantined());
+        verify(deadLetters).settle(SyncDialect.ORACLE, "sys_user", List.of(1L, 3L), result);
+    }
+
+    @Test
+    void openBreakerDefersAllRowsWithoutTouchingTheTarget() {
+        assertTrue(health.allow(SyncDialect.ORACLE));
+        health.recordFailure(SyncDialect.ORACLE, new RuntimeException("连接超时"));
+
+        ApplyResult result = apply(1, 2, 3);
+
+        assertEquals(3, result.getDeferred());
+        assertEquals(0, result.getApplied());
+        verify(hints).record(SyncDialect.ORACLE, "sys_user", List.of(1L, 2L, 3L));
+        verifyNoInteractions(writer, tm);
+    }
+
+    @Test
+    void connectionFailureMidwayOpensTheBreakerAndDefersTheRemainingRows() {
+        // 第一组提交后连接断开
+        doAnswer(inv -> {
+            committed.addAll(written);
+            disconnected.set(true);
+            return null;
+        }).when(tm).commit(any());
+
+        ApplyResult result = apply(1, 2, 3, 4, 5);
+
+        assertEquals(List.of(1L, 2L, 3L), committed);
+        assertEquals(3, result.getApplied());
+        assertEquals(2, result.getDeferred());
+        assertFalse(result.hasFailures());
+        assertFalse(health.isClosed(SyncDialect.ORACLE));
+        verify(hints).record(SyncDialect.ORACLE, "sys_user", List.of(4L, 5L));
+        // 只有已提交的组参与死信登记
+        verify(deadLetters).settle(SyncDialect.ORACLE, "sys_user", List.of(1L, 2L, 3L), result);
+    }
+}
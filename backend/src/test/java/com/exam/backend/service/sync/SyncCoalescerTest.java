@@ -0,0 +1,119 @@
+package com.exam.backend.service.sync;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SyncCoalescerTest {
+
+    private final SyncScheduler syncScheduler = mock(SyncScheduler.class);
+    private final SyncCoalescer coalescer = new SyncCoalescer();
+    // 每次 runTableNow 开始执行的时间
+    private final List<Long> runs = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        coalescer.shutdown();
+    }
+
+    private void configure(long debounceMs, long maxDelayMs) {
+        ReflectionTestUtils.setField(coalescer, "syncScheduler", syncScheduler);
+        ReflectionTestUtils.setField(coalescer, "debounceMs", debounceMs);
+        ReflectionTestUtils.setField(coalescer, "maxDelayMs", maxDelayMs);
+        when(syncScheduler.runTableNow(anyString())).thenAnswer(inv -> {
+            runs.add(System.currentTimeMillis());
+            return true;
+        });
+    }
+
+    private Map<?, ?> stats(String table) {
+        return (Map<?, ?>) coalescer.stats().get(table);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("超时");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void burstWithinTheDebounceWindowRunsOnce() throws Exception {
+        configure(100, 5_000);
+        for (int i = 0; i < 5; i++) coalescer.trigger("exam_result");
+
+        await(() -> runs.size() == 1);
+        Thread.sleep(300);
+        assertEquals(1, runs.size());
+        assertEquals(5L, stats("exam_result").get("triggers"));
+        assertEquals(4L, stats("exam_result").get("absorbed"));
+        assertEquals(false, stats("exam_result").get("pending"));
+    }
+
+    @Test
+    void maxDelayCapsASteadyStreamOfTriggers() throws Exception {
+        // 每 40ms 触发一次，debounce 永远等不到；最迟 max-delay 之后执行
+        configure(150, 400);
+        long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < 1_500) {
+            coalescer.trigger("paper");
+            Thread.sleep(40);
+        }
+        assertTrue(runs.size() >= 2, runs.toString());
+        long first = runs.get(0) - start;
+        assertTrue(first >= 400 && first < 900, "首次执行在 " + first + "ms");
+    }
+
+    @Test
+    void triggersDuringARunAreCoalescedIntoOneFollowUp() throws Exception {
+        configure(20, 1_000);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        doAnswer(inv -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            runs.add(System.currentTimeMillis());
+            if (runs.size() == 1) release.await(10, TimeUnit.SECONDS);
+            concurrent.decrementAndGet();
+            return true;
+        }).when(syncScheduler).runTableNow("sys_user");
+
+        coalescer.trigger("sys_user");
+        await(() -> runs.size() == 1);
+        for (int i = 0; i < 3; i++) coalescer.trigger("sys_user");
+        Thread.sleep(100);
+        assertEquals(1, runs.size()); // 正在同步，只登记为待执行
+        assertEquals(true, stats("sys_user").get("inFlight"));
+
+        release.countDown();
+        await(() -> runs.size() == 2);
+        Thread.sleep(100);
+        assertEquals(2, runs.size());
+        assertEquals(1, maxConcurrent.get());
+    }
+
+    @Test
+    void skippedAndFailedRunsAreCounted() throws Exception {
+        configure(10, 100);
+        doReturn(false).doThrow(new RuntimeException("Oracle 不可用")).when(syncScheduler).runTableNow("question");
+
+        coalescer.trigger("question");
+        await(() -> (long) stats("question").get("skipped") == 1);
+        coalescer.trigger("question");
+        await(() -> (long) stats("question").get("failures") == 1);
+        assertEquals(2L, stats("question").get("runs"));
+    }
+}
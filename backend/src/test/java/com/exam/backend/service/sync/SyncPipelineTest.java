@@ -0,0 +1,127 @@
+package com.exam.backend.service.sync;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyncPipelineTest {
+
+    private final SyncPipeline pipeline = new SyncPipeline();
+
+    // 行就是 id 本身
+    private static final Function<Long, Long> ID = id -> id;
+
+    @AfterEach
+    void shutdown() {
+        pipeline.shutdown();
+    }
+
+    private void configure(int pageSize, int queueCapacity) {
+        ReflectionTestUtils.setField(pipeline, "pageSize", pageSize);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", queueCapacity);
+    }
+
+    // 按 id 游标分页读取一个有序列表
+    private static SyncPipeline.PageReader<Long> reader(Long... ids) {
+        List<Long> rows = List.of(ids);
+        return (afterId, pageable) -> rows.stream().filter(id -> id > afterId).limit(pageable.getPageSize()).toList();
+    }
+
+    private static Map<SyncDialect, SyncPipeline.PageReader<Long>> readers(SyncPipeline.PageReader<Long> mysql,
+                                                                           SyncPipeline.PageReader<Long> oracle,
+                                                                           SyncPipeline.PageReader<Long> sqlServer) {
+        Map<SyncDialect, SyncPipeline.PageReader<Long>> readers = new EnumMap<>(SyncDialect.class);
+        readers.put(SyncDialect.MYSQL, mysql);
+        readers.put(SyncDialect.ORACLE, oracle);
+        readers.put(SyncDialect.SQLSERVER, sqlServer);
+        return readers;
+    }
+
+    // 每个目标库缺少的 id 作为它的写入批次
+    private static Map<SyncDialect, List<Long>> planMissing(List<MergedRow<Long>> rows) {
+        Map<SyncDialect, List<Long>> plan = new EnumMap<>(SyncDialect.class);
+        for (MergedRow<Long> row : rows) {
+            for (SyncDialect d : SyncDialect.values()) {
+                if (row.get(d) == null) plan.computeIfAbsent(d, k -> new ArrayList<>()).add(row.id());
+            }
+        }
+        return plan;
+    }
+
+    private static ApplyResult applied(SyncDialect target, List<Long> batch) {
+        ApplyResult result = new ApplyResult(target, "paper");
+        result.addApplied(batch.size());
+        return result;
+    }
+
+    @Test
+    void threeWayMergeAlignsRowsById() {
+        configure(2, 1);
+        List<MergedRow<Long>> merged = new CopyOnWriteArrayList<>();
+        // MySQL 恰好两整页 (之后读到空页才结束)，SQL Server 为空
+        List<ApplyResult> results = pipeline.run("paper", ID, readers(reader(1L, 3L, 5L, 6L), reader(2L, 3L, 6L), reader()),
+                rows -> {
+                    merged.addAll(rows);
+                    return planMissing(rows);
+                }, SyncPipelineTest::applied);
+
+        assertEquals(List.of(1L, 2L, 3L, 5L, 6L), merged.stream().map(MergedRow::id).toList());
+        assertEquals(new MergedRow<>(1L, 1L, null, null), merged.get(0));
+        assertEquals(new MergedRow<>(2L, null, 2L, null), merged.get(1));
+        assertEquals(new MergedRow<>(3L, 3L, 3L, null), merged.get(2));
+        assertEquals(new MergedRow<>(5L, 5L, null, null), merged.get(3));
+        assertEquals(new MergedRow<>(6L, 6L, 6L, null), merged.get(4));
+
+        Map<SyncDialect, Integer> applied = new EnumMap<>(SyncDialect.class);
+        results.forEach(r -> applied.put(r.getTarget(), r.getApplied()));
+        assertEquals(Map.of(SyncDialect.MYSQL, 1, SyncDialect.ORACLE, 2, SyncDialect.SQLSERVER, 5), applied);
+    }
+
+    @Test
+    void emptySourcesFinishWithoutPlanning() {
+        configure(2, 1);
+        List<ApplyResult> results = pipeline.run("paper", ID, readers(reader(), reader(), reader()),
+                rows -> fail("没有行时不应比对"), SyncPipelineTest::applied);
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(r -> r.getApplied() == 0));
+    }
+
+    @Test
+    void failingTargetKeepsDrainingUntilEndAndOthersComplete() {
+        // 每页一行、队列容量 1：失败的目标若不继续消费到 END，归并线程会被背压卡住
+        configure(1, 1);
+        Long[] ids = new Long[50];
+        for (int i = 0; i < ids.length; i++) ids[i] = (long) i + 1;
+        List<Long> writtenToMysql = new CopyOnWriteArrayList<>();
+
+        RuntimeException e = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(RuntimeException.class,
+                () -> pipeline.run("paper", ID, readers(reader(), reader(), reader(ids)), SyncPipelineTest::planMissing,
+                        (target, batch) -> {
+                            if (target == SyncDialect.ORACLE) throw new RuntimeException("Oracle 写入失败");
+                            if (target == SyncDialect.MYSQL) writtenToMysql.addAll(batch);
+                            return applied(target, batch);
+                        })));
+        assertEquals("Oracle 写入失败", e.getMessage());
+        assertEquals(List.of(ids), writtenToMysql);
+    }
+
+    @Test
+    void readerFailureAbortsInsteadOfHanging() {
+        configure(1, 1);
+        SyncPipeline.PageReader<Long> broken = (afterId, pageable) -> {
+            if (afterId >= 3) throw new IllegalStateException("SQL Server 读取失败");
+            return List.of(afterId == Long.MIN_VALUE ? 1L : afterId + 1);
+        };
+        RuntimeException e = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(RuntimeException.class,
+                () -> pipeline.run("paper", ID, readers(reader(1L, 2L, 3L, 4L, 5L), reader(), broken),
+                        SyncPipelineTest::planMissing, SyncPipelineTest::applied)));
+        assertEquals("SQL Server 读取失败", e.getMessage());
+    }
+}
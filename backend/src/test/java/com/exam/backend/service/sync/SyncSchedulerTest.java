@@ -0,0 +1,133 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.service.SyncService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.Environment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SyncSchedulerTest {
+
+    private final SyncService syncService = mock(SyncService.class);
+    private final Environment env = mock(Environment.class);
+    // sync.jobs.* 配置 (未配置的取 SyncScheduler 的默认值)
+    private final Map<String, Long> props = new HashMap<>();
+    private final SyncScheduler scheduler = new SyncScheduler();
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private void start() {
+        when(env.getProperty(anyString(), eq(Long.class), anyLong()))
+                .thenAnswer(inv -> props.getOrDefault(inv.<String>getArgument(0), inv.getArgument(2)));
+        ReflectionTestUtils.setField(scheduler, "syncService", syncService);
+        ReflectionTestUtils.setField(scheduler, "env", env);
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "threads", 2);
+        ReflectionTestUtils.setField(scheduler, "conflictMonitorMs", 600_000L);
+        ReflectionTestUtils.setField(scheduler, "fullCron", "0 0 0 1 1 ?"); // 测试期间不会到点
+        scheduler.start();
+    }
+
+    private Map<String, Object> job(String name) {
+        return scheduler.jobStates().stream().filter(j -> name.equals(j.get("name"))).findFirst().orElseThrow();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("超时");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void intervalShrinksWithChangesAndGrowsWhenIdle() {
+        props.put("sync.jobs.paper.interval-ms", 400_000L);
+        props.put("sync.jobs.paper.min-ms", 100_000L);
+        props.put("sync.jobs.paper.max-ms", 800_000L);
+        start();
+        when(syncService.scheduledTableSync("paper")).thenReturn(3, 3, 3, 0, 0);
+
+        assertTrue(scheduler.runTableNow("paper"));
+        assertEquals(200_000L, job("paper").get("intervalMs"));
+        scheduler.runTableNow("paper");
+        scheduler.runTableNow("paper");
+        assertEquals(100_000L, job("paper").get("intervalMs")); // 不低于 min-ms
+        scheduler.runTableNow("paper");
+        assertEquals(150_000L, job("paper").get("intervalMs"));
+        assertEquals(0L, job("paper").get("lastChanges"));
+        assertEquals(4L, job("paper").get("runs"));
+    }
+
+    @Test
+    void failedRunKeepsTheIntervalAndIsReportedToTheCaller() {
+        start();
+        when(syncService.scheduledTableSync("question")).thenThrow(new RuntimeException("Oracle 不可用"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> scheduler.runTableNow("question"));
+        assertEquals("Oracle 不可用", e.getMessage());
+        assertEquals(30_000L, job("question").get("intervalMs"));
+        assertEquals("FAILED", job("question").get("lastStatus"));
+        assertEquals(1L, job("question").get("failures"));
+    }
+
+    @Test
+    void tableRunsAreSkippedWhileAFullReconcileRuns() throws Exception {
+        start();
+        CountDownLatch inFull = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            inFull.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(syncService).scheduledFullSync();
+
+        CompletableFuture<Void> full = CompletableFuture.runAsync(scheduler::runFullNow);
+        assertTrue(inFull.await(10, TimeUnit.SECONDS));
+        assertFalse(scheduler.runTableNow("exam_result"));
+        verify(syncService, never()).scheduledTableSync("exam_result");
+
+        release.countDown();
+        full.get(10, TimeUnit.SECONDS);
+        assertTrue(scheduler.runTableNow("exam_result"));
+        verify(syncService).scheduledTableSync("exam_result");
+    }
+
+    @Test
+    void scheduledTableJobNeverOverlapsItself() throws Exception {
+        props.put("sync.jobs.exam_result.interval-ms", 10L);
+        props.put("sync.jobs.exam_result.min-ms", 10L);
+        props.put("sync.jobs.exam_result.max-ms", 10L);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        AtomicInteger runs = new AtomicInteger();
+        when(syncService.scheduledTableSync("exam_result")).thenAnswer(inv -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            Thread.sleep(30); // 比间隔长
+            concurrent.decrementAndGet();
+            runs.incrementAndGet();
+            return 1;
+        });
+        start();
+
+        // 定时任务与手动触发交错，同一张表始终只有一个同步在执行
+        for (int i = 0; i < 3; i++) scheduler.runTableNow("exam_result");
+        await(() -> runs.get() >= 8);
+        assertEquals(1, maxConcurrent.get());
+    }
+}
@@ -0,0 +1,82 @@
+package com.exam.backend.service.sync;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TargetHealthTest {
+
+    private final TargetHealth health = new TargetHealth();
+
+    private void configure(int failureThreshold, long openMs) {
+        ReflectionTestUtils.setField(health, "failureThreshold", failureThreshold);
+        ReflectionTestUtils.setField(health, "openMs", openMs);
+    }
+
+    private Object state(SyncDialect d) {
+        return ((Map<?, ?>) health.stats().get(d.getDbName())).get("state");
+    }
+
+    private void failOnce(SyncDialect d) {
+        assertTrue(health.allow(d));
+        health.recordFailure(d, new RuntimeException("连接超时"));
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresOnly() {
+        configure(3, 60_000);
+        failOnce(SyncDialect.ORACLE);
+        failOnce(SyncDialect.ORACLE);
+        health.recordSuccess(SyncDialect.ORACLE); // 成功清零
+        failOnce(SyncDialect.ORACLE);
+        failOnce(SyncDialect.ORACLE);
+        assertEquals(TargetHealth.State.CLOSED, state(SyncDialect.ORACLE));
+
+        failOnce(SyncDialect.ORACLE);
+        assertEquals(TargetHealth.State.OPEN, state(SyncDialect.ORACLE));
+        assertFalse(health.isClosed(SyncDialect.ORACLE));
+        assertFalse(health.allow(SyncDialect.ORACLE));
+        // 其它库不受影响
+        assertTrue(health.allow(SyncDialect.SQLSERVER));
+        assertTrue(health.isClosed(SyncDialect.SQLSERVER));
+    }
+
+    @Test
+    void halfOpenLetsOneProbeThroughAndClosesOnSuccess() throws Exception {
+        configure(1, 50);
+        failOnce(SyncDialect.SQLSERVER);
+        assertFalse(health.allow(SyncDialect.SQLSERVER));
+
+        Thread.sleep(80);
+        assertTrue(health.allow(SyncDialect.SQLSERVER));
+        assertEquals(TargetHealth.State.HALF_OPEN, state(SyncDialect.SQLSERVER));
+        // 探测进行中，其余访问仍被挡住
+        assertFalse(health.allow(SyncDialect.SQLSERVER));
+        assertFalse(health.isClosed(SyncDialect.SQLSERVER));
+
+        health.recordSuccess(SyncDialect.SQLSERVER);
+        assertEquals(TargetHealth.State.CLOSED, state(SyncDialect.SQLSERVER));
+        assertTrue(health.allow(SyncDialect.SQLSERVER));
+        assertTrue(health.allow(SyncDialect.SQLSERVER));
+    }
+
+    @Test
+    void failedProbeReopensImmediately() throws Exception {
+        configure(3, 50);
+        for (int i = 0; i < 3; i++) failOnce(SyncDialect.MYSQL);
+        Thread.sleep(80);
+
+        // 半开状态下一次失败就重新打开，并重新计时
+        failOnce(SyncDialect.MYSQL);
+        assertEquals(TargetHealth.State.OPEN, state(SyncDialect.MYSQL));
+        assertFalse(health.allow(SyncDialect.MYSQL));
+        assertEquals("连接超时", ((Map<?, ?>) health.stats().get("MySQL")).get("lastError"));
+
+        Thread.sleep(80);
+        assertTrue(health.allow(SyncDialect.MYSQL));
+        assertEquals(TargetHealth.State.HALF_OPEN, state(SyncDialect.MYSQL));
+    }
+}
@@ -0,0 +1,133 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.entity.SyncTombstone;
+import com.exam.backend.repository.mysql.MysqlSyncTombstoneRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TombstoneStoreTest {
+
+    private final MysqlSyncTombstoneRepository repo = mock(MysqlSyncTombstoneRepository.class);
+    private final SyncApplier applier = mock(SyncApplier.class);
+    private final TargetHealth health = mock(TargetHealth.class);
+    // 内存中的 sys_sync_tombstone
+    private final Map<Long, SyncTombstone> table = new LinkedHashMap<>();
+    private final AtomicLong seq = new AtomicLong();
+    // 熔断中的库
+    private final Set<SyncDialect> down = EnumSet.noneOf(SyncDialect.class);
+    private final SyncFanOut fanOut = new SyncFanOut(false, 1, 1);
+    private final TombstoneStore store = new TombstoneStore(mock(PlatformTransactionManager.class));
+
+    @AfterEach
+    void shutdown() {
+        fanOut.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(repo.saveAll(anyIterable())).thenAnswer(inv -> {
+            List<SyncTombstone> saved = new ArrayList<>();
+            inv.<Iterable<SyncTombstone>>getArgument(0).forEach(t -> {
+                if (t.getId() == null) t.setId(seq.incrementAndGet());
+                table.put(t.getId(), t);
+                saved.add(t);
+            });
+            return saved;
+        });
+        when(repo.findByTableNameAndRowIdIn(anyString(), anyCollection())).thenAnswer(inv -> table.values().stream()
+                .filter(t -> t.getTableName().equals(inv.getArgument(0)) && inv.<Collection<Long>>getArgument(1).contains(t.getRowId()))
+                .toList());
+        doAnswer(inv -> {
+            inv.<Iterable<SyncTombstone>>getArgument(0).forEach(t -> table.remove(t.getId()));
+            return null;
+        }).when(repo).deleteAll(anyIterable());
+        when(health.isClosed(any())).thenAnswer(inv -> !down.contains(inv.<SyncDialect>getArgument(0)));
+        // 目标库上的删除：熔断中的库转入 hint 日志 (deferred)，其余删除成功
+        when(applier.applyDeletes(any(), anyString(), anyList())).thenAnswer(inv -> {
+            SyncDialect target = inv.getArgument(0);
+            ApplyResult result = new ApplyResult(target, inv.getArgument(1));
+            if (down.contains(target)) result.addDeferred(inv.<List<Long>>getArgument(2).size());
+            else result.addApplied(inv.<List<Long>>getArgument(2).size());
+            return result;
+        });
+
+        ReflectionTestUtils.setField(store, "repo", repo);
+        ReflectionTestUtils.setField(store, "applier", applier);
+        ReflectionTestUtils.setField(store, "health", health);
+        ReflectionTestUtils.setField(store, "fanOut", fanOut);
+    }
+
+    private static RowVersion version(long id, long syncVersion) {
+        return new RowVersion(id, null, "f", syncVersion);
+    }
+
+    private SyncTombstone stone(long rowId) {
+        return table.values().stream().filter(t -> t.getRowId() == rowId).findFirst().orElse(null);
+    }
+
+    @Test
+    void absentRowsAreAckedOnlyForDatabasesWithAClosedBreaker() {
+        store.recordDeleted(SyncDialect.MYSQL, "paper", Map.of(5L, 100L));
+        down.add(SyncDialect.ORACLE);
+
+        // Oracle 熔断：本轮没有读它，"不存在" 不可信
+        List<MergedRow<RowVersion>> live = store.reap("paper", List.of(
+                new MergedRow<>(5L, null, null, version(5, 90)),
+                new MergedRow<>(6L, version(6, 1), null, null)));
+        assertEquals(List.of(6L), live.stream().map(MergedRow::id).toList());
+        verify(applier).applyDeletes(SyncDialect.SQLSERVER, "paper", List.of(5L));
+        assertEquals(Set.of("MySQL", "SQLServer"), stone(5).ackedDbs());
+        assertEquals(Map.of("paper", 1), store.stats());
+
+        // Oracle 恢复后三库都查不到：全部确认，墓碑删除
+        down.clear();
+        store.reapAbsent("paper", List.of(5L));
+        assertTrue(table.isEmpty());
+        assertEquals(Map.of("paper", 0), store.stats());
+    }
+
+    @Test
+    void deleteDeferredByAnOpenBreakerIsNotAcked() {
+        store.recordDeleted(SyncDialect.MYSQL, "sys_user", Map.of(3L, 100L));
+        down.add(SyncDialect.ORACLE);
+
+        store.reap("sys_user", List.of(new MergedRow<>(3L, null, version(3, 50), version(3, 50))));
+        verify(applier).applyDeletes(SyncDialect.ORACLE, "sys_user", List.of(3L));
+        // Oracle 的删除转入 hint 日志，只有 SQL Server 确认
+        assertEquals(Set.of("MySQL", "SQLServer"), stone(3).ackedDbs());
+
+        down.clear();
+        store.reap("sys_user", List.of(new MergedRow<>(3L, null, version(3, 50), null)));
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void rowModifiedAfterTheDeleteSupersedesTheTombstone() {
+        store.recordDeleted(SyncDialect.ORACLE, "question", Map.of(8L, 100L));
+
+        List<MergedRow<RowVersion>> live = store.reap("question", List.of(new MergedRow<>(8L, version(8, 200), null, version(8, 90))));
+        assertEquals(List.of(8L), live.stream().map(MergedRow::id).toList());
+        verify(applier, never()).applyDeletes(any(), anyString(), anyList());
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void reportedDeleteKeepsItsDeleteTimeVersionAndIsNotRestamped() {
+        store.recordDeleted(SyncDialect.SQLSERVER, "paper", Map.of(5L, 100L));
+        store.recordDeleted(SyncDialect.ORACLE, "paper", Map.of(5L, 300L));
+
+        assertEquals(1, table.size());
+        assertEquals(100L, stone(5).getSyncVersion());
+        assertEquals(Set.of("SQLServer"), stone(5).ackedDbs());
+    }
+}
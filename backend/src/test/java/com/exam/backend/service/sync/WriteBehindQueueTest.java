@@ -0,0 +1,139 @@
+package com.exam.backend.service.sync;
+
+import com.exam.backend.service.SyncService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+class WriteBehindQueueTest {
+
+    @TempDir Path dir;
+
+    private final SyncService syncService = mock(SyncService.class);
+    // 每次 SyncService.sync 收到的 (表 -> id)
+    private final List<Map<String, Set<Long>>> synced = new CopyOnWriteArrayList<>();
+    private final List<WriteBehindQueue> started = new ArrayList<>();
+
+    @AfterEach
+    void stopAll() throws Exception {
+        for (WriteBehindQueue q : started) q.stop();
+    }
+
+    private WriteBehindQueue start(long compactBytes) throws Exception {
+        doAnswer(inv -> {
+            Map<String, Set<Long>> rows = new LinkedHashMap<>();
+            inv.<Map<String, Collection<Long>>>getArgument(0).forEach((t, ids) -> rows.put(t, new LinkedHashSet<>(ids)));
+            synced.add(rows);
+            return null;
+        }).when(syncService).sync(anyMap());
+        WriteBehindQueue queue = new WriteBehindQueue();
+        ReflectionTestUtils.setField(queue, "syncService", syncService);
+        ReflectionTestUtils.setField(queue, "dir", dir.toString());
+        ReflectionTestUtils.setField(queue, "batchSize", 500);
+        ReflectionTestUtils.setField(queue, "fsync", true);
+        ReflectionTestUtils.setField(queue, "compactBytes", compactBytes);
+        ReflectionTestUtils.setField(queue, "maxBackoffMs", 1000L);
+        queue.start();
+        started.add(queue);
+        return queue;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("超时");
+            Thread.sleep(10);
+        }
+    }
+
+    // 等到累计同步 applied 条且队列为空 (applied 在出队之后才累加)
+    private static void awaitApplied(WriteBehindQueue queue, long applied) throws InterruptedException {
+        await(() -> (long) queue.stats().get("applied") == applied && (int) queue.stats().get("pending") == 0);
+    }
+
+    private Path journal() {
+        return dir.resolve("journal.log");
+    }
+
+    private long offset() throws Exception {
+        return Long.parseLong(Files.readString(dir.resolve("journal.offset")).trim());
+    }
+
+    @Test
+    void replaysOnlyEntriesAfterTheOffsetAndSkipsTornLines() throws Exception {
+        Files.writeString(journal(), "1 paper 10 1000\n2 paper 11 1000\n3 paper 12 1000\n4 question 7 1000\n5 paper 12 1000\n6 pap",
+                StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("journal.offset"), "2");
+
+        WriteBehindQueue queue = start(Long.MAX_VALUE);
+        awaitApplied(queue, 3);
+
+        // 同一行在一批内合并为一次
+        assertEquals(List.of(Map.of("paper", Set.of(12L), "question", Set.of(7L))), synced);
+        assertEquals(5, offset());
+
+        // 新条目的序号接在日志里最大的序号之后
+        queue.enqueue("paper", 20L);
+        awaitApplied(queue, 4);
+        assertEquals(6, offset());
+        List<String> lines = Files.readAllLines(journal());
+        assertTrue(lines.get(lines.size() - 1).startsWith("6 paper 20 "));
+    }
+
+    @Test
+    void failedBatchStaysQueuedAndIsRetried() throws Exception {
+        WriteBehindQueue queue = start(Long.MAX_VALUE);
+        doThrow(new RuntimeException("Oracle 不可用")).doAnswer(inv -> {
+            synced.add(Map.of("paper", new LinkedHashSet<>(inv.<Map<String, Collection<Long>>>getArgument(0).get("paper"))));
+            return null;
+        }).when(syncService).sync(anyMap());
+
+        queue.enqueue("paper", 1L);
+        awaitApplied(queue, 1);
+
+        assertEquals(1L, queue.stats().get("failures"));
+        assertEquals("Oracle 不可用", queue.stats().get("lastError"));
+        assertEquals(List.of(Map.of("paper", Set.of(1L))), synced);
+        assertEquals(1, offset());
+    }
+
+    @Test
+    void drainedJournalIsTruncatedAndSequenceSurvivesRestart() throws Exception {
+        WriteBehindQueue queue = start(0);
+        queue.enqueue("paper", 1L);
+        queue.enqueue("paper", 2L);
+        awaitApplied(queue, 2);
+        await(() -> {
+            try {
+                return Files.size(journal()) == 0;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        long last = offset();
+        queue.stop();
+        started.remove(queue);
+
+        // 日志已截断，重启后没有要重放的条目；序号从偏移之后继续，不会被误认为已同步
+        synced.clear();
+        WriteBehindQueue restarted = start(Long.MAX_VALUE);
+        assertEquals(0, restarted.stats().get("pending"));
+        restarted.enqueue("paper", 3L);
+        awaitApplied(restarted, 1);
+        assertEquals(List.of(Map.of("paper", Set.of(3L))), synced);
+        assertEquals(last + 1, offset());
+        assertTrue(Files.readString(journal()).startsWith((last + 1) + " paper 3 "));
+    }
+}
@@ -0,0 +1,61 @@
+package com.exam.backend.service.view;
+
+import com.exam.backend.service.grading.GradingPlanCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+class PaperCacheInvalidatorTest {
+
+    private final GradingPlanCache gradingPlans = mock(GradingPlanCache.class);
+    private final PaperViewCache paperViews = mock(PaperViewCache.class);
+    private final PaperSnapshotStore paperSnapshots = mock(PaperSnapshotStore.class);
+    private final PaperCacheInvalidator invalidator = new PaperCacheInvalidator();
+
+    PaperCacheInvalidatorTest() {
+        ReflectionTestUtils.setField(invalidator, "gradingPlans", gradingPlans);
+        ReflectionTestUtils.setField(invalidator, "paperViews", paperViews);
+        ReflectionTestUtils.setField(invalidator, "paperSnapshots", paperSnapshots);
+    }
+
+    @AfterEach
+    void clear() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void deletesInsideTransactionInvalidateAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        invalidator.rowsDeleted("paper", List.of(1L));
+        invalidator.rowsDeleted("question", List.of(7L));
+        invalidator.papersDetached(List.of(2L));
+        verifyNoInteractions(gradingPlans, paperViews, paperSnapshots);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(gradingPlans).invalidatePapers(List.of(1L));
+        verify(gradingPlans).invalidateQuestions(List.of(7L));
+        verify(paperViews).invalidatePapers(List.of(1L));
+        verify(paperViews).invalidateQuestions(List.of(7L));
+        verify(paperViews).invalidatePapers(List.of(2L));
+        verify(paperSnapshots).remove(List.of(1L));
+        verify(paperSnapshots).refreshQuestions(List.of(7L));
+        verifyNoMoreInteractions(gradingPlans, paperSnapshots);
+    }
+
+    @Test
+    void deletesOutsideTransactionInvalidateImmediately() {
+        invalidator.rowsDeleted("question", List.of(7L));
+        verify(gradingPlans).invalidateQuestions(List.of(7L));
+        verify(paperViews).invalidateQuestions(List.of(7L));
+        verify(paperSnapshots).refreshQuestions(List.of(7L));
+
+        invalidator.rowsDeleted("exam_result", List.of(3L));
+        verifyNoMoreInteractions(gradingPlans, paperViews, paperSnapshots);
+    }
+}
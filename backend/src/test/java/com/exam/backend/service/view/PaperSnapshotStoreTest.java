@@ -0,0 +1,212 @@
+package com.exam.backend.service.view;
+
+import com.exam.backend.entity.Paper;
+import com.exam.backend.entity.PaperQuestion;
+import com.exam.backend.entity.Question;
+import com.exam.backend.repository.mysql.MysqlPaperQuestionRepository;
+import com.exam.backend.repository.mysql.MysqlPaperRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class PaperSnapshotStoreTest {
+
+    @TempDir Path dir;
+
+    private final MysqlPaperRepository paperRepo = mock(MysqlPaperRepository.class);
+    private final MysqlPaperQuestionRepository pqRepo = mock(MysqlPaperQuestionRepository.class);
+    private final List<PaperSnapshotStore> started = new ArrayList<>();
+
+    @AfterEach
+    void stopAll() {
+        started.forEach(PaperSnapshotStore::shutdown);
+    }
+
+    private PaperSnapshotStore start() throws Exception {
+        PaperSnapshotStore store = new PaperSnapshotStore();
+        ReflectionTestUtils.setField(store, "mysqlPaperRepo", paperRepo);
+        ReflectionTestUtils.setField(store, "mysqlPaperQuestionRepo", pqRepo);
+        ReflectionTestUtils.setField(store, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(store, "dir", dir.toString());
+        ReflectionTestUtils.setField(store, "missingTtlMs", 60_000L);
+        store.start();
+        started.add(store);
+        // 等后台补渲染 / 清理跑完，测试里的写入不和它交错
+        ((ExecutorService) ReflectionTestUtils.getField(store, "backfiller")).submit(() -> { }).get();
+        return store;
+    }
+
+    private static Paper paper(long id) {
+        Paper p = new Paper();
+        p.setId(id);
+        p.setPaperName("试卷" + id);
+        p.setTotalScore(100);
+        return p;
+    }
+
+    private static List<PaperQuestion> questions(Paper paper, long... questionIds) {
+        List<PaperQuestion> pqs = new ArrayList<>();
+        for (long id : questionIds) {
+            Question q = new Question();
+            q.setId(id);
+            q.setContent("题目" + id);
+            q.setType("单选");
+            q.setAnswer("A");
+            PaperQuestion pq = new PaperQuestion();
+            pq.setPaper(paper);
+            pq.setQuestion(q);
+            pq.setScore(5);
+            pqs.add(pq);
+        }
+        return pqs;
+    }
+
+    private static String text(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) fail("超时");
+            Thread.sleep(10);
+        }
+    }
+
+    private long snapshotFiles() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".json")).count();
+        }
+    }
+
+    @Test
+    void missingPaperIsNegativelyCached() throws Exception {
+        when(paperRepo.findById(9L)).thenReturn(Optional.empty());
+        PaperSnapshotStore store = start();
+
+        assertThrows(RuntimeException.class, () -> store.get(9L));
+        assertThrows(RuntimeException.class, () -> store.get(9L));
+        verify(paperRepo, times(1)).findById(9L);
+    }
+
+    @Test
+    void expiredMissingEntriesArePurgedOnLaterMisses() throws Exception {
+        when(paperRepo.findById(anyLong())).thenReturn(Optional.empty());
+        PaperSnapshotStore store = start();
+        ReflectionTestUtils.setField(store, "missingTtlMs", 500L);
+
+        for (long id = 1000; id < 1100; id++) {
+            long paperId = id;
+            assertThrows(RuntimeException.class, () -> store.get(paperId));
+        }
+        assertEquals(100, store.stats().get("missing"));
+
+        // 过期之后再来一个不存在的 id：之前的记录被清理，只剩新的一条
+        Thread.sleep(1_100);
+        assertThrows(RuntimeException.class, () -> store.get(5000L));
+        assertEquals(1, store.stats().get("missing"));
+
+        // 过期的记录不再挡住查库
+        assertThrows(RuntimeException.class, () -> store.get(5000L));
+        Thread.sleep(600);
+        assertThrows(RuntimeException.class, () -> store.get(5000L));
+        verify(paperRepo, times(2)).findById(5000L);
+    }
+
+    @Test
+    void concurrentMissesShareOneRender() throws Exception {
+        Paper paper = paper(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(paperRepo.findById(1L)).thenAnswer(inv -> {
+            release.await();
+            return Optional.of(paper);
+        });
+        when(pqRepo.findWithQuestionByPaperId(1L)).thenReturn(questions(paper, 10, 11));
+        PaperSnapshotStore store = start();
+
+        List<String> bodies = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread t = new Thread(() -> bodies.add(text(store.get(1L))));
+            threads.add(t);
+            t.start();
+        }
+        await(() -> threads.stream().allMatch(t -> t.getState() == Thread.State.WAITING));
+        release.countDown();
+        for (Thread t : threads) t.join();
+
+        assertEquals(8, bodies.size());
+        assertEquals(1, bodies.stream().distinct().count());
+        assertFalse(bodies.get(0).contains("answer"));
+        verify(paperRepo, times(1)).findById(1L);
+    }
+
+    @Test
+    void renderStartedBeforeDeleteIsDiscarded() throws Exception {
+        Paper paper = paper(1);
+        PaperSnapshotStore store = start();
+        when(paperRepo.findById(1L)).thenAnswer(inv -> {
+            store.remove(List.of(1L)); // 读取之后、写入快照之前试卷被删除
+            return Optional.of(paper);
+        });
+        when(pqRepo.findWithQuestionByPaperId(1L)).thenReturn(questions(paper, 10));
+
+        assertThrows(RuntimeException.class, () -> store.get(1L));
+        assertEquals(0, store.stats().get("papers"));
+        assertEquals(0, snapshotFiles());
+    }
+
+    @Test
+    void removedPaperIsNotRemappedAfterRestart() throws Exception {
+        PaperSnapshotStore store = start();
+        Paper one = paper(1), two = paper(2);
+        store.publish(one, questions(one, 10));
+        store.publish(two, questions(two, 20));
+        store.remove(List.of(1L));
+        store.shutdown();
+
+        when(paperRepo.findAllIds()).thenReturn(List.of(2L));
+        PaperSnapshotStore restarted = start();
+        assertEquals(1, restarted.stats().get("papers"));
+        assertTrue(text(restarted.get(2L)).contains("试卷2"));
+        verify(paperRepo, never()).findById(anyLong());
+    }
+
+    @Test
+    void snapshotsOfPapersGoneFromMysqlArePrunedOnStartup() throws Exception {
+        PaperSnapshotStore store = start();
+        Paper one = paper(1), two = paper(2);
+        store.publish(one, questions(one, 10));
+        store.publish(two, questions(two, 20));
+        store.shutdown();
+
+        // 停机前试卷 2 已在 MySQL 删除，但快照没来得及删
+        when(paperRepo.findAllIds()).thenReturn(List.of(1L));
+        PaperSnapshotStore restarted = start();
+        assertEquals(1, restarted.stats().get("papers"));
+        assertEquals(1, snapshotFiles());
+        assertThrows(RuntimeException.class, () -> restarted.get(2L));
+        verify(paperRepo, never()).findById(2L);
+    }
+}
@@ -33,7 +33,7 @@ DELIMITER ;
 
 -- =============================================
 -- 2. 触发器：用户表变更记录 (MySQL)
--- 功能：当 sys_user 表发生 UPDATE 时，自动插入一条日志到 sync_log 表
+-- 功能：当 sys_user 表发生 UPDATE 时，自动插入一条日志到 sys_sync_log 表
 -- =============================================
 DELIMITER //
 CREATE TRIGGER Tri_AfterUserUpdate
@@ -41,8 +41,8 @@ CREATE TRIGGER Tri_AfterUserUpdate
     FOR EACH ROW
 BEGIN
     -- 只有当关键信息变更时才记录
-    IF OLD.username != NEW.username OR OLD.role != NEW.role THEN
-        INSERT INTO sync_log (create_time, start_time, end_time, status, message)
+    IF NOT (OLD.username <=> NEW.username) OR NOT (OLD.role <=> NEW.role) THEN
+        INSERT INTO sys_sync_log (create_time, start_time, end_time, status, message)
         VALUES (NOW(), NOW(), NOW(), 'TRIGGER', CONCAT('用户[', OLD.id, ']数据变更: ', OLD.username, ' -> ', NEW.username));
 END IF;
 END //
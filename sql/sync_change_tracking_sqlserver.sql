@@ -0,0 +1,14 @@
+-- =============================================
+-- 开启 Change Tracking (SQL Server)
+-- 功能：供 sync.change-source.sqlserver: change-tracking 使用，由数据库记录变更行的主键，不需要触发器
+-- 说明：数据库名按实际修改；保留期需大于两次增量同步的最长间隔，超过保留期的表会自动改为全量对账
+-- =============================================
+ALTER DATABASE exam_system_db SET CHANGE_TRACKING = ON (CHANGE_RETENTION = 2 DAYS, AUTO_CLEANUP = ON);
+GO
+
+ALTER TABLE dbo.sys_user ENABLE CHANGE_TRACKING;
+ALTER TABLE dbo.question ENABLE CHANGE_TRACKING;
+ALTER TABLE dbo.paper ENABLE CHANGE_TRACKING;
+ALTER TABLE dbo.paper_question ENABLE CHANGE_TRACKING;
+ALTER TABLE dbo.exam_result ENABLE CHANGE_TRACKING;
+GO
@@ -0,0 +1,130 @@
+-- =============================================
+-- 同步变更日志 (outbox) 触发器 (MySQL)
+-- 功能：sys_user / question / paper / paper_question / exam_result 发生增删改时，
+--       在同一事务内写入 sync_change_log，由后端按 id 顺序消费 (sync.change-source.*: outbox)
+-- 说明：sync_change_log 表由后端 JPA 自动建表；paper_question 记录的是 paper_id
+-- =============================================
+DELIMITER //
+DROP TRIGGER IF EXISTS Tri_sys_user_outbox_insert //
+CREATE TRIGGER Tri_sys_user_outbox_insert
+    AFTER INSERT ON sys_user
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('sys_user', NEW.id, 'I', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_sys_user_outbox_update //
+CREATE TRIGGER Tri_sys_user_outbox_update
+    AFTER UPDATE ON sys_user
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('sys_user', NEW.id, 'U', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_sys_user_outbox_delete //
+CREATE TRIGGER Tri_sys_user_outbox_delete
+    AFTER DELETE ON sys_user
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('sys_user', OLD.id, 'D', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_question_outbox_insert //
+CREATE TRIGGER Tri_question_outbox_insert
+    AFTER INSERT ON question
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('question', NEW.id, 'I', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_question_outbox_update //
+CREATE TRIGGER Tri_question_outbox_update
+    AFTER UPDATE ON question
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('question', NEW.id, 'U', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_question_outbox_delete //
+CREATE TRIGGER Tri_question_outbox_delete
+    AFTER DELETE ON question
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('question', OLD.id, 'D', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_paper_outbox_insert //
+CREATE TRIGGER Tri_paper_outbox_insert
+    AFTER INSERT ON paper
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('paper', NEW.id, 'I', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_paper_outbox_update //
+CREATE TRIGGER Tri_paper_outbox_update
+    AFTER UPDATE ON paper
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('paper', NEW.id, 'U', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_paper_outbox_delete //
+CREATE TRIGGER Tri_paper_outbox_delete
+    AFTER DELETE ON paper
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('paper', OLD.id, 'D', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_paper_question_outbox_insert //
+CREATE TRIGGER Tri_paper_question_outbox_insert
+    AFTER INSERT ON paper_question
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('paper_question', NEW.paper_id, 'I', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_paper_question_outbox_update //
+CREATE TRIGGER Tri_paper_question_outbox_update
+    AFTER UPDATE ON paper_question
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('paper_question', NEW.paper_id, 'U', NOW(6));
+    IF OLD.paper_id <> NEW.paper_id THEN
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('paper_question', OLD.paper_id, 'U', NOW(6));
+    END IF;
+END //
+
+DROP TRIGGER IF EXISTS Tri_paper_question_outbox_delete //
+CREATE TRIGGER Tri_paper_question_outbox_delete
+    AFTER DELETE ON paper_question
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('paper_question', OLD.paper_id, 'D', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_exam_result_outbox_insert //
+CREATE TRIGGER Tri_exam_result_outbox_insert
+    AFTER INSERT ON exam_result
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('exam_result', NEW.id, 'I', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_exam_result_outbox_update //
+CREATE TRIGGER Tri_exam_result_outbox_update
+    AFTER UPDATE ON exam_result
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('exam_result', NEW.id, 'U', NOW(6));
+END //
+
+DROP TRIGGER IF EXISTS Tri_exam_result_outbox_delete //
+CREATE TRIGGER Tri_exam_result_outbox_delete
+    AFTER DELETE ON exam_result
+    FOR EACH ROW
+BEGIN
+    INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('exam_result', OLD.id, 'D', NOW(6));
+END //
+DELIMITER ;
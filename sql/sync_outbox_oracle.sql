@@ -0,0 +1,73 @@
+-- =============================================
+-- 同步变更日志 (outbox) 触发器 (Oracle)
+-- 功能：sys_user / question / paper / paper_question / exam_result 发生增删改时，
+--       在同一事务内写入 sync_change_log，由后端按 id 顺序消费 (sync.change-source.*: outbox)
+-- 说明：sync_change_log 表由后端 JPA 自动建表；paper_question 记录的是 paper_id
+-- =============================================
+CREATE OR REPLACE TRIGGER Tri_sys_user_outbox
+    AFTER INSERT OR UPDATE OR DELETE ON sys_user
+    FOR EACH ROW
+BEGIN
+    IF DELETING THEN
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('sys_user', :OLD.id, 'D', SYSTIMESTAMP);
+    ELSE
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time)
+        VALUES ('sys_user', :NEW.id, CASE WHEN INSERTING THEN 'I' ELSE 'U' END, SYSTIMESTAMP);
+    END IF;
+END;
+/
+
+CREATE OR REPLACE TRIGGER Tri_question_outbox
+    AFTER INSERT OR UPDATE OR DELETE ON question
+    FOR EACH ROW
+BEGIN
+    IF DELETING THEN
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('question', :OLD.id, 'D', SYSTIMESTAMP);
+    ELSE
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time)
+        VALUES ('question', :NEW.id, CASE WHEN INSERTING THEN 'I' ELSE 'U' END, SYSTIMESTAMP);
+    END IF;
+END;
+/
+
+CREATE OR REPLACE TRIGGER Tri_paper_outbox
+    AFTER INSERT OR UPDATE OR DELETE ON paper
+    FOR EACH ROW
+BEGIN
+    IF DELETING THEN
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('paper', :OLD.id, 'D', SYSTIMESTAMP);
+    ELSE
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time)
+        VALUES ('paper', :NEW.id, CASE WHEN INSERTING THEN 'I' ELSE 'U' END, SYSTIMESTAMP);
+    END IF;
+END;
+/
+
+CREATE OR REPLACE TRIGGER Tri_paper_question_outbox
+    AFTER INSERT OR UPDATE OR DELETE ON paper_question
+    FOR EACH ROW
+BEGIN
+    IF DELETING THEN
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('paper_question', :OLD.paper_id, 'D', SYSTIMESTAMP);
+    ELSE
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time)
+        VALUES ('paper_question', :NEW.paper_id, CASE WHEN INSERTING THEN 'I' ELSE 'U' END, SYSTIMESTAMP);
+    END IF;
+    IF UPDATING AND :OLD.paper_id <> :NEW.paper_id THEN
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('paper_question', :OLD.paper_id, 'U', SYSTIMESTAMP);
+    END IF;
+END;
+/
+
+CREATE OR REPLACE TRIGGER Tri_exam_result_outbox
+    AFTER INSERT OR UPDATE OR DELETE ON exam_result
+    FOR EACH ROW
+BEGIN
+    IF DELETING THEN
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time) VALUES ('exam_result', :OLD.id, 'D', SYSTIMESTAMP);
+    ELSE
+        INSERT INTO sync_change_log (table_name, row_id, op, change_time)
+        VALUES ('exam_result', :NEW.id, CASE WHEN INSERTING THEN 'I' ELSE 'U' END, SYSTIMESTAMP);
+    END IF;
+END;
+/
@@ -0,0 +1,96 @@
+-- =============================================
+-- 同步变更日志 (outbox) 触发器 (SQL Server)
+-- 功能：sys_user / question / paper / paper_question / exam_result 发生增删改时，
+--       在同一事务内写入 sync_change_log，由后端按 id 顺序消费 (sync.change-source.*: outbox)
+-- 说明：sync_change_log 表由后端 JPA 自动建表；paper_question 记录的是 paper_id
+--       触发器按语句触发，inserted / deleted 中可能有多行
+-- =============================================
+CREATE OR ALTER TRIGGER dbo.Tri_sys_user_outbox
+    ON dbo.sys_user
+    AFTER INSERT, UPDATE, DELETE
+AS
+BEGIN
+    SET NOCOUNT ON;
+    -- 插入 / 更新 (更新时 deleted 中也有行)
+    INSERT INTO dbo.sync_change_log (table_name, row_id, op, change_time)
+    SELECT DISTINCT 'sys_user', i.id, CASE WHEN EXISTS (SELECT 1 FROM deleted) THEN 'U' ELSE 'I' END, SYSDATETIME()
+    FROM inserted i;
+    -- 删除 (或更新后 id 已变化的旧值)
+    INSERT INTO dbo.sync_change_log (table_name, row_id, op, change_time)
+    SELECT DISTINCT 'sys_user', d.id, CASE WHEN EXISTS (SELECT 1 FROM inserted) THEN 'U' ELSE 'D' END, SYSDATETIME()
+    FROM deleted d
+    WHERE NOT EXISTS (SELECT 1 FROM inserted i WHERE i.id = d.id);
+END;
+GO
+
+CREATE OR ALTER TRIGGER dbo.Tri_question_outbox
+    ON dbo.question
+    AFTER INSERT, UPDATE, DELETE
+AS
+BEGIN
+    SET NOCOUNT ON;
+    -- 插入 / 更新 (更新时 deleted 中也有行)
+    INSERT INTO dbo.sync_change_log (table_name, row_id, op, change_time)
+    SELECT DISTINCT 'question', i.id, CASE WHEN EXISTS (SELECT 1 FROM deleted) THEN 'U' ELSE 'I' END, SYSDATETIME()
+    FROM inserted i;
+    -- 删除 (或更新后 id 已变化的旧值)
+    INSERT INTO dbo.sync_change_log (table_name, row_id, op, change_time)
+    SELECT DISTINCT 'question', d.id, CASE WHEN EXISTS (SELECT 1 FROM inserted) THEN 'U' ELSE 'D' END, SYSDATETIME()
+    FROM deleted d
+    WHERE NOT EXISTS (SELECT 1 FROM inserted i WHERE i.id = d.id);
+END;
+GO
+
+CREATE OR ALTER TRIGGER dbo.Tri_paper_outbox
+    ON dbo.paper
+    AFTER INSERT, UPDATE, DELETE
+AS
+BEGIN
+    SET NOCOUNT ON;
+    -- 插入 / 更新 (更新时 deleted 中也有行)
+    INSERT INTO dbo.sync_change_log (table_name, row_id, op, change_time)
+    SELECT DISTINCT 'paper', i.id, CASE WHEN EXISTS (SELECT 1 FROM deleted) THEN 'U' ELSE 'I' END, SYSDATETIME()
+    FROM inserted i;
+    -- 删除 (或更新后 id 已变化的旧值)
+    INSERT INTO dbo.sync_change_log (table_name, row_id, op, change_time)
+    SELECT DISTINCT 'paper', d.id, CASE WHEN EXISTS (SELECT 1 FROM inserted) THEN 'U' ELSE 'D' END, SYSDATETIME()
+    FROM deleted d
+    WHERE NOT EXISTS (SELECT 1 FROM inserted i WHERE i.id = d.id);
+END;
+GO
+
+CREATE OR ALTER TRIGGER dbo.Tri_paper_question_outbox
+    ON dbo.paper_question
+    AFTER INSERT, UPDATE, DELETE
+AS
+BEGIN
+    SET NOCOUNT ON;
+    -- 插入 / 更新 (更新时 deleted 中也有行)
+    INSERT INTO dbo.sync_change_log (table_name, row_id, op, change_time)
+    SELECT DISTINCT 'paper_question', i.paper_id, CASE WHEN EXISTS (SELECT 1 FROM deleted) THEN 'U' ELSE 'I' END, SYSDATETIME()
+    FROM inserted i;
+    -- 删除 (或更新后 paper_id 已变化的旧值)
+    INSERT INTO dbo.sync_change_log (table_name, row_id, op, change_time)
+    SELECT DISTINCT 'paper_question', d.paper_id, CASE WHEN EXISTS (SELECT 1 FROM inserted) THEN 'U' ELSE 'D' END, SYSDATETIME()
+    FROM deleted d
+    WHERE NOT EXISTS (SELECT 1 FROM inserted i WHERE i.paper_id = d.paper_id);
+END;
+GO
+
+CREATE OR ALTER TRIGGER dbo.Tri_exam_result_outbox
+    ON dbo.exam_result
+    AFTER INSERT, UPDATE, DELETE
+AS
+BEGIN
+    SET NOCOUNT ON;
+    -- 插入 / 更新 (更新时 deleted 中也有行)
+    INSERT INTO dbo.sync_change_log (table_name, row_id, op, change_time)
+    SELECT DISTINCT 'exam_result', i.id, CASE WHEN EXISTS (SELECT 1 FROM deleted) THEN 'U' ELSE 'I' END, SYSDATETIME()
+    FROM inserted i;
+    -- 删除 (或更新后 id 已变化的旧值)
+    INSERT INTO dbo.sync_change_log (table_name, row_id, op, change_time)
+    SELECT DISTINCT 'exam_result', d.id, CASE WHEN EXISTS (SELECT 1 FROM inserted) THEN 'U' ELSE 'D' END, SYSDATETIME()
+    FROM deleted d
+    WHERE NOT EXISTS (SELECT 1 FROM inserted i WHERE i.id = d.id);
+END;
+GO